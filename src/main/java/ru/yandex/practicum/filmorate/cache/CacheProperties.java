@@ -0,0 +1,10 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+// maxSize bounds the serialized bytes kept by ResponseCache; 0 turns the cache off
+@ConfigurationProperties(prefix = "filmorate.cache")
+public record CacheProperties(@DefaultValue("64MB") DataSize maxSize) {
+}
@@ -0,0 +1,188 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.event.FilmChangedEvent;
+import ru.yandex.practicum.filmorate.event.FriendshipChangedEvent;
+import ru.yandex.practicum.filmorate.event.LikeChangedEvent;
+import ru.yandex.practicum.filmorate.event.UserChangedEvent;
+import ru.yandex.practicum.filmorate.json.Fields;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.StorageData;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+// Serialized JSON of the popular-films and friend-list responses, evicted least recently used once the stored
+// bytes exceed filmorate.cache.max-size. There is no TTL: the service events below drop exactly the entries a
+// change can affect.
+@Component
+public class ResponseCache {
+    private static final Counter HITS = Metrics.counter("filmorate.response.cache", "result", "hit");
+    private static final Counter MISSES = Metrics.counter("filmorate.response.cache", "result", "miss");
+
+    private final ObjectMapper objectMapper;
+    private final long maxBytes;
+    private final Map<Key, Cached> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // bumped by every invalidation of the query; a response computed across one may predate the change and is
+    // returned but not stored
+    private final Map<Query, Long> generations = new EnumMap<>(Query.class);
+    private final Lock lock = new ReentrantLock();
+    private long bytes;
+
+    public ResponseCache(ObjectMapper objectMapper, CacheProperties properties) {
+        this.objectMapper = objectMapper;
+        this.maxBytes = properties.maxSize().toBytes();
+        for (Query query : Query.values()) {
+            generations.put(query, 0L);
+        }
+    }
+
+    // each projection of the list is an entry of its own, invalidated with the others
+    public byte[] popular(int count, Fields fields, Supplier<List<Film>> loader) {
+        return get(new Key(Query.POPULAR, count, fields.key()), () -> {
+            List<Film> films = loader.get();
+            int floor = films.isEmpty() ? 0 : films.getLast().getLikes().size();
+            return cache(films, fields, floor, films.size() >= count);
+        });
+    }
+
+    public byte[] friends(long userId, Supplier<? extends Collection<User>> loader) {
+        return get(new Key(Query.FRIENDS, userId, Fields.ALL.key()), () -> cache(loader.get(), Fields.ALL, 0, true));
+    }
+
+    // A like can only reorder the top if the film is listed, reaches the last listed film's count, or the list
+    // is short. A new film sorts after every film with as many likes, so it needs strictly more.
+    @EventListener
+    public void onFilmChanged(FilmChangedEvent event) {
+        invalidate(Query.POPULAR, (key, cached) -> cached.contains(event.filmId()) || !cached.complete()
+                || (event.created() ? event.likes() > cached.floor() : event.likes() >= cached.floor()));
+    }
+
+    @EventListener
+    public void onLikeChanged(LikeChangedEvent event) {
+        invalidate(Query.POPULAR, (key, cached) -> cached.contains(event.filmId()) || !cached.complete()
+                || event.likes() >= cached.floor());
+    }
+
+    // friend lists embed each friend's own friend ids, so both sides' lists and every list showing either side go
+    @EventListener
+    public void onFriendshipChanged(FriendshipChangedEvent event) {
+        invalidate(Query.FRIENDS, (key, cached) -> key.param() == event.userId() || key.param() == event.friendId()
+                || cached.contains(event.userId()) || cached.contains(event.friendId()));
+    }
+
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        if (!event.created()) {
+            invalidate(Query.FRIENDS, (key, cached) -> key.param() == event.userId()
+                    || cached.contains(event.userId()));
+        }
+    }
+
+    private byte[] get(Key key, Supplier<Cached> loader) {
+        long generation;
+        lock.lock();
+        try {
+            Cached cached = entries.get(key);
+            if (cached != null) {
+                HITS.increment();
+                return cached.body();
+            }
+            generation = generations.get(key.query());
+        } finally {
+            lock.unlock();
+        }
+        MISSES.increment();
+        Cached loaded = loader.get();
+        lock.lock();
+        try {
+            if (generations.get(key.query()) == generation && loaded.size() <= maxBytes) {
+                Cached previous = entries.put(key, loaded);
+                bytes += loaded.size() - (previous == null ? 0 : previous.size());
+                evict();
+            }
+        } finally {
+            lock.unlock();
+        }
+        return loaded.body();
+    }
+
+    private void invalidate(Query query, EntryPredicate stale) {
+        lock.lock();
+        try {
+            generations.merge(query, 1L, Long::sum);
+            removeIf(entry -> entry.getKey().query() == query && stale.test(entry.getKey(), entry.getValue()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void evict() {
+        Iterator<Cached> eldest = entries.values().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            bytes -= eldest.next().size();
+            eldest.remove();
+        }
+    }
+
+    private void removeIf(Predicate<Map.Entry<Key, Cached>> stale) {
+        Iterator<Map.Entry<Key, Cached>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Key, Cached> entry = iterator.next();
+            if (stale.test(entry)) {
+                bytes -= entry.getValue().size();
+                iterator.remove();
+            }
+        }
+    }
+
+    private Cached cache(Collection<? extends StorageData> elements, Fields fields, int floor, boolean complete) {
+        long[] ids = elements.stream().mapToLong(StorageData::getId).sorted().toArray();
+        try {
+            return new Cached(objectMapper.writer(fields.filters()).writeValueAsBytes(elements), ids, floor, complete);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private enum Query {
+        POPULAR,
+        FRIENDS
+    }
+
+    private record Key(Query query, long param, String fields) {
+    }
+
+    // ids: sorted ids of the serialized elements; floor: like count of the last listed film;
+    // complete: the list holds as many films as requested
+    private record Cached(byte[] body, long[] ids, int floor, boolean complete) {
+        boolean contains(long id) {
+            return Arrays.binarySearch(ids, id) >= 0;
+        }
+
+        long size() {
+            return body.length + (long) ids.length * Long.BYTES;
+        }
+    }
+
+    @FunctionalInterface
+    private interface EntryPredicate {
+        boolean test(Key key, Cached cached);
+    }
+}
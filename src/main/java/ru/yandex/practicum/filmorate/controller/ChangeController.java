@@ -0,0 +1,28 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.yandex.practicum.filmorate.feed.ChangeFeed;
+
+@Slf4j
+@RestController
+@RequiredArgsConstructor
+public class ChangeController {
+    private final ChangeFeed changeFeed;
+
+    // An EventSource reconnects with Last-Event-ID by itself; after is for resuming a stream opened elsewhere. Both
+    // are event ids of the stream; a malformed or negative one is rejected with 400 before the stream opens.
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter changes(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+                              @RequestParam(required = false) String after) {
+        String from = lastEventId != null ? lastEventId : after;
+        log.info("Subscribe to changes after {}", from);
+        return changeFeed.subscribe(from);
+    }
+}
@@ -0,0 +1,22 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import ru.yandex.practicum.filmorate.json.Fields;
+import ru.yandex.practicum.filmorate.util.Epoch;
+
+// Strong ETags built from storage versions. Versions restart with the process, so every tag carries the process
+// epoch and a tag issued before a restart never matches afterwards.
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class ETags {
+    private static final String EPOCH = Epoch.CURRENT;
+
+    public static String of(long version) {
+        return "\"" + EPOCH + "-" + version + "\"";
+    }
+
+    // a projection is a representation of its own, so it gets a tag of its own
+    public static String of(long version, Fields fields) {
+        return fields.key().isEmpty() ? of(version) : "\"" + EPOCH + "-" + version + "-" + fields.key() + "\"";
+    }
+}
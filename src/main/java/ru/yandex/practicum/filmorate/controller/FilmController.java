@@ -3,9 +3,19 @@ package ru.yandex.practicum.filmorate.controller;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJacksonValue;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.cache.ResponseCache;
+import ru.yandex.practicum.filmorate.json.Fields;
+import ru.yandex.practicum.filmorate.model.BatchResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Like;
 import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.RecommendationService;
+import ru.yandex.practicum.filmorate.service.SearchService;
 
 import java.util.Collection;
 import java.util.List;
@@ -15,25 +25,55 @@ import java.util.List;
 @RequiredArgsConstructor
 @RequestMapping("/films")
 public class FilmController {
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
     private final FilmService filmService;
+    private final NdjsonStreamer ndjsonStreamer;
+    private final ResponseCache responseCache;
+    private final SearchService searchService;
+    private final RecommendationService recommendationService;
 
     @GetMapping
-    public Collection<Film> getAll() {
-        return filmService.getAll();
+    public MappingJacksonValue getAll(@RequestParam(required = false) Long after,
+                                      @RequestParam(required = false) Integer limit,
+                                      @RequestParam(required = false) String fields,
+                                      WebRequest request) {
+        Fields projection = Fields.parse(fields, Fields.FILM);
+        if (request.checkNotModified(ETags.of(filmService.getVersion(), projection))) {
+            return null;
+        }
+        Collection<Film> films = after == null && limit == null
+                ? filmService.getAll()
+                : filmService.getPage(after == null ? 0 : after, limit == null ? DEFAULT_PAGE_SIZE : limit);
+        MappingJacksonValue body = new MappingJacksonValue(films);
+        body.setFilters(projection.filters());
+        return body;
+    }
+
+    @GetMapping(params = "stream=true", produces = NdjsonStreamer.APPLICATION_NDJSON)
+    public StreamingResponseBody stream() {
+        return ndjsonStreamer.stream(filmService::getPage);
     }
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
     public Film create(@RequestBody final Film film) {
         filmService.create(film);
-        log.info("Film created {}", film);
+        log.info("Film created {}", film.getId());
         return film;
     }
 
+    @PostMapping("/batch")
+    public List<BatchResult> createAll(@RequestBody final List<Film> films) {
+        List<BatchResult> results = filmService.createAll(films);
+        log.info("Films batch created, {} items", films.size());
+        return results;
+    }
+
     @PutMapping
     public Film update(@RequestBody final Film film) {
         filmService.update(film);
-        log.info("Film updated {}", film);
+        log.info("Film updated {}", film.getId());
         return film;
     }
 
@@ -43,14 +83,41 @@ public class FilmController {
         log.info("Added like to Film {} by user {}", id, userId);
     }
 
+    @PutMapping("/likes/batch")
+    public List<BatchResult> addLikes(@RequestBody final List<Like> likes) {
+        List<BatchResult> results = filmService.addLikes(likes);
+        log.info("Likes batch added, {} items", likes.size());
+        return results;
+    }
+
     @DeleteMapping("/{id}/like/{userId}")
     public void deleteLike(@PathVariable long id, @PathVariable long userId) {
         filmService.deleteLike(id, userId);
         log.info("Deleted like to Film {} by user {}", id, userId);
     }
 
-    @GetMapping("/popular")
-    public List<Film> getPopular(@RequestParam(defaultValue = "10") int count) {
-        return filmService.getPopular(count);
+    // a cached response is written as stored bytes, without calling the service or Jackson
+    @GetMapping(value = "/popular", produces = MediaType.APPLICATION_JSON_VALUE)
+    public byte[] getPopular(@RequestParam(defaultValue = "10") int count,
+                             @RequestParam(required = false) String fields,
+                             WebRequest request) {
+        Fields projection = Fields.parse(fields, Fields.FILM);
+        if (request.checkNotModified(ETags.of(filmService.getVersion(), projection))) {
+            return null;
+        }
+        return responseCache.popular(count, projection, () -> filmService.getPopular(count));
+    }
+
+    @GetMapping("/search")
+    public List<Film> search(@RequestParam String q, @RequestParam(defaultValue = "10") int count) {
+        log.info("Search films by '{}'", q);
+        return searchService.searchFilms(q, count);
+    }
+
+    @GetMapping("/trending")
+    public List<Film> getTrending(@RequestParam(defaultValue = "24h") String window,
+                                  @RequestParam(defaultValue = "10") int count) {
+        log.info("Get trending films for {}", window);
+        return recommendationService.getTrendingFilms(window, count);
     }
 }
@@ -0,0 +1,39 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.StorageData;
+
+import java.util.List;
+import java.util.function.BiFunction;
+
+// writes entities as newline-delimited JSON page by page, so only one page is held in memory at a time
+@Component
+@RequiredArgsConstructor
+public class NdjsonStreamer {
+    public static final String APPLICATION_NDJSON = "application/x-ndjson";
+
+    private static final int PAGE_SIZE = 500;
+
+    private final ObjectMapper objectMapper;
+
+    public <T extends StorageData> StreamingResponseBody stream(BiFunction<Long, Integer, List<T>> pages) {
+        return out -> {
+            try (SequenceWriter writer = objectMapper.writer().withRootValueSeparator("\n").writeValues(out)) {
+                long after = 0;
+                List<T> page;
+                do {
+                    page = pages.apply(after, PAGE_SIZE);
+                    writer.writeAll(page);
+                    writer.flush();
+                    if (!page.isEmpty()) {
+                        after = page.getLast().getId();
+                    }
+                } while (page.size() == PAGE_SIZE);
+            }
+        };
+    }
+}
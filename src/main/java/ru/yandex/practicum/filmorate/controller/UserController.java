@@ -3,11 +3,23 @@ package ru.yandex.practicum.filmorate.controller;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJacksonValue;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.cache.ResponseCache;
+import ru.yandex.practicum.filmorate.json.Fields;
+import ru.yandex.practicum.filmorate.model.BatchResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FriendRecommendation;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.RecommendationService;
 import ru.yandex.practicum.filmorate.service.UserService;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 
 @Slf4j
@@ -15,25 +27,54 @@ import java.util.Set;
 @RequiredArgsConstructor
 @RequestMapping("/users")
 public class UserController {
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
     private final UserService userService;
+    private final NdjsonStreamer ndjsonStreamer;
+    private final ResponseCache responseCache;
+    private final RecommendationService recommendationService;
 
     @GetMapping
-    public Collection<User> getAll() {
-        return userService.getAll();
+    public MappingJacksonValue getAll(@RequestParam(required = false) Long after,
+                                      @RequestParam(required = false) Integer limit,
+                                      @RequestParam(required = false) String fields,
+                                      WebRequest request) {
+        Fields projection = Fields.parse(fields, Fields.USER);
+        if (request.checkNotModified(ETags.of(userService.getVersion(), projection))) {
+            return null;
+        }
+        Collection<User> users = after == null && limit == null
+                ? userService.getAll()
+                : userService.getPage(after == null ? 0 : after, limit == null ? DEFAULT_PAGE_SIZE : limit);
+        MappingJacksonValue body = new MappingJacksonValue(users);
+        body.setFilters(projection.filters());
+        return body;
+    }
+
+    @GetMapping(params = "stream=true", produces = NdjsonStreamer.APPLICATION_NDJSON)
+    public StreamingResponseBody stream() {
+        return ndjsonStreamer.stream(userService::getPage);
     }
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
     public User create(@RequestBody final User user) {
         userService.create(user);
-        log.info("User created {}", user);
+        log.info("User created {}", user.getId());
         return user;
     }
 
+    @PostMapping("/batch")
+    public List<BatchResult> createAll(@RequestBody final List<User> users) {
+        List<BatchResult> results = userService.createAll(users);
+        log.info("Users batch created, {} items", users.size());
+        return results;
+    }
+
     @PutMapping
     public User update(@RequestBody final User user) {
         userService.update(user);
-        log.info("User updated {}", user);
+        log.info("User updated {}", user.getId());
         return user;
     }
 
@@ -43,16 +84,26 @@ public class UserController {
         log.info("To userId {} add friendId {}", id, friendId);
     }
 
+    @PutMapping("/friends/batch")
+    public List<BatchResult> addFriends(@RequestBody final List<Friendship> friendships) {
+        List<BatchResult> results = userService.addFriends(friendships);
+        log.info("Friends batch added, {} items", friendships.size());
+        return results;
+    }
+
     @DeleteMapping("/{id}/friends/{friendId}")
     public void deleteFriend(@PathVariable long id, @PathVariable long friendId) {
         userService.deleteFriend(id, friendId);
         log.info("At userId {} delete friendId {}", id, friendId);
     }
 
-    @GetMapping("/{id}/friends")
-    public Set<User> getFriends(@PathVariable long id) {
+    @GetMapping(value = "/{id}/friends", produces = MediaType.APPLICATION_JSON_VALUE)
+    public byte[] getFriends(@PathVariable long id, WebRequest request) {
         log.info("Get friends for userId {}", id);
-        return userService.getFriends(id);
+        if (request.checkNotModified(ETags.of(userService.getFriendsVersion(id)))) {
+            return null;
+        }
+        return responseCache.friends(id, () -> userService.getFriends(id));
     }
 
     @GetMapping("/{id}/friends/common/{otherId}")
@@ -60,4 +111,17 @@ public class UserController {
         log.info("Get common friends for userId {} and otherId {}", id, otherId);
         return userService.getCommonFriends(id, otherId);
     }
+
+    @GetMapping("/{id}/recommendations")
+    public List<FriendRecommendation> getRecommendations(@PathVariable long id,
+                                                         @RequestParam(defaultValue = "10") int count) {
+        log.info("Get friend recommendations for userId {}", id);
+        return recommendationService.getFriendRecommendations(id, count);
+    }
+
+    @GetMapping("/{id}/recommended-films")
+    public List<Film> getRecommendedFilms(@PathVariable long id, @RequestParam(defaultValue = "10") int count) {
+        log.info("Get film recommendations for userId {}", id);
+        return recommendationService.getFilmRecommendations(id, count);
+    }
 }
@@ -0,0 +1,5 @@
+package ru.yandex.practicum.filmorate.event;
+
+// a film was created or its fields were replaced by an update
+public record FilmChangedEvent(long filmId, int likes, boolean created) {
+}
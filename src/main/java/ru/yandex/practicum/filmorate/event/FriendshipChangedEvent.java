@@ -0,0 +1,4 @@
+package ru.yandex.practicum.filmorate.event;
+
+public record FriendshipChangedEvent(long userId, long friendId, boolean added) {
+}
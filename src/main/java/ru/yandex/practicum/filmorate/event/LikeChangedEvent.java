@@ -0,0 +1,5 @@
+package ru.yandex.practicum.filmorate.event;
+
+// likes is the film's like count after the change
+public record LikeChangedEvent(long filmId, long userId, boolean added, int likes) {
+}
@@ -0,0 +1,5 @@
+package ru.yandex.practicum.filmorate.event;
+
+// a user was created or its fields (and friend list) were replaced by an update
+public record UserChangedEvent(long userId, boolean created) {
+}
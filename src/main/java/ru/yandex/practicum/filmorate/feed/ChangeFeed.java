@@ -0,0 +1,169 @@
+package ru.yandex.practicum.filmorate.feed;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Change;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.StorageData;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.persistence.Mutation;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.util.Epoch;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Change-data-capture stream over SSE. The storages hand every applied change to the feed inside the write's
+// critical section, where it is serialized once into the change log, so the log holds the changes of each element
+// in apply order and with the element as that change left it. Each subscriber has its own virtual thread that
+// reads the log from its position and writes to its connection, so a slow client only blocks its own thread, holds
+// at most one batch, and is reset once it falls out of the log.
+//
+// Sequence numbers restart with the process, so event ids are "<epoch>-<sequence>" with the process epoch (see
+// Epoch), and a subscriber resuming with an id from an earlier process is reset instead of resuming at an
+// unrelated position.
+@Slf4j
+@Component
+public class ChangeFeed implements SmartInitializingSingleton {
+    static final int BATCH_SIZE = 256;
+    // the position of an event id issued by another process
+    static final long FOREIGN = -1;
+
+    private final ObjectMapper objectMapper;
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final ChangeLog changes;
+    private final long heartbeatNanos;
+    private final Set<Thread> senders = ConcurrentHashMap.newKeySet();
+
+    public ChangeFeed(ObjectMapper objectMapper, FilmStorage filmStorage, UserStorage userStorage,
+                      FeedProperties properties) {
+        this.objectMapper = objectMapper;
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.changes = new ChangeLog(properties.retention());
+        this.heartbeatNanos = properties.heartbeat().toNanos();
+    }
+
+    // after every other bean is initialized, so the changes replayed on recovery (PersistenceManager) are not fed
+    @Override
+    public void afterSingletonsInstantiated() {
+        filmStorage.setChangeListener(this::onChange);
+        userStorage.setChangeListener(this::onChange);
+    }
+
+    // Streams the changes after the given event id, or from now on without one. A position the log no longer holds,
+    // or one from another process, gets a single "reset" event with the current event id: the subscriber reloads the
+    // entities and resumes from there.
+    public SseEmitter subscribe(String after) {
+        long from = after == null ? changes.last() : position(after);
+        SseEmitter emitter = new SseEmitter(0L);
+        Thread sender = Thread.ofVirtual().name("change-feed").unstarted(() -> send(emitter, from));
+        emitter.onCompletion(sender::interrupt);
+        emitter.onError(error -> sender.interrupt());
+        senders.add(sender);
+        sender.start();
+        return emitter;
+    }
+
+    // the sequence number of an event id of this process, FOREIGN for an id of another one
+    static long position(String eventId) {
+        // a bare number is an id from before ids carried the epoch
+        int dash = eventId.indexOf('-');
+        String epoch = dash > 0 ? eventId.substring(0, dash) : "";
+        long sequence;
+        try {
+            sequence = Long.parseLong(dash > 0 ? eventId.substring(dash + 1) : eventId);
+        } catch (NumberFormatException e) {
+            throw new ValidationException("неверный номер изменения: " + eventId);
+        }
+        if (sequence < 0) {
+            throw new ValidationException("номер изменения не может быть отрицательным: " + eventId);
+        }
+        return epoch.equals(Epoch.CURRENT) ? sequence : FOREIGN;
+    }
+
+    static String eventId(long sequence) {
+        return Epoch.CURRENT + "-" + sequence;
+    }
+
+    int subscribers() {
+        return senders.size();
+    }
+
+    @PreDestroy
+    public void close() {
+        senders.forEach(Thread::interrupt);
+    }
+
+    ChangeLog.Batch read(long after, long timeoutNanos) throws InterruptedException {
+        return changes.read(after, BATCH_SIZE, timeoutNanos);
+    }
+
+    // Runs under the storage's write lock: it must not throw into the write, which is applied already and still has
+    // to reach the mutation log.
+    private void onChange(Mutation mutation, StorageData element) {
+        try {
+            String json = objectMapper.writeValueAsString(change(mutation, element));
+            changes.append(mutation.type().name(), json);
+        } catch (JsonProcessingException | RuntimeException e) {
+            log.error("Не удалось записать изменение {} в ленту", mutation, e);
+        }
+    }
+
+    private static Change change(Mutation mutation, StorageData element) {
+        return switch (mutation.type()) {
+            case FILM_CREATED, FILM_UPDATED ->
+                    Change.film((Film) element, mutation.type() == Mutation.Type.FILM_CREATED);
+            case LIKE_ADDED, LIKE_DELETED -> Change.like(mutation.id(), mutation.targetId(),
+                    mutation.type() == Mutation.Type.LIKE_ADDED, ((Film) element).getLikes().size());
+            case USER_CREATED, USER_UPDATED ->
+                    Change.user((User) element, mutation.type() == Mutation.Type.USER_CREATED);
+            case FRIEND_ADDED, FRIEND_DELETED -> Change.friendship(mutation.id(), mutation.targetId(),
+                    mutation.type() == Mutation.Type.FRIEND_ADDED);
+        };
+    }
+
+    private void send(SseEmitter emitter, long after) {
+        long position = after;
+        try {
+            while (true) {
+                ChangeLog.Batch batch = changes.read(position, BATCH_SIZE, heartbeatNanos);
+                if (batch.lost()) {
+                    String last = eventId(changes.last());
+                    log.info("Подписчик ленты изменений сброшен: позиция {}, последнее изменение {}",
+                            position == FOREIGN ? "из другого запуска" : position, last);
+                    emitter.send(SseEmitter.event().id(last).name("reset").data(last));
+                    emitter.complete();
+                    return;
+                }
+                if (batch.entries().isEmpty()) {
+                    emitter.send(SseEmitter.event().comment("heartbeat"));
+                }
+                for (ChangeLog.Entry entry : batch.entries()) {
+                    emitter.send(SseEmitter.event().id(eventId(entry.sequence())).name(entry.type())
+                            .data(entry.json()));
+                    position = entry.sequence();
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            // the client went away or the emitter was completed: the container cleans the request up
+        } catch (RuntimeException e) {
+            // the emitter never times out, so a sender that dies without completing it would hang the connection
+            log.error("Ошибка отправки ленты изменений с позиции {}", position, e);
+            emitter.completeWithError(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            senders.remove(Thread.currentThread());
+        }
+    }
+}
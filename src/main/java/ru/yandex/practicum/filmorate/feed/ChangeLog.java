@@ -0,0 +1,70 @@
+package ru.yandex.practicum.filmorate.feed;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+// The latest changes in a fixed ring, numbered from 1. Appending never waits for readers: a reader that falls
+// more than the ring's capacity behind finds its position overwritten and has to start over.
+final class ChangeLog {
+    private final Entry[] ring;
+    private final Lock lock = new ReentrantLock();
+    private final Condition appended = lock.newCondition();
+    // guarded by lock
+    private long last;
+
+    ChangeLog(int capacity) {
+        this.ring = new Entry[capacity];
+    }
+
+    record Entry(long sequence, String type, String json) {
+    }
+
+    // lost: the position is not in the log, because it was overwritten, is from another process or is negative
+    record Batch(List<Entry> entries, boolean lost) {
+    }
+
+    long append(String type, String json) {
+        lock.lock();
+        try {
+            last++;
+            ring[(int) ((last - 1) % ring.length)] = new Entry(last, type, json);
+            appended.signalAll();
+            return last;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long last() {
+        lock.lock();
+        try {
+            return last;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // up to max entries after the given sequence number, waiting up to the timeout for the first one
+    Batch read(long after, int max, long timeoutNanos) throws InterruptedException {
+        lock.lock();
+        try {
+            long wait = timeoutNanos;
+            while (after == last && wait > 0) {
+                wait = appended.awaitNanos(wait);
+            }
+            if (after < 0 || after > last || after < last - ring.length) {
+                return new Batch(List.of(), true);
+            }
+            List<Entry> entries = new ArrayList<>((int) Math.min(max, last - after));
+            for (long sequence = after + 1; sequence <= last && entries.size() < max; sequence++) {
+                entries.add(ring[(int) ((sequence - 1) % ring.length)]);
+            }
+            return new Batch(entries, false);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package ru.yandex.practicum.filmorate.feed;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+// retention: how many latest changes are kept for resuming, i.e. how far a subscriber may fall behind before it
+// is reset; heartbeat: how long an idle stream waits before a keep-alive comment, which also detects gone clients
+@ConfigurationProperties(prefix = "filmorate.feed")
+public record FeedProperties(@DefaultValue("10000") int retention,
+                             @DefaultValue("15s") Duration heartbeat) {
+}
@@ -0,0 +1,63 @@
+package ru.yandex.practicum.filmorate.json;
+
+import com.fasterxml.jackson.databind.ser.FilterProvider;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+// A sparse fieldset from ?fields=id,name,likesCount: the properties written for each film or user. Films and users
+// are serialized through the "fields" property filter, so a property left out is skipped by the bean serializer
+// before its getter is called; likesCount and friendsCount exist only to be asked for in place of the sets.
+public final class Fields {
+    public static final String FILTER = "fields";
+    public static final Set<String> FILM = Set.of("id", "name", "description", "releaseDate", "duration", "likes",
+            "likesCount");
+    public static final Set<String> USER = Set.of("id", "email", "login", "name", "birthday", "friends",
+            "friendsCount");
+    // every property but the counts, as responses were written before projections
+    public static final Fields ALL = new Fields(
+            SimpleBeanPropertyFilter.serializeAllExcept("likesCount", "friendsCount"), "");
+
+    private final FilterProvider filters;
+    private final String key;
+
+    private Fields(SimpleBeanPropertyFilter filter, String key) {
+        this.filters = new SimpleFilterProvider().addFilter(FILTER, filter);
+        this.key = key;
+    }
+
+    // ALL when the parameter is absent
+    public static Fields parse(String fields, Set<String> allowed) {
+        if (fields == null) {
+            return ALL;
+        }
+        Set<String> names = new TreeSet<>();
+        for (String name : fields.split(",")) {
+            String trimmed = name.strip();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            if (!allowed.contains(trimmed)) {
+                throw new ValidationException("неизвестное поле " + trimmed + ", допустимы: "
+                        + String.join(", ", new TreeSet<>(allowed)));
+            }
+            names.add(trimmed);
+        }
+        if (names.isEmpty()) {
+            throw new ValidationException("список полей не может быть пустым");
+        }
+        return new Fields(SimpleBeanPropertyFilter.filterOutAllExcept(names), String.join(",", names));
+    }
+
+    public FilterProvider filters() {
+        return filters;
+    }
+
+    // the sorted field names, empty for ALL: equal projections have equal keys
+    public String key() {
+        return key;
+    }
+}
@@ -0,0 +1,39 @@
+package ru.yandex.practicum.filmorate.json;
+
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+// Puts films and users of the application's ObjectMapper behind the fields filter and makes the counts visible to
+// it. The mapper's own filter is Fields.ALL, so everything written without a projection (responses, snapshots, the
+// change feed) stays as it was; mappers built elsewhere never see the mix-ins.
+@Configuration
+public class JsonConfiguration {
+
+    @Bean
+    public Jackson2ObjectMapperBuilderCustomizer fieldsCustomizer() {
+        return builder -> builder
+                .mixIn(Film.class, FilmFields.class)
+                .mixIn(User.class, UserFields.class)
+                .filters(Fields.ALL.filters());
+    }
+
+    @JsonFilter(Fields.FILTER)
+    private interface FilmFields {
+        @JsonIgnore(false)
+        @JsonProperty("likesCount")
+        int getLikesCount();
+    }
+
+    @JsonFilter(Fields.FILTER)
+    private interface UserFields {
+        @JsonIgnore(false)
+        @JsonProperty("friendsCount")
+        int getFriendsCount();
+    }
+}
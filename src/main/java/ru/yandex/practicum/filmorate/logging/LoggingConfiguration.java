@@ -0,0 +1,23 @@
+package ru.yandex.practicum.filmorate.logging;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.zalando.logbook.HttpRequest;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+@Configuration
+public class LoggingConfiguration {
+
+    // replaces Logbook's default condition; the decision is taken before anything of the exchange is buffered,
+    // so skipped requests cost one random number
+    @Bean
+    public Predicate<HttpRequest> requestCondition(LoggingProperties properties) {
+        double sampleRate = properties.sampleRate();
+        if (sampleRate >= 1.0) {
+            return request -> true;
+        }
+        return request -> ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+}
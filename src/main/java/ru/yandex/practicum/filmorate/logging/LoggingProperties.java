@@ -0,0 +1,9 @@
+package ru.yandex.practicum.filmorate.logging;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+// sampleRate: share of requests passed to Logbook, 1.0 logs every request
+@ConfigurationProperties(prefix = "filmorate.logging")
+public record LoggingProperties(@DefaultValue("1.0") double sampleRate) {
+}
@@ -0,0 +1,28 @@
+package ru.yandex.practicum.filmorate.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+
+// outcome of one item of a batch request; index is the item's position in the request
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BatchResult(int index, int status, Long id, String error) {
+    public static BatchResult ok(int index, int status, Long id) {
+        return new BatchResult(index, status, id, null);
+    }
+
+    public static BatchResult failed(int index, int status, String error) {
+        return new BatchResult(index, status, null, error);
+    }
+
+    // items without a recorded failure succeeded with the given status
+    public static List<BatchResult> complete(BatchResult[] failures, int status, IntFunction<Long> id) {
+        List<BatchResult> results = new ArrayList<>(failures.length);
+        for (int i = 0; i < failures.length; i++) {
+            results.add(failures[i] != null ? failures[i] : ok(i, status, id.apply(i)));
+        }
+        return results;
+    }
+}
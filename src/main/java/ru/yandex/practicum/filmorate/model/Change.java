@@ -0,0 +1,28 @@
+package ru.yandex.practicum.filmorate.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+// one entry of the change feed: the film or user as stored right after a create or update, the pair of ids of a
+// like or friendship; its sequence number is the SSE event id
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record Change(Type type, Long filmId, Long userId, Long friendId, Integer likes, Film film, User user) {
+    public enum Type {
+        FILM_CREATED, FILM_UPDATED, LIKE_ADDED, LIKE_DELETED, USER_CREATED, USER_UPDATED, FRIEND_ADDED, FRIEND_DELETED
+    }
+
+    public static Change film(Film film, boolean created) {
+        return new Change(created ? Type.FILM_CREATED : Type.FILM_UPDATED, film.getId(), null, null, null, film, null);
+    }
+
+    public static Change like(long filmId, long userId, boolean added, int likes) {
+        return new Change(added ? Type.LIKE_ADDED : Type.LIKE_DELETED, filmId, userId, null, likes, null, null);
+    }
+
+    public static Change user(User user, boolean created) {
+        return new Change(created ? Type.USER_CREATED : Type.USER_UPDATED, null, user.getId(), null, null, null, user);
+    }
+
+    public static Change friendship(long userId, long friendId, boolean added) {
+        return new Change(added ? Type.FRIEND_ADDED : Type.FRIEND_DELETED, null, userId, friendId, null, null, null);
+    }
+}
@@ -1,12 +1,12 @@
 package ru.yandex.practicum.filmorate.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.*;
+import ru.yandex.practicum.filmorate.util.LongHashSet;
 
 import java.time.Duration;
 import java.time.LocalDate;
-import java.util.HashSet;
-import java.util.Set;
 
 @Data
 @AllArgsConstructor
@@ -19,10 +19,17 @@ public class Film extends StorageData {
     private String description;
     private LocalDate releaseDate;
     private Duration duration;
-    private Set<Long> likes = new HashSet<>();
+    @ToString.Exclude
+    private LongHashSet likes = new LongHashSet();
 
     @JsonProperty("duration")
     public long getDurationTimeSeconds() {
         return duration.getSeconds();
     }
+
+    // for projections only, see JsonConfiguration
+    @JsonIgnore
+    public int getLikesCount() {
+        return likes.size();
+    }
 }
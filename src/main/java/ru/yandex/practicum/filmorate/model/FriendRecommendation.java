@@ -0,0 +1,4 @@
+package ru.yandex.practicum.filmorate.model;
+
+public record FriendRecommendation(User user, int mutualFriends) {
+}
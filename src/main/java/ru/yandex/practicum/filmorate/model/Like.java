@@ -0,0 +1,4 @@
+package ru.yandex.practicum.filmorate.model;
+
+public record Like(long filmId, long userId) {
+}
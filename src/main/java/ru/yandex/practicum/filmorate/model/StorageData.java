@@ -1,8 +1,22 @@
 package ru.yandex.practicum.filmorate.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
 
+// no state of its own in equals, so the subclasses' callSuper = true leaves them equal by id: storages that
+// read rows (jdbc) return a new instance on every lookup
 @NoArgsConstructor
+@EqualsAndHashCode
 public abstract class StorageData {
+   // storage version of the last change to this element, 0 until it is written; never serialized
+   @EqualsAndHashCode.Exclude
+   @JsonIgnore
+   @Getter
+   @Setter
+   private volatile long version;
+
    public abstract Long getId();
 }
@@ -1,10 +1,10 @@
 package ru.yandex.practicum.filmorate.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.*;
+import ru.yandex.practicum.filmorate.util.LongHashSet;
 
 import java.time.LocalDate;
-import java.util.HashSet;
-import java.util.Set;
 
 @Data
 @EqualsAndHashCode(of = {"id"},callSuper = true)
@@ -17,5 +17,12 @@ public class User extends StorageData {
     private String login;
     private String name;
     private LocalDate birthday;
-    private Set<Long> friends = new HashSet<>();
+    @ToString.Exclude
+    private LongHashSet friends = new LongHashSet();
+
+    // for projections only, see JsonConfiguration
+    @JsonIgnore
+    public int getFriendsCount() {
+        return friends.size();
+    }
 }
@@ -0,0 +1,92 @@
+package ru.yandex.practicum.filmorate.recommendation;
+
+import java.util.Arrays;
+
+// Like counts of the last n time buckets of one window for many films at once: a ring of n count columns indexed
+// by film slot, plus the running sum of each slot. Buckets are numbered by time / width and the whole ring moves
+// to a later bucket together, clearing the columns that fell out of the window, so every column is cleared once
+// per bucket however many films there are, and a query reads one dense array of sums.
+final class BucketRing {
+    private final long bucketMillis;
+    private final int[][] counts;
+    private int[] totals;
+    private long head;
+
+    BucketRing(int buckets, long bucketMillis, int capacity) {
+        this.bucketMillis = bucketMillis;
+        this.counts = new int[buckets][capacity];
+        this.totals = new int[capacity];
+    }
+
+    void add(long now, int slot) {
+        advance(now);
+        counts[(int) (head % counts.length)][slot]++;
+        totals[slot]++;
+    }
+
+    // takes one like back from the latest bucket that counts any for the slot, so no count drops below zero;
+    // nothing if the window has none left
+    void remove(long now, int slot) {
+        advance(now);
+        for (long bucket = head; bucket > head - counts.length; bucket--) {
+            int[] column = counts[(int) Math.floorMod(bucket, (long) counts.length)];
+            if (column[slot] > 0) {
+                column[slot]--;
+                totals[slot]--;
+                return;
+            }
+        }
+    }
+
+    // sums of all slots as of now
+    int[] totals(long now) {
+        advance(now);
+        return totals;
+    }
+
+    boolean isEmpty(long now, int slot) {
+        advance(now);
+        for (int[] column : counts) {
+            if (column[slot] != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    void clear(int slot) {
+        for (int[] column : counts) {
+            column[slot] = 0;
+        }
+        totals[slot] = 0;
+    }
+
+    void grow(int capacity) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = Arrays.copyOf(counts[i], capacity);
+        }
+        totals = Arrays.copyOf(totals, capacity);
+    }
+
+    private void advance(long now) {
+        long bucket = now / bucketMillis;
+        if (bucket <= head) {
+            return;
+        }
+        if (bucket - head >= counts.length) {
+            for (int[] column : counts) {
+                Arrays.fill(column, 0);
+            }
+            Arrays.fill(totals, 0);
+        } else {
+            for (long b = head + 1; b <= bucket; b++) {
+                int[] column = counts[(int) (b % counts.length)];
+                for (int slot = 0; slot < column.length; slot++) {
+                    totals[slot] -= column[slot];
+                }
+                Arrays.fill(column, 0);
+            }
+        }
+        head = bucket;
+    }
+}
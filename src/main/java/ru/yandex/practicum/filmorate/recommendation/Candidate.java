@@ -0,0 +1,5 @@
+package ru.yandex.practicum.filmorate.recommendation;
+
+// a recommended entity id with its score, e.g. the number of mutual friends
+public record Candidate(long id, int score) {
+}
@@ -0,0 +1,345 @@
+package ru.yandex.practicum.filmorate.recommendation;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.event.FriendshipChangedEvent;
+import ru.yandex.practicum.filmorate.event.UserChangedEvent;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.util.PersistentLongMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.IntStream;
+
+// Friends-of-friends ranking on an immutable copy of the friend graph: a CSR base plus the rows of the users changed
+// since it was built. The first query builds it from the storage. From then on friendship and user events queue the
+// users they touched, and a background pass at most once per rebuild-interval re-reads just those users and
+// publishes a new copy with their rows replaced. A row is read from the storage when applied, so events may arrive
+// in any order and a replayed one changes nothing. Once the changed rows reach an eighth of the graph they are merged
+// into a new base in memory. The storage is read whole again only if a pass fails, or if so many users are queued
+// that one full read is cheaper than reading them one by one. Queries never wait for a pass and may lag behind the
+// storage by about the interval.
+@Slf4j
+@Component
+public class FriendGraph {
+    // below this many paths the traversal stays on the calling thread, forking costs more than it saves
+    static final int PARALLEL_THRESHOLD = 1 << 16;
+    // below this many rows neither a full read nor a new base is worth it
+    private static final int MIN_REBUILD_ROWS = 1024;
+
+    private final UserStorage userStorage;
+    private final long rebuildIntervalNanos;
+    private final int maxPaths;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("friend-graph").daemon().factory());
+    private final AtomicBoolean updateScheduled = new AtomicBoolean();
+    private final Set<Long> changedUsers = ConcurrentHashMap.newKeySet();
+    private final Lock buildLock = new ReentrantLock();
+    // set by the first query: until then nobody needs the graph and changes are not queued
+    private volatile boolean used;
+    private volatile Graph graph;
+    private volatile long updatedAt;
+    // guarded by buildLock
+    private boolean reloadNeeded;
+
+    public FriendGraph(UserStorage userStorage, RecommendationProperties properties) {
+        this.userStorage = userStorage;
+        this.rebuildIntervalNanos = properties.rebuildInterval().toNanos();
+        this.maxPaths = properties.maxPaths();
+        this.updatedAt = System.nanoTime() - rebuildIntervalNanos;
+    }
+
+    // second-degree contacts of the user by number of mutual friends, then by id
+    public List<Candidate> recommend(long userId, int count) {
+        return graph().recommend(userId, count, maxPaths);
+    }
+
+    @EventListener
+    public void onFriendshipChanged(FriendshipChangedEvent event) {
+        changed(event.userId(), event.friendId());
+    }
+
+    // an update replaces the whole friend list, a new user is a new vertex
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        changed(event.userId(), event.userId());
+    }
+
+    @PreDestroy
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private Graph graph() {
+        Graph current = graph;
+        if (current != null) {
+            return current;
+        }
+        used = true;
+        buildLock.lock();
+        try {
+            if (graph == null) {
+                reload();
+            }
+            return graph;
+        } finally {
+            buildLock.unlock();
+        }
+    }
+
+    private void changed(long userId, long otherId) {
+        if (!used) {
+            return;
+        }
+        changedUsers.add(userId);
+        changedUsers.add(otherId);
+        if (updateScheduled.compareAndSet(false, true)) {
+            long delay = Math.max(0, updatedAt + rebuildIntervalNanos - System.nanoTime());
+            scheduler.schedule(this::scheduledUpdate, delay, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void scheduledUpdate() {
+        // cleared before taking the queued users: a change made during the pass schedules the next one
+        updateScheduled.set(false);
+        buildLock.lock();
+        try {
+            update();
+        } catch (RuntimeException e) {
+            reloadNeeded = true;
+            log.error("Не удалось обновить граф дружбы, он будет перестроен целиком", e);
+        } finally {
+            buildLock.unlock();
+        }
+    }
+
+    // the first query reads the whole storage anyway, so there is nothing to update before it
+    private void update() {
+        Graph current = graph;
+        if (current == null) {
+            return;
+        }
+        if (reloadNeeded || changedUsers.size() > Math.max(MIN_REBUILD_ROWS, current.vertices() / 8)) {
+            reload();
+            return;
+        }
+        long start = System.nanoTime();
+        long[] ids = new long[changedUsers.size()];
+        int n = 0;
+        for (Iterator<Long> queued = changedUsers.iterator(); queued.hasNext() && n < ids.length; ) {
+            ids[n++] = queued.next();
+            queued.remove();
+        }
+        Graph next = current.with(userStorage.getElements(Arrays.copyOf(ids, n)));
+        if (next.changedRows() > Math.max(MIN_REBUILD_ROWS, next.vertices() / 8)) {
+            next = next.compact();
+        }
+        graph = next;
+        updatedAt = start;
+        log.debug("Граф дружбы обновлён за {} мс: {} пользователей",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), n);
+    }
+
+    // the queue is emptied first: a user changed while the storage is read is queued again and re-read later
+    private void reload() {
+        long start = System.nanoTime();
+        changedUsers.clear();
+        Csr base = Csr.of(userStorage.getAll().stream()
+                .map(user -> new Row(user.getId(), user.getFriends().toLongArray()))
+                .toList());
+        graph = Graph.of(base);
+        reloadNeeded = false;
+        updatedAt = start;
+        log.debug("Граф дружбы перестроен за {} мс: {} пользователей, {} связей",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), base.ids.length, base.targets.length);
+    }
+
+    // one user's friend ids, as read from the storage or from a graph being compacted
+    private record Row(long id, long[] friendIds) {
+    }
+
+    // The base plus the rows replaced since it was built, by vertex. Users the base does not know get the next free
+    // vertices. Every change returns a new graph sharing the unchanged maps with this one.
+    private record Graph(Csr base, PersistentLongMap<int[]> rows, PersistentLongMap<Long> addedIds,
+                         PersistentLongMap<Integer> addedVertices, int vertices) {
+        static Graph of(Csr base) {
+            return new Graph(base, PersistentLongMap.empty(), PersistentLongMap.empty(), PersistentLongMap.empty(),
+                    base.ids.length);
+        }
+
+        int changedRows() {
+            return rows.size();
+        }
+
+        Graph with(Collection<User> users) {
+            Graph next = this;
+            for (User user : users) {
+                next = next.withVertex(user.getId());
+                // one copy of the friend list: a live one may grow between reading its size and its ids
+                long[] friendIds = user.getFriends().toLongArray();
+                int[] row = new int[friendIds.length];
+                for (int i = 0; i < friendIds.length; i++) {
+                    next = next.withVertex(friendIds[i]);
+                    row[i] = next.vertex(friendIds[i]);
+                }
+                Arrays.sort(row);
+                next = new Graph(next.base, next.rows.put(next.vertex(user.getId()), row), next.addedIds,
+                        next.addedVertices, next.vertices);
+            }
+            return next;
+        }
+
+        // a new base with every row of this graph, in id order
+        Graph compact() {
+            List<Row> all = new ArrayList<>(vertices);
+            for (int v = 0; v < vertices; v++) {
+                int[] row = row(v);
+                long[] friendIds = new long[row.length];
+                for (int i = 0; i < row.length; i++) {
+                    friendIds[i] = id(row[i]);
+                }
+                all.add(new Row(id(v), friendIds));
+            }
+            return of(Csr.of(all));
+        }
+
+        List<Candidate> recommend(long userId, int count, int maxPaths) {
+            int v = vertex(userId);
+            // a user created after the graph was last updated has no friends in it yet
+            if (v < 0) {
+                return List.of();
+            }
+            int[] friends = row(v);
+            return top(reached(PathBudget.select(friends, this::degree, maxPaths)), v, friends, count);
+        }
+
+        private Graph withVertex(long id) {
+            if (vertex(id) >= 0) {
+                return this;
+            }
+            return new Graph(base, rows, addedIds.put(vertices, id), addedVertices.put(id, vertices), vertices + 1);
+        }
+
+        private int vertex(long id) {
+            int v = Arrays.binarySearch(base.ids, id);
+            if (v >= 0) {
+                return v;
+            }
+            Integer added = addedVertices.get(id);
+            return added == null ? -1 : added;
+        }
+
+        private long id(int v) {
+            return v < base.ids.length ? base.ids[v] : addedIds.get(v);
+        }
+
+        // read-only
+        private int[] row(int v) {
+            int[] replaced = rows.get(v);
+            if (replaced != null) {
+                return replaced;
+            }
+            return v < base.ids.length ? Arrays.copyOfRange(base.targets, base.offsets[v], base.offsets[v + 1])
+                    : new int[0];
+        }
+
+        // The far ends of all two-step paths through via, sorted, so every candidate forms one run of its
+        // mutual friend count. Large walks copy the adjacency rows and sort on the fork-join pool.
+        private int[] reached(int[] via) {
+            int[] starts = new int[via.length + 1];
+            for (int i = 0; i < via.length; i++) {
+                starts[i + 1] = starts[i] + degree(via[i]);
+            }
+            int[] reached = new int[starts[via.length]];
+            if (reached.length < PARALLEL_THRESHOLD) {
+                for (int i = 0; i < via.length; i++) {
+                    copyRow(via[i], reached, starts[i]);
+                }
+                Arrays.sort(reached);
+            } else {
+                IntStream.range(0, via.length).parallel().forEach(i -> copyRow(via[i], reached, starts[i]));
+                Arrays.parallelSort(reached);
+            }
+            return reached;
+        }
+
+        // runs of the sorted path ends, without the user and their friends
+        private List<Candidate> top(int[] reached, int self, int[] friends, int count) {
+            TopK best = new TopK(count);
+            int i = 0;
+            while (i < reached.length) {
+                int w = reached[i];
+                int j = i + 1;
+                while (j < reached.length && reached[j] == w) {
+                    j++;
+                }
+                if (w != self && Arrays.binarySearch(friends, w) < 0) {
+                    best.offer(j - i, w);
+                }
+                i = j;
+            }
+            return best.drain(this::id);
+        }
+
+        private int degree(int v) {
+            int[] replaced = rows.get(v);
+            if (replaced != null) {
+                return replaced.length;
+            }
+            return v < base.ids.length ? base.offsets[v + 1] - base.offsets[v] : 0;
+        }
+
+        private void copyRow(int v, int[] to, int at) {
+            int[] replaced = rows.get(v);
+            if (replaced != null) {
+                System.arraycopy(replaced, 0, to, at, replaced.length);
+            } else if (v < base.ids.length) {
+                System.arraycopy(base.targets, base.offsets[v], to, at, degree(v));
+            }
+        }
+    }
+
+    // Compressed sparse rows: the friends of user ids[v] are the vertices targets[offsets[v]..offsets[v + 1]),
+    // sorted. Vertices are positions in the sorted id array, so n users with m friend links take 12n + 4m bytes.
+    private record Csr(long[] ids, int[] offsets, int[] targets) {
+        static Csr of(Collection<Row> rows) {
+            List<Row> sorted = new ArrayList<>(rows);
+            sorted.sort(Comparator.comparingLong(Row::id));
+            long[] ids = sorted.stream().mapToLong(Row::id).toArray();
+            int[] offsets = new int[ids.length + 1];
+            int[] targets = new int[Math.max(16, ids.length)];
+            int edges = 0;
+            for (int v = 0; v < ids.length; v++) {
+                for (long friendId : sorted.get(v).friendIds()) {
+                    int w = Arrays.binarySearch(ids, friendId);
+                    // a friend created after the user list was read
+                    if (w < 0) {
+                        continue;
+                    }
+                    if (edges == targets.length) {
+                        targets = Arrays.copyOf(targets, edges * 2);
+                    }
+                    targets[edges++] = w;
+                }
+                Arrays.sort(targets, offsets[v], edges);
+                offsets[v + 1] = edges;
+            }
+            return new Csr(ids, offsets, Arrays.copyOf(targets, edges));
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package ru.yandex.practicum.filmorate.recommendation;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.event.FilmChangedEvent;
+import ru.yandex.practicum.filmorate.event.LikeChangedEvent;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.util.IntBitmap;
+import ru.yandex.practicum.filmorate.util.LazyIndex;
+import ru.yandex.practicum.filmorate.util.Utils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// User-based collaborative filtering over the likes matrix, kept as two bitmap indexes: films liked by each user and
+// users who liked each film. The first query loads them from the storage page by page, so besides the bitmaps only
+// one page of films is held at a time; from then on every like, unlike and film update changes them in place, and a
+// query works on the asking user's rows only.
+@Slf4j
+@Component
+public class LikeMatrix {
+    private static final int PAGE_SIZE = 1000;
+
+    private final FilmStorage filmStorage;
+    private final int maxPaths;
+    private final int neighbours;
+    private final LazyIndex<Index> index;
+
+    public LikeMatrix(FilmStorage filmStorage, RecommendationProperties properties) {
+        this.filmStorage = filmStorage;
+        this.maxPaths = properties.maxPaths();
+        this.neighbours = properties.neighbours();
+        this.index = new LazyIndex<>(this::load);
+    }
+
+    // films liked by the users with the most likes in common with this one and not liked by them, scored by the
+    // sum of those users' overlaps
+    public List<Candidate> recommend(long userId, int count) {
+        if (!Utils.isDenseId(userId)) {
+            return List.of();
+        }
+        return index.read(likes -> likes.recommend((int) userId, count, neighbours, maxPaths));
+    }
+
+    // adding or removing a like twice leaves the same bitmaps, so the change is safe to replay after a load
+    @EventListener
+    public void onLikeChanged(LikeChangedEvent event) {
+        index.change(likes -> likes.like(event.filmId(), event.userId(), event.added()));
+    }
+
+    // an update replaces the film's whole like set; it is read when applied, so a replayed change is never older
+    // than the storage
+    @EventListener
+    public void onFilmChanged(FilmChangedEvent event) {
+        if (!event.created() || event.likes() > 0) {
+            index.change(likes -> filmStorage.getElement(event.filmId())
+                    .ifPresent(film -> likes.replace(film.getId(), film.getLikes().toLongArray())));
+        }
+    }
+
+    private Index load() {
+        long start = System.nanoTime();
+        Index loaded = new Index();
+        long after = 0;
+        List<Film> page;
+        do {
+            page = filmStorage.getPage(after, PAGE_SIZE);
+            for (Film film : page) {
+                loaded.replace(film.getId(), film.getLikes().toLongArray());
+            }
+            if (!page.isEmpty()) {
+                after = page.getLast().getId();
+            }
+        } while (page.size() == PAGE_SIZE);
+        log.debug("Матрица лайков загружена за {} мс: {} лайков",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), loaded.likes);
+        return loaded;
+    }
+
+    // Rows are indexed by the entity id itself: ids come from a sequence, so the arrays stay dense. A like with any
+    // other id is skipped rather than failing the write that published it or every later load.
+    private static final class Index {
+        private static final IntBitmap EMPTY = new IntBitmap();
+
+        private IntBitmap[] filmsByUser = new IntBitmap[16];
+        private IntBitmap[] usersByFilm = new IntBitmap[16];
+        private long likes;
+
+        void like(long filmId, long userId, boolean added) {
+            if (!Utils.isDenseId(filmId) || !Utils.isDenseId(userId)) {
+                log.warn("Лайк пользователя {} фильму {} пропущен в матрице лайков: id вне диапазона", userId, filmId);
+                return;
+            }
+            int film = (int) filmId;
+            int user = (int) userId;
+            if (added) {
+                usersByFilm = grow(usersByFilm, film);
+                filmsByUser = grow(filmsByUser, user);
+                if (usersByFilm[film].add(user)) {
+                    filmsByUser[user].add(film);
+                    likes++;
+                }
+            } else if (likers(film).remove(user)) {
+                films(user).remove(film);
+                likes--;
+            }
+        }
+
+        void replace(long filmId, long[] userIds) {
+            if (!Utils.isDenseId(filmId)) {
+                log.warn("Фильм {} пропущен в матрице лайков: id вне диапазона", filmId);
+                return;
+            }
+            int film = (int) filmId;
+            for (int user : likers(film).toArray()) {
+                like(film, user, false);
+            }
+            for (long userId : userIds) {
+                like(film, userId, true);
+            }
+        }
+
+        List<Candidate> recommend(int user, int count, int neighbourCount, int maxPaths) {
+            IntBitmap liked = films(user);
+            if (liked.isEmpty()) {
+                return List.of();
+            }
+            return scoreFilms(liked, similarUsers(user, liked, neighbourCount, maxPaths), count, maxPaths);
+        }
+
+        // Users who liked the same films, walked through the user's least liked films first. The walk may be cut
+        // by maxPaths, so its counts only pick a shortlist; the overlaps that rank it are exact bitmap
+        // intersections.
+        private List<Candidate> similarUsers(int user, IntBitmap liked, int neighbourCount, int maxPaths) {
+            int[] via = PathBudget.select(liked.toArray(), film -> likers(film).cardinality(), maxPaths);
+            int total = 0;
+            for (int film : via) {
+                total += likers(film).cardinality();
+            }
+            int[] reached = new int[total];
+            int[] next = {0};
+            for (int film : via) {
+                likers(film).forEach(other -> reached[next[0]++] = other);
+            }
+            Arrays.sort(reached);
+
+            TopK shortlist = new TopK(neighbourCount * 4);
+            int i = 0;
+            while (i < reached.length) {
+                int j = i + 1;
+                while (j < reached.length && reached[j] == reached[i]) {
+                    j++;
+                }
+                if (reached[i] != user) {
+                    shortlist.offer(j - i, reached[i]);
+                }
+                i = j;
+            }
+            TopK best = new TopK(neighbourCount);
+            for (Candidate candidate : shortlist.drain(other -> other)) {
+                int other = (int) candidate.id();
+                best.offer(liked.andCardinality(films(other)), other);
+            }
+            return best.drain(other -> other);
+        }
+
+        // Films of the similar users that the user has not liked, each scored by the summed overlap of its likers.
+        // The (film, overlap) pairs are sorted so that each film forms one run; at most maxPaths of them are taken,
+        // from the most similar users first.
+        private List<Candidate> scoreFilms(IntBitmap liked, List<Candidate> similar, int count, int maxPaths) {
+            long[] pairs = new long[16];
+            int n = 0;
+            for (Candidate other : similar) {
+                for (int film : films((int) other.id()).toArray()) {
+                    if (n == maxPaths) {
+                        break;
+                    }
+                    if (!liked.contains(film)) {
+                        if (n == pairs.length) {
+                            pairs = Arrays.copyOf(pairs, (int) Math.min((long) n * 2, maxPaths));
+                        }
+                        pairs[n++] = (long) film << 32 | other.score();
+                    }
+                }
+            }
+            Arrays.sort(pairs, 0, n);
+
+            TopK best = new TopK(count);
+            int i = 0;
+            while (i < n) {
+                int film = (int) (pairs[i] >>> 32);
+                long score = 0;
+                while (i < n && (int) (pairs[i] >>> 32) == film) {
+                    score += (int) pairs[i++];
+                }
+                best.offer((int) Math.min(score, Integer.MAX_VALUE), film);
+            }
+            return best.drain(film -> film);
+        }
+
+        // read-only rows: a missing one is the shared empty bitmap
+        private IntBitmap films(int user) {
+            return user < filmsByUser.length && filmsByUser[user] != null ? filmsByUser[user] : EMPTY;
+        }
+
+        private IntBitmap likers(int film) {
+            return film < usersByFilm.length && usersByFilm[film] != null ? usersByFilm[film] : EMPTY;
+        }
+
+        private static IntBitmap[] grow(IntBitmap[] rows, int id) {
+            IntBitmap[] grown = id < rows.length ? rows : Arrays.copyOf(rows, Math.max(id + 1, rows.length * 2));
+            if (grown[id] == null) {
+                grown[id] = new IntBitmap();
+            }
+            return grown;
+        }
+    }
+}
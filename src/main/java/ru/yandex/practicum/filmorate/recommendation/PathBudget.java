@@ -0,0 +1,55 @@
+package ru.yandex.practicum.filmorate.recommendation;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+final class PathBudget {
+
+    // The items whose neighbours are walked, in their original order: those with a neighbour besides the asking
+    // one (cost above 1), and if that is more than maxPaths paths, the cheapest first. An item with many neighbours
+    // costs the most to walk and is the weakest hint per match it adds. The cost cutoff comes from a histogram, so
+    // the choice stays linear in the number of items.
+    static int[] select(int[] items, IntUnaryOperator cost, int maxPaths) {
+        long paths = 0;
+        int maxCost = 0;
+        for (int item : items) {
+            int c = cost.applyAsInt(item);
+            if (c > 1) {
+                paths += c;
+                maxCost = Math.max(maxCost, c);
+            }
+        }
+        int cutoff = maxCost;
+        int atCutoff = Integer.MAX_VALUE;
+        if (paths > maxPaths) {
+            int[] histogram = new int[Math.min(maxCost, maxPaths) + 1];
+            for (int item : items) {
+                int c = cost.applyAsInt(item);
+                if (c > 1 && c <= maxPaths) {
+                    histogram[c]++;
+                }
+            }
+            // every item below the cutoff cost fits, atCutoff of those with exactly that cost too
+            paths = 0;
+            cutoff = 2;
+            while (cutoff < histogram.length && paths + (long) histogram[cutoff] * cutoff <= maxPaths) {
+                paths += (long) histogram[cutoff] * cutoff;
+                cutoff++;
+            }
+            atCutoff = cutoff < histogram.length ? (int) ((maxPaths - paths) / cutoff) : 0;
+        }
+        int[] selected = new int[items.length];
+        int n = 0;
+        for (int item : items) {
+            int c = cost.applyAsInt(item);
+            if (c > 1 && (c < cutoff || c == cutoff && atCutoff-- > 0)) {
+                selected[n++] = item;
+            }
+        }
+        return n == items.length ? selected : Arrays.copyOf(selected, n);
+    }
+}
@@ -0,0 +1,15 @@
+package ru.yandex.practicum.filmorate.recommendation;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+// rebuildInterval: how often at most the friend graph takes in the changes made since, i.e. how stale it can get;
+// maxPaths: friend-of-friend or co-liker paths one query may walk, which bounds its latency for users with huge
+// friend or like lists; neighbours: how many most similar users the film recommendations come from
+@ConfigurationProperties(prefix = "filmorate.recommendations")
+public record RecommendationProperties(@DefaultValue("1s") Duration rebuildInterval,
+                                       @DefaultValue("1000000") int maxPaths,
+                                       @DefaultValue("50") int neighbours) {
+}
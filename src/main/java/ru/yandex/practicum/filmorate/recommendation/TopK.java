@@ -0,0 +1,75 @@
+package ru.yandex.practicum.filmorate.recommendation;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntToLongFunction;
+
+// The k best (score, index) pairs by higher score, then lower index. Both are packed into one long, kept in a binary
+// min-heap on a long array, so the heap compares primitives, boxes nothing and holds only k keys however many pairs
+// are offered. The array grows with the keys held, so a large k costs nothing until it is filled.
+final class TopK {
+    private final int k;
+    private long[] heap;
+    private int size;
+
+    TopK(int k) {
+        this.k = k;
+        this.heap = new long[Math.max(0, Math.min(k, 16))];
+    }
+
+    void offer(int score, int index) {
+        long key = (long) score << 32 | (Integer.MAX_VALUE - index);
+        if (size < k) {
+            if (size == heap.length) {
+                heap = Arrays.copyOf(heap, (int) Math.min(k, 2L * size));
+            }
+            heap[size] = key;
+            siftUp(size++);
+        } else if (k > 0 && key > heap[0]) {
+            heap[0] = key;
+            siftDown(0);
+        }
+    }
+
+    // best first; id maps an index to the entity id
+    List<Candidate> drain(IntToLongFunction id) {
+        Candidate[] result = new Candidate[size];
+        while (size > 0) {
+            long key = heap[0];
+            heap[0] = heap[--size];
+            siftDown(0);
+            result[size] = new Candidate(id.applyAsLong(Integer.MAX_VALUE - (int) key), (int) (key >>> 32));
+        }
+        return List.of(result);
+    }
+
+    private void siftUp(int i) {
+        long key = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent] <= key) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = key;
+    }
+
+    private void siftDown(int i) {
+        long key = heap[i];
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (key <= heap[child]) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = key;
+    }
+}
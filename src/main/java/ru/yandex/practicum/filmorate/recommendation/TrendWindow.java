@@ -0,0 +1,39 @@
+package ru.yandex.practicum.filmorate.recommendation;
+
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+// Trending windows and their buckets. A window counts whole buckets, the current one included, so it may reach
+// back up to one bucket further than its length: 5 minutes for an hour, an hour for a day, 6 hours for a week.
+public enum TrendWindow {
+    HOUR("1h", Duration.ofHours(1), 12),
+    DAY("24h", Duration.ofDays(1), 24),
+    WEEK("7d", Duration.ofDays(7), 28);
+
+    private final String name;
+    private final int buckets;
+    private final long bucketMillis;
+
+    TrendWindow(String name, Duration length, int buckets) {
+        this.name = name;
+        this.buckets = buckets;
+        this.bucketMillis = length.toMillis() / buckets;
+    }
+
+    public static TrendWindow of(String name) {
+        return Arrays.stream(values())
+                .filter(window -> window.name.equals(name))
+                .findFirst()
+                .orElseThrow(() -> new ValidationException("окно должно быть одним из: 1h, 24h, 7d"));
+    }
+
+    int buckets() {
+        return buckets;
+    }
+
+    long bucketMillis() {
+        return bucketMillis;
+    }
+}
@@ -0,0 +1,123 @@
+package ru.yandex.practicum.filmorate.recommendation;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.event.LikeChangedEvent;
+import ru.yandex.practicum.filmorate.util.Utils;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+// Likes per film over the trending windows, counted from like events as they happen. Each film liked within the
+// last week holds a slot in one bucket ring per window, so a like costs three increments and a query one scan of a
+// dense array, and memory depends on the number of recently liked films, not on the number of likes. Like times are
+// neither stored nor kept here, so taking a like back is approximate: it is taken from the latest bucket of each
+// window that still counts a like of the film, as if the latest like were the one taken back, and from none if the
+// window has no like of the film left. Counts never go below zero, but taking back an older like leaves the newer
+// one counted in the older bucket, so it leaves the window early. The windows start empty after a restart.
+@Slf4j
+@Component
+public class TrendingLikes {
+    private static final TrendWindow[] WINDOWS = TrendWindow.values();
+    static final int INITIAL_CAPACITY = 1024;
+
+    private final LongSupplier clock;
+    // guarded by this
+    private final BucketRing[] rings = new BucketRing[WINDOWS.length];
+    private final Map<Long, Integer> slots = new HashMap<>();
+    private long[] filmIds = new long[INITIAL_CAPACITY];
+    // the slots below used are taken, except the first freeCount of free
+    private int[] free = new int[0];
+    private int freeCount;
+    private int used;
+
+    public TrendingLikes() {
+        this(System::currentTimeMillis);
+    }
+
+    TrendingLikes(LongSupplier clock) {
+        this.clock = clock;
+        for (TrendWindow window : WINDOWS) {
+            rings[window.ordinal()] = new BucketRing(window.buckets(), window.bucketMillis(), INITIAL_CAPACITY);
+        }
+    }
+
+    @EventListener
+    public synchronized void onLikeChanged(LikeChangedEvent event) {
+        if (!Utils.isDenseId(event.filmId())) {
+            log.warn("Лайк фильму {} пропущен в трендах: id вне диапазона", event.filmId());
+            return;
+        }
+        long now = clock.getAsLong();
+        Integer slot = slots.get(event.filmId());
+        if (event.added()) {
+            if (slot == null) {
+                slot = allocate(now);
+                slots.put(event.filmId(), slot);
+                filmIds[slot] = event.filmId();
+            }
+            for (BucketRing ring : rings) {
+                ring.add(now, slot);
+            }
+        } else if (slot != null) {
+            for (BucketRing ring : rings) {
+                ring.remove(now, slot);
+            }
+        }
+    }
+
+    // films with the most likes in the window, then lower ids
+    public synchronized List<Candidate> top(TrendWindow window, int count) {
+        int[] totals = rings[window.ordinal()].totals(clock.getAsLong());
+        TopK best = new TopK(count);
+        for (int slot = 0; slot < used; slot++) {
+            if (totals[slot] > 0) {
+                best.offer(totals[slot], (int) filmIds[slot]);
+            }
+        }
+        return best.drain(film -> film);
+    }
+
+    synchronized int size() {
+        return slots.size();
+    }
+
+    synchronized int capacity() {
+        return filmIds.length;
+    }
+
+    // A free slot, else a new one. When the slots run out, the films not liked for a week give theirs back first;
+    // the capacity doubles only if that frees less than half of it, so it stays within twice the recently liked
+    // films and each sweep is paid for by the slots taken since the previous one.
+    private int allocate(long now) {
+        if (freeCount == 0 && used == filmIds.length) {
+            sweep(now);
+            if (freeCount < filmIds.length / 2) {
+                int capacity = filmIds.length * 2;
+                filmIds = Arrays.copyOf(filmIds, capacity);
+                for (BucketRing ring : rings) {
+                    ring.grow(capacity);
+                }
+            }
+        }
+        return freeCount > 0 ? free[--freeCount] : used++;
+    }
+
+    private void sweep(long now) {
+        BucketRing week = rings[TrendWindow.WEEK.ordinal()];
+        free = new int[used];
+        for (int slot = 0; slot < used; slot++) {
+            if (week.isEmpty(now, slot)) {
+                slots.remove(filmIds[slot]);
+                for (BucketRing ring : rings) {
+                    ring.clear(slot);
+                }
+                free[freeCount++] = slot;
+            }
+        }
+    }
+}
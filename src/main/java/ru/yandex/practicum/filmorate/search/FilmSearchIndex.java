@@ -0,0 +1,254 @@
+package ru.yandex.practicum.filmorate.search;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.event.FilmChangedEvent;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.util.LazyIndex;
+import ru.yandex.practicum.filmorate.util.Utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+// Inverted index over film names and descriptions: every word maps to the sorted ids of the films containing it,
+// and every trigram of a word to the sorted ids of the words containing it. The first search loads it from the
+// storage page by page; after that each film created or updated through FilmService is re-indexed in place. A search
+// holds the index lock only to look its tokens up in the dictionary and take views of the postings they lead to;
+// setting the film bits and ranking them, the part that grows with the number of films, runs after the lock is
+// released, so re-indexing waits for lookups only.
+@Slf4j
+@Component
+public class FilmSearchIndex {
+    private static final int GRAM = 3;
+    private static final int PAGE_SIZE = 1000;
+
+    private final FilmStorage filmStorage;
+    private final LazyIndex<Index> index;
+
+    public FilmSearchIndex(FilmStorage filmStorage) {
+        this.filmStorage = filmStorage;
+        this.index = new LazyIndex<>(this::load);
+    }
+
+    // Ids of the films that match every query token in their name or description: a token shorter than three
+    // characters matches the words it starts, a longer one the words it is part of. Films matching more tokens as
+    // whole words come first, then lower ids.
+    public List<Long> search(String query, int count) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty()) {
+            return List.of();
+        }
+        return index.read(terms -> terms.lookup(tokens)).rank(count);
+    }
+
+    // re-indexing reads the film when applied, so it is safe to replay after a load
+    @EventListener
+    public void onFilmChanged(FilmChangedEvent event) {
+        index.change(terms -> filmStorage.getElement(event.filmId()).ifPresent(terms::put));
+    }
+
+    // lower-case runs of letters and digits, "ё" folded into "е", each word once
+    static List<String> tokenize(String text) {
+        if (text == null) {
+            return List.of();
+        }
+        Set<String> tokens = new LinkedHashSet<>();
+        String lower = text.toLowerCase(Locale.ROOT).replace('ё', 'е');
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean inWord = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (inWord && start < 0) {
+                start = i;
+            } else if (!inWord && start >= 0) {
+                tokens.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        return List.copyOf(tokens);
+    }
+
+    private Index load() {
+        long start = System.nanoTime();
+        Index loaded = new Index();
+        long after = 0;
+        List<Film> page;
+        do {
+            page = filmStorage.getPage(after, PAGE_SIZE);
+            page.forEach(loaded::put);
+            if (!page.isEmpty()) {
+                after = page.getLast().getId();
+            }
+        } while (page.size() == PAGE_SIZE);
+        log.debug("Поисковый индекс фильмов построен за {} мс: {} слов",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), loaded.terms.size());
+        return loaded;
+    }
+
+    // What a search needs from the index, taken under its lock: for every token the postings of the words it
+    // matches and of the word equal to it, if any, and how many bit words cover the film ids.
+    private record Lookup(List<List<Postings.View>> matches, Postings.View[] exact, int bitWords) {
+        List<Long> rank(int count) {
+            long[] matched = null;
+            for (List<Postings.View> views : matches) {
+                long[] bits = new long[bitWords];
+                for (Postings.View view : views) {
+                    view.setBits(bits);
+                }
+                matched = matched == null ? bits : and(matched, bits);
+            }
+            return rank(matched, count);
+        }
+
+        // Walks the matches in id order, keeping the first count of each score (tokens matched as whole words).
+        // Once the films with the best reachable score fill the page, later ids cannot change it.
+        private List<Long> rank(long[] matched, int count) {
+            List<List<Long>> byScore = new ArrayList<>();
+            for (int score = 0; score <= exact.length; score++) {
+                byScore.add(new ArrayList<>());
+            }
+            int best = (int) Arrays.stream(exact).filter(Objects::nonNull).count();
+            for (int word = 0; word < matched.length && byScore.get(best).size() < count; word++) {
+                long bits = matched[word];
+                while (bits != 0) {
+                    int film = word << 6 | Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                    int score = 0;
+                    for (Postings.View postings : exact) {
+                        if (postings != null && postings.contains(film)) {
+                            score++;
+                        }
+                    }
+                    if (byScore.get(score).size() < count) {
+                        byScore.get(score).add((long) film);
+                    }
+                }
+            }
+            List<Long> result = new ArrayList<>(count);
+            for (int score = exact.length; score >= 0 && result.size() < count; score--) {
+                List<Long> ids = byScore.get(score);
+                result.addAll(ids.subList(0, Math.min(ids.size(), count - result.size())));
+            }
+            return result;
+        }
+
+        private static long[] and(long[] a, long[] b) {
+            for (int i = 0; i < a.length; i++) {
+                a[i] &= b[i];
+            }
+            return a;
+        }
+    }
+
+    // Words get ids in order of first appearance and keep them; a word no film uses any more just has empty
+    // postings. Films are indexed by their id, which comes from a sequence; a film with any other id is not indexed.
+    private static final class Index {
+        private final TreeMap<String, Integer> termIds = new TreeMap<>();
+        private final List<String> terms = new ArrayList<>();
+        // by word id: the films containing the word
+        private final List<Postings> films = new ArrayList<>();
+        // by trigram: the words containing it
+        private final Map<String, Postings> grams = new HashMap<>();
+        // by film id: the sorted words of the film, to take it out of their postings when it changes
+        private int[][] termsByFilm = new int[16][];
+
+        // only the postings of words the film gained or lost change: taking an id out of a posting copies it
+        void put(Film film) {
+            if (!Utils.isDenseId(film.getId())) {
+                log.warn("Фильм {} не проиндексирован для поиска: id вне диапазона", film.getId());
+                return;
+            }
+            int id = film.getId().intValue();
+            if (id >= termsByFilm.length) {
+                termsByFilm = Arrays.copyOf(termsByFilm, Math.max(id + 1, termsByFilm.length * 2));
+            }
+            int[] previous = termsByFilm[id] == null ? new int[0] : termsByFilm[id];
+            Set<String> words = new LinkedHashSet<>(tokenize(film.getName()));
+            words.addAll(tokenize(film.getDescription()));
+            int[] ids = words.stream().mapToInt(this::termId).sorted().toArray();
+            for (int term : previous) {
+                if (Arrays.binarySearch(ids, term) < 0) {
+                    films.get(term).remove(id);
+                }
+            }
+            for (int term : ids) {
+                if (Arrays.binarySearch(previous, term) < 0) {
+                    films.get(term).add(id);
+                }
+            }
+            termsByFilm[id] = ids;
+        }
+
+        Lookup lookup(List<String> tokens) {
+            List<List<Postings.View>> matches = new ArrayList<>(tokens.size());
+            Postings.View[] exact = new Postings.View[tokens.size()];
+            for (int t = 0; t < tokens.size(); t++) {
+                List<Postings.View> views = new ArrayList<>();
+                for (int term : matchingTerms(tokens.get(t))) {
+                    views.add(films.get(term).view());
+                }
+                matches.add(views);
+                Integer term = termIds.get(tokens.get(t));
+                exact[t] = term == null ? null : films.get(term).view();
+            }
+            return new Lookup(matches, exact, (termsByFilm.length >>> 6) + 1);
+        }
+
+        // word ids matching the token: by prefix in the sorted dictionary for short tokens, otherwise the words
+        // holding all of the token's trigrams, checked for the token itself
+        private int[] matchingTerms(String token) {
+            if (token.length() < GRAM) {
+                Collection<Integer> prefixed = termIds.subMap(token, token + Character.MAX_VALUE).values();
+                return prefixed.stream().mapToInt(Integer::intValue).toArray();
+            }
+            List<Postings> lists = new ArrayList<>();
+            for (String gram : grams(token)) {
+                Postings postings = grams.get(gram);
+                if (postings == null) {
+                    return new int[0];
+                }
+                lists.add(postings);
+            }
+            lists.sort(Comparator.comparingInt(Postings::size));
+            return Arrays.stream(lists.getFirst().toArray())
+                    .filter(term -> lists.stream().skip(1).allMatch(postings -> postings.contains(term)))
+                    .filter(term -> terms.get(term).contains(token))
+                    .toArray();
+        }
+
+        private int termId(String term) {
+            Integer id = termIds.get(term);
+            if (id != null) {
+                return id;
+            }
+            int newId = terms.size();
+            termIds.put(term, newId);
+            terms.add(term);
+            films.add(new Postings());
+            for (String gram : grams(term)) {
+                grams.computeIfAbsent(gram, g -> new Postings()).add(newId);
+            }
+            return newId;
+        }
+
+        private static Set<String> grams(String word) {
+            Set<String> result = new LinkedHashSet<>();
+            for (int i = 0; i + GRAM <= word.length(); i++) {
+                result.add(word.substring(i, i + GRAM));
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package ru.yandex.practicum.filmorate.search;
+
+import java.util.Arrays;
+
+// Sorted, growable int array. Films and terms get increasing ids, so adding one is almost always an append, which
+// writes past the end in place. Anything else (an insert before the end, a removal) writes a new array, so the ids
+// below the size of a View taken earlier never change, and the view can be read without the index lock.
+final class Postings {
+    private int[] ids = new int[2];
+    private int size;
+
+    boolean add(int id) {
+        if (size == 0 || ids[size - 1] < id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+            return true;
+        }
+        int pos = Arrays.binarySearch(ids, 0, size, id);
+        if (pos >= 0) {
+            return false;
+        }
+        pos = -pos - 1;
+        int[] next = new int[size == ids.length ? size * 2 : ids.length];
+        System.arraycopy(ids, 0, next, 0, pos);
+        next[pos] = id;
+        System.arraycopy(ids, pos, next, pos + 1, size - pos);
+        ids = next;
+        size++;
+        return true;
+    }
+
+    boolean remove(int id) {
+        int pos = Arrays.binarySearch(ids, 0, size, id);
+        if (pos < 0) {
+            return false;
+        }
+        int[] next = new int[ids.length];
+        System.arraycopy(ids, 0, next, 0, pos);
+        System.arraycopy(ids, pos + 1, next, pos, size - pos - 1);
+        ids = next;
+        size--;
+        return true;
+    }
+
+    boolean contains(int id) {
+        return Arrays.binarySearch(ids, 0, size, id) >= 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int[] toArray() {
+        return Arrays.copyOf(ids, size);
+    }
+
+    // the ids as of now; taken under the index lock, read after it is released
+    View view() {
+        return new View(ids, size);
+    }
+
+    record View(int[] ids, int size) {
+        boolean contains(int id) {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+
+        // sets the bit of every id; bits must cover the largest one
+        void setBits(long[] bits) {
+            for (int i = 0; i < size; i++) {
+                bits[ids[i] >>> 6] |= 1L << ids[i];
+            }
+        }
+    }
+}
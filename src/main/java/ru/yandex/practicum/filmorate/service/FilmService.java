@@ -1,73 +1,146 @@
 package ru.yandex.practicum.filmorate.service;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.event.FilmChangedEvent;
+import ru.yandex.practicum.filmorate.event.LikeChangedEvent;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchResult;
 import ru.yandex.practicum.filmorate.model.Film;
-import ru.yandex.practicum.filmorate.storage.Storage;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Comparator;
 import java.util.List;
 
-import static ru.yandex.practicum.filmorate.util.Utils.getNextId;
-import static ru.yandex.practicum.filmorate.util.Utils.hasId;
+import static ru.yandex.practicum.filmorate.util.Utils.validateBatchSize;
+import static ru.yandex.practicum.filmorate.util.Utils.validatePageLimit;
 
 @Service
 @RequiredArgsConstructor
 public class FilmService {
-    private final Storage<Film> inMemoryFilmStorage;
+    private static final Counter LIKES_ADDED = Metrics.counter("filmorate.likes", "operation", "add");
+    private static final Counter LIKES_DELETED = Metrics.counter("filmorate.likes", "operation", "delete");
+
+    private final FilmStorage filmStorage;
     private final UserService userService;
+    private final ApplicationEventPublisher events;
 
     private static final int MAX_DESCRIPTION_SIZE = 200;
     private static final LocalDate MIN_RELEASE_DATE = LocalDate.of(1895, 12, 28);
 
     public void create(Film film) {
         validate(film);
-        film.setId(getNextId(inMemoryFilmStorage.getAll()));
-        inMemoryFilmStorage.create(film);
+        film.setId(filmStorage.nextId());
+        filmStorage.create(film);
+        events.publishEvent(new FilmChangedEvent(film.getId(), film.getLikes().size(), true));
+    }
+
+    // invalid films are reported per item, the valid ones get one block of ids and are stored in one batch
+    public List<BatchResult> createAll(List<Film> films) {
+        validateBatchSize(films.size());
+        BatchResult[] failures = new BatchResult[films.size()];
+        List<Film> valid = new ArrayList<>(films.size());
+        for (int i = 0; i < films.size(); i++) {
+            try {
+                validate(films.get(i));
+                valid.add(films.get(i));
+            } catch (ValidationException e) {
+                failures[i] = BatchResult.failed(i, HttpStatus.BAD_REQUEST.value(), e.getMessage());
+            }
+        }
+        if (!valid.isEmpty()) {
+            long id = filmStorage.reserveIds(valid.size());
+            for (Film film : valid) {
+                film.setId(id++);
+            }
+            filmStorage.createAll(valid);
+            valid.forEach(film -> events.publishEvent(new FilmChangedEvent(film.getId(), film.getLikes().size(), true)));
+        }
+        return BatchResult.complete(failures, HttpStatus.CREATED.value(), i -> films.get(i).getId());
     }
 
     public void update(Film film) {
         if (film.getId() == null) {
             throw new ValidationException("не указан id");
         }
-        if (!hasId(inMemoryFilmStorage.getAll(), film.getId())) {
+        if (filmStorage.getElement(film.getId()).isEmpty()) {
             throw new NotFoundException("не найден фильм с id: " + film);
         }
 
         validate(film);
-        inMemoryFilmStorage.update(film);
+        filmStorage.update(film);
+        events.publishEvent(new FilmChangedEvent(film.getId(), film.getLikes().size(), false));
     }
 
     public Collection<Film> getAll() {
-        return inMemoryFilmStorage.getAll();
+        return filmStorage.getAll();
     }
 
+    public long getVersion() {
+        return filmStorage.version();
+    }
+
+    public List<Film> getPage(long after, int limit) {
+        validatePageLimit(limit);
+        return filmStorage.getPage(after, limit);
+    }
+
+    // a repeated like changes nothing, so it is neither counted nor published
     public void addLike(long id, long userId) {
-        Film film = validateFilmId(id);
+        validateFilmId(id);
         userService.validateUserId(userId);
-        film.getLikes().add(userId);
+        if (filmStorage.addLike(id, userId)) {
+            LIKES_ADDED.increment();
+            events.publishEvent(new LikeChangedEvent(id, userId, true, likeCount(id)));
+        }
+    }
+
+    public List<BatchResult> addLikes(List<Like> likes) {
+        validateBatchSize(likes.size());
+        BatchResult[] failures = new BatchResult[likes.size()];
+        List<Like> valid = new ArrayList<>(likes.size());
+        for (int i = 0; i < likes.size(); i++) {
+            try {
+                validateFilmId(likes.get(i).filmId());
+                userService.validateUserId(likes.get(i).userId());
+                valid.add(likes.get(i));
+            } catch (NotFoundException e) {
+                failures[i] = BatchResult.failed(i, HttpStatus.NOT_FOUND.value(), e.getMessage());
+            }
+        }
+        List<Like> added = filmStorage.addLikes(valid);
+        LIKES_ADDED.increment(added.size());
+        added.forEach(like -> events.publishEvent(
+                new LikeChangedEvent(like.filmId(), like.userId(), true, likeCount(like.filmId()))));
+        return BatchResult.complete(failures, HttpStatus.OK.value(), i -> null);
     }
 
     public void deleteLike(long id, long userId) {
-        Film film = validateFilmId(id);
+        validateFilmId(id);
         userService.validateUserId(userId);
-        film.getLikes().remove(userId);
-
+        if (filmStorage.deleteLike(id, userId)) {
+            LIKES_DELETED.increment();
+            events.publishEvent(new LikeChangedEvent(id, userId, false, likeCount(id)));
+        }
     }
 
     public List<Film> getPopular(int count) {
-        return inMemoryFilmStorage.getAll().stream()
-                .sorted(Comparator.comparingInt(f -> f.getLikes().size()))
-                .limit(count)
-                .toList().reversed();
+        return filmStorage.getPopular(count);
     }
 
 
     public void validate(Film film) {
+        if (film == null) {
+            throw new ValidationException("фильм не может быть пустым");
+        }
         if (film.getName() == null || film.getName().isEmpty() || film.getName().isBlank()) {
             throw new ValidationException("название не может быть пустым");
         }
@@ -77,16 +150,27 @@ public class FilmService {
         if (film.getDescription().length() > MAX_DESCRIPTION_SIZE) {
             throw new ValidationException("максимальная длина описания — " + MAX_DESCRIPTION_SIZE + " символов");
         }
+        if (film.getReleaseDate() == null) {
+            throw new ValidationException("дата релиза должна быть указана");
+        }
         if (film.getReleaseDate().isBefore(LocalDate.from(MIN_RELEASE_DATE))) {
             throw new ValidationException("дата релиза — не раньше " + MIN_RELEASE_DATE);
         }
+        if (film.getDuration() == null) {
+            throw new ValidationException("продолжительность фильма должна быть указана");
+        }
         if (film.getDuration().isNegative() || film.getDuration().isZero()) {
             throw new ValidationException("продолжительность фильма должна быть положительным числом");
         }
+        userService.validateUserIds(film.getLikes().toLongArray());
+    }
+
+    private int likeCount(long id) {
+        return filmStorage.getElement(id).map(film -> film.getLikes().size()).orElse(0);
     }
 
     private Film validateFilmId(Long id) {
-        return inMemoryFilmStorage.getElement(id)
+        return filmStorage.getElement(id)
                 .orElseThrow(() -> new NotFoundException("не найден фильм с id: " + id));
     }
 }
@@ -0,0 +1,61 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FriendRecommendation;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.recommendation.Candidate;
+import ru.yandex.practicum.filmorate.recommendation.FriendGraph;
+import ru.yandex.practicum.filmorate.recommendation.LikeMatrix;
+import ru.yandex.practicum.filmorate.recommendation.TrendWindow;
+import ru.yandex.practicum.filmorate.recommendation.TrendingLikes;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static ru.yandex.practicum.filmorate.util.Utils.validatePageLimit;
+
+@Service
+@RequiredArgsConstructor
+public class RecommendationService {
+    private final UserService userService;
+    private final UserStorage userStorage;
+    private final FilmStorage filmStorage;
+    private final FriendGraph friendGraph;
+    private final LikeMatrix likeMatrix;
+    private final TrendingLikes trendingLikes;
+
+    // users are fetched in candidate order, so each is matched with the next candidate with its id
+    public List<FriendRecommendation> getFriendRecommendations(Long userId, int count) {
+        validatePageLimit(count);
+        userService.validateUserId(userId);
+        List<Candidate> candidates = friendGraph.recommend(userId, count);
+        List<FriendRecommendation> recommendations = new ArrayList<>(candidates.size());
+        int next = 0;
+        for (User user : userStorage.getElements(ids(candidates))) {
+            while (candidates.get(next).id() != user.getId()) {
+                next++;
+            }
+            recommendations.add(new FriendRecommendation(user, candidates.get(next++).score()));
+        }
+        return recommendations;
+    }
+
+    public List<Film> getFilmRecommendations(Long userId, int count) {
+        validatePageLimit(count);
+        userService.validateUserId(userId);
+        return filmStorage.getElements(ids(likeMatrix.recommend(userId, count)));
+    }
+
+    public List<Film> getTrendingFilms(String window, int count) {
+        validatePageLimit(count);
+        return filmStorage.getElements(ids(trendingLikes.top(TrendWindow.of(window), count)));
+    }
+
+    private static long[] ids(List<Candidate> candidates) {
+        return candidates.stream().mapToLong(Candidate::id).toArray();
+    }
+}
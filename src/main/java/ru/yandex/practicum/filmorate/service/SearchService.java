@@ -0,0 +1,28 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.search.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import java.util.List;
+
+import static ru.yandex.practicum.filmorate.util.Utils.validatePageLimit;
+
+@Service
+@RequiredArgsConstructor
+public class SearchService {
+    private final FilmStorage filmStorage;
+    private final FilmSearchIndex filmSearchIndex;
+
+    public List<Film> searchFilms(String query, int count) {
+        if (query == null || query.isBlank()) {
+            throw new ValidationException("поисковый запрос не может быть пустым");
+        }
+        validatePageLimit(count);
+        long[] ids = filmSearchIndex.search(query, count).stream().mapToLong(Long::longValue).toArray();
+        return filmStorage.getElements(ids);
+    }
+}
@@ -1,100 +1,200 @@
 package ru.yandex.practicum.filmorate.service;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.event.FriendshipChangedEvent;
+import ru.yandex.practicum.filmorate.event.UserChangedEvent;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchResult;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
-import ru.yandex.practicum.filmorate.storage.Storage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
-import java.util.stream.Collectors;
 
-import static ru.yandex.practicum.filmorate.util.Utils.getNextId;
-import static ru.yandex.practicum.filmorate.util.Utils.hasId;
+import static ru.yandex.practicum.filmorate.util.Utils.validateBatchSize;
+import static ru.yandex.practicum.filmorate.util.Utils.validatePageLimit;
 
 @Service
 @RequiredArgsConstructor
 public class UserService {
-    private final Storage<User> inMemoryUserStorage;
+    private static final Counter FRIENDS_ADDED = Metrics.counter("filmorate.friendships", "operation", "add");
+    private static final Counter FRIENDS_DELETED = Metrics.counter("filmorate.friendships", "operation", "delete");
+
+    private final UserStorage userStorage;
+    private final ApplicationEventPublisher events;
 
     public void create(User user) {
         validate(user);
         replaceNameIfEmpty(user);
-        user.setId(getNextId(inMemoryUserStorage.getAll()));
-        inMemoryUserStorage.create(user);
+        user.setId(userStorage.nextId());
+        userStorage.create(user);
+        events.publishEvent(new UserChangedEvent(user.getId(), true));
+    }
+
+    // invalid users are reported per item, the valid ones get one block of ids and are stored in one batch
+    public List<BatchResult> createAll(List<User> users) {
+        validateBatchSize(users.size());
+        BatchResult[] failures = new BatchResult[users.size()];
+        List<User> valid = new ArrayList<>(users.size());
+        for (int i = 0; i < users.size(); i++) {
+            try {
+                validate(users.get(i));
+                replaceNameIfEmpty(users.get(i));
+                valid.add(users.get(i));
+            } catch (ValidationException e) {
+                failures[i] = BatchResult.failed(i, HttpStatus.BAD_REQUEST.value(), e.getMessage());
+            }
+        }
+        if (!valid.isEmpty()) {
+            long id = userStorage.reserveIds(valid.size());
+            for (User user : valid) {
+                user.setId(id++);
+            }
+            userStorage.createAll(valid);
+            valid.forEach(user -> events.publishEvent(new UserChangedEvent(user.getId(), true)));
+        }
+        return BatchResult.complete(failures, HttpStatus.CREATED.value(), i -> users.get(i).getId());
     }
 
     public void update(User user) {
         if (user.getId() == null) {
             throw new ValidationException("Id должен быть указан");
         }
-        if (!hasId(inMemoryUserStorage.getAll(), user.getId())) {
+        if (userStorage.getElement(user.getId()).isEmpty()) {
             throw new NotFoundException("не найден пользователь с id: " + user.getId());
         }
 
         validate(user);
         replaceNameIfEmpty(user);
-        inMemoryUserStorage.update(user);
+        userStorage.update(user);
+        events.publishEvent(new UserChangedEvent(user.getId(), false));
     }
 
     public Collection<User> getAll() {
-        return inMemoryUserStorage.getAll();
+        return userStorage.getAll();
+    }
+
+    public long getVersion() {
+        return userStorage.version();
+    }
+
+    public List<User> getPage(long after, int limit) {
+        validatePageLimit(limit);
+        return userStorage.getPage(after, limit);
     }
 
+    // an existing friendship changes nothing, so it is neither counted nor published
     public void addFriend(Long userId, Long friendId) {
-        User friend = validateUserId(friendId);
-        User user = validateUserId(userId);
-        if (user.getFriends().contains(friendId)) {
-            return;
+        validateUserId(friendId);
+        validateUserId(userId);
+        if (userStorage.addFriend(userId, friendId)) {
+            FRIENDS_ADDED.increment();
+            events.publishEvent(new FriendshipChangedEvent(userId, friendId, true));
         }
+    }
 
-        user.getFriends().add(friendId);
-        friend.getFriends().add(userId);
+    public List<BatchResult> addFriends(List<Friendship> friendships) {
+        validateBatchSize(friendships.size());
+        BatchResult[] failures = new BatchResult[friendships.size()];
+        List<Friendship> valid = new ArrayList<>(friendships.size());
+        for (int i = 0; i < friendships.size(); i++) {
+            try {
+                validateUserId(friendships.get(i).friendId());
+                validateUserId(friendships.get(i).userId());
+                valid.add(friendships.get(i));
+            } catch (NotFoundException e) {
+                failures[i] = BatchResult.failed(i, HttpStatus.NOT_FOUND.value(), e.getMessage());
+            }
+        }
+        List<Friendship> added = userStorage.addFriends(valid);
+        FRIENDS_ADDED.increment(added.size());
+        added.forEach(friendship -> events.publishEvent(
+                new FriendshipChangedEvent(friendship.userId(), friendship.friendId(), true)));
+        return BatchResult.complete(failures, HttpStatus.OK.value(), i -> null);
     }
 
     public void deleteFriend(Long userId, Long friendId) {
-        User friend = validateUserId(friendId);
-        User user = validateUserId(userId);
-
-        user.getFriends().remove(friendId);
-        friend.getFriends().remove(userId);
+        validateUserId(friendId);
+        validateUserId(userId);
+        if (userStorage.deleteFriend(userId, friendId)) {
+            FRIENDS_DELETED.increment();
+            events.publishEvent(new FriendshipChangedEvent(userId, friendId, false));
+        }
     }
 
+    // the user and their friends are read from one snapshot, so a versioned storage answers as of one moment
     public Set<User> getFriends(Long userId) {
-        return validateUserId(userId).getFriends().stream()
-                .map(id -> inMemoryUserStorage.getElement(id).get())
-                .collect(Collectors.toSet());
+        UserStorage snapshot = userStorage.snapshot();
+        return new HashSet<>(snapshot.getElements(getUser(snapshot, userId).getFriends().toLongArray()));
+    }
+
+    // the friend list changes with the user's version, each friend's profile with that friend's version;
+    // versions come from one counter, so the maximum moves whenever any of them changes
+    public long getFriendsVersion(Long userId) {
+        UserStorage snapshot = userStorage.snapshot();
+        User user = getUser(snapshot, userId);
+        long version = user.getVersion();
+        for (User friend : snapshot.getElements(user.getFriends().toLongArray())) {
+            version = Math.max(version, friend.getVersion());
+        }
+        return version;
     }
 
     public Set<User> getCommonFriends(Long userId, Long otherId) {
-        User user = validateUserId(userId);
-        User other = validateUserId(otherId);
+        UserStorage snapshot = userStorage.snapshot();
+        getUser(snapshot, userId);
+        getUser(snapshot, otherId);
 
-        return user.getFriends().stream()
-                .filter(n -> !other.getFriends().add(n))
-                .map(id -> inMemoryUserStorage.getElement(id).get())
-                .collect(Collectors.toSet());
+        return new HashSet<>(snapshot.getCommonFriends(userId, otherId));
     }
 
     public User validateUserId(Long id) {
-        return inMemoryUserStorage.getElement(id)
-                .orElseThrow(() -> new NotFoundException("не найден пользователь с id: " + id));
+        return getUser(userStorage, id);
+    }
+
+    // the ids all belong to stored users, checked in one getElements pass instead of a lookup per id
+    public void validateUserIds(long[] ids) {
+        for (long id : ids) {
+            if (id <= 0) {
+                throw new ValidationException("id пользователя должен быть положительным: " + id);
+            }
+        }
+        if (userStorage.getElements(ids).size() != ids.length) {
+            throw new ValidationException("среди лайков есть несуществующие пользователи");
+        }
     }
 
     public void validate(User user) {
+        if (user == null)
+            throw new ValidationException("пользователь не может быть пустым");
         if (user.getEmail() == null || user.getEmail().isEmpty() || user.getEmail().isBlank())
             throw new ValidationException("почта не может быть пустой");
         if (!user.getEmail().contains("@"))
             throw new ValidationException("почта должна содержать символ @");
         if (user.getLogin() == null || user.getLogin().isEmpty() || user.getLogin().isBlank())
             throw new ValidationException("логин не может быть пустым и содержать пробелы");
+        if (user.getBirthday() == null)
+            throw new ValidationException("дата рождения должна быть указана");
         if (user.getBirthday().isAfter(LocalDate.now()))
             throw new ValidationException("дата рождения не может быть в будущем");
     }
 
+    private static User getUser(UserStorage storage, Long id) {
+        return storage.getElement(id)
+                .orElseThrow(() -> new NotFoundException("не найден пользователь с id: " + id));
+    }
+
     private void replaceNameIfEmpty(User user) {
         if (user.getName() == null || user.getName().isEmpty() || user.getName().isBlank()) {
             user.setName(user.getLogin());
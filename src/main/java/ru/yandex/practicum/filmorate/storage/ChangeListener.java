@@ -0,0 +1,14 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import ru.yandex.practicum.filmorate.model.StorageData;
+import ru.yandex.practicum.filmorate.storage.persistence.Mutation;
+
+// Sees every applied change inside the writer's critical section, right after the change and before the lock is
+// released: the calls for one element come in apply order, and element is the element mutation.id() as this change
+// left it, so nothing read from it can belong to a later change. It runs under the storage's lock, so it must be
+// quick and must not call back into the storage.
+public interface ChangeListener {
+    ChangeListener NOOP = (mutation, element) -> { };
+
+    void onChange(Mutation mutation, StorageData element);
+}
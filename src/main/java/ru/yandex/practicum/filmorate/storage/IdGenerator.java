@@ -0,0 +1,28 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class IdGenerator {
+    private final AtomicLong lastId = new AtomicLong();
+
+    public long next() {
+        return lastId.incrementAndGet();
+    }
+
+    // returns the first id of a contiguous block of `count` ids
+    public long reserve(int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("размер блока должен быть положительным: " + count);
+        }
+        return lastId.getAndAdd(count) + 1;
+    }
+
+    // ids assigned outside the generator (restored or explicitly created data) must never be handed out again
+    public void observe(long id) {
+        lastId.accumulateAndGet(id, Math::max);
+    }
+
+    public long current() {
+        return lastId.get();
+    }
+}
@@ -0,0 +1,277 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import lombok.Setter;
+import ru.yandex.practicum.filmorate.model.StorageData;
+import ru.yandex.practicum.filmorate.storage.persistence.Mutation;
+import ru.yandex.practicum.filmorate.storage.persistence.MutationLog;
+import ru.yandex.practicum.filmorate.storage.persistence.MutationLogAware;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+public abstract class InMemoryStorage<T extends StorageData> implements Storage<T>, MutationLogAware {
+    private static final int LOCK_STRIPES = 64;
+
+    // ordered by id, which doubles as the keyset-pagination index
+    protected final ConcurrentNavigableMap<Long, T> data = new ConcurrentSkipListMap<>();
+    private final AtomicLong size = new AtomicLong();
+    private final IdGenerator idGenerator;
+    // this storage's place in its group's lock order
+    private final int shard;
+    // ReentrantLock rather than monitors: a virtual thread waiting for a stripe parks instead of pinning its carrier
+    private final Lock[] locks = new Lock[LOCK_STRIPES];
+    // at least the version of every element stored here, including those stamped by another shard's write
+    private final AtomicLong version = new AtomicLong();
+    private final Mutation.Type createdType;
+    private final Mutation.Type updatedType;
+    private final Timer writeTimer;
+
+    @Setter
+    private volatile MutationLog mutationLog = MutationLog.NOOP;
+    @Setter
+    private volatile ChangeListener changeListener = ChangeListener.NOOP;
+
+    protected InMemoryStorage(Mutation.Type createdType, Mutation.Type updatedType) {
+        this(createdType, updatedType, new ShardGroup());
+    }
+
+    // a shard of a partitioned storage: ids are the group's, versions and locks the shard's own
+    protected InMemoryStorage(Mutation.Type createdType, Mutation.Type updatedType, ShardGroup group) {
+        this.idGenerator = group.idGenerator;
+        this.shard = group.join();
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        this.createdType = createdType;
+        this.updatedType = updatedType;
+        this.writeTimer = Timer.builder("filmorate.storage.writes")
+                .description("время записи, включая ожидание блокировки и журнала изменений")
+                .tag("entity", createdType.getEntityType().getSimpleName().toLowerCase())
+                .register(Metrics.globalRegistry);
+    }
+
+    @Override
+    public void create(T element) {
+        write(element.getId(), () -> insert(element));
+    }
+
+    @Override
+    public void createAll(Collection<T> elements) {
+        writeAll(elements, StorageData::getId, this::insert);
+    }
+
+    @Override
+    public void update(T element) {
+        write(element.getId(), () -> {
+            onWrite(data.put(element.getId(), element), element);
+            return Mutation.of(updatedType, element);
+        });
+    }
+
+    // a detached copy, so callers can iterate or serialize it while other threads keep writing
+    @Override
+    public Collection<T> getAll() {
+        return List.copyOf(data.values());
+    }
+
+    @Override
+    public List<T> getPage(long after, int limit) {
+        return data.tailMap(after, false).values().stream()
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public Optional<T> getElement(Long id) {
+        return Optional.ofNullable(lookup(id));
+    }
+
+    @Override
+    public List<T> getElements(long[] ids) {
+        List<T> found = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            T element = lookup(id);
+            if (element != null) {
+                found.add(element);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public long nextId() {
+        return idGenerator.next();
+    }
+
+    @Override
+    public long reserveIds(int count) {
+        return idGenerator.reserve(count);
+    }
+
+    @Override
+    public long version() {
+        return version.get();
+    }
+
+    @Override
+    public long size() {
+        return size.get();
+    }
+
+    protected T lookup(long id) {
+        return data.get(id);
+    }
+
+    // the storage of the group that holds the id, whose stripe guards it
+    protected InMemoryStorage<T> holder(long id) {
+        return this;
+    }
+
+    // ids stored outside this map (e.g. in a mapped snapshot) must not be handed out again
+    protected void observeId(long id) {
+        idGenerator.observe(id);
+    }
+
+    // called under the element's lock after it has been stored; previous is null for a new element
+    protected void onWrite(T previous, T element) {
+    }
+
+    // Runs an index update that stores no change under the id's lock stripe, so it is ordered with the writes to
+    // that id. Nothing is stamped, logged or timed: the write metric counts real writes only.
+    protected void locked(long id, Runnable update) {
+        Lock lock = holder(id).lock(id);
+        lock.lock();
+        try {
+            update.run();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Applies a change under the id's lock stripe and appends it to the mutation log in the same critical
+    // section, so the log order matches the apply order. Durability is awaited after the lock is released,
+    // which lets concurrent writers share one fsync. A null mutation means nothing changed, and write returns
+    // whether something did.
+    protected boolean write(long id, Supplier<Mutation> change) {
+        return write(id, id, change);
+    }
+
+    protected boolean write(long id, long otherId, Supplier<Mutation> change) {
+        long start = System.nanoTime();
+        boolean changed = apply(id, otherId, change).join();
+        writeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return changed;
+    }
+
+    // Each item is applied under its own lock stripes exactly as in write(), so other writers never wait for more
+    // than one item, but durability is awaited once for the whole batch: its records reach the log back to back
+    // and share the writer's group commits instead of paying one fsync round trip per item. Returns the items that
+    // changed something.
+    protected <E> List<E> writeAll(Collection<E> items, ToLongFunction<E> id, Function<E, Mutation> change) {
+        return writeAll(items, id, id, change);
+    }
+
+    protected <E> List<E> writeAll(Collection<E> items, ToLongFunction<E> id, ToLongFunction<E> otherId,
+                                   Function<E, Mutation> change) {
+        long start = System.nanoTime();
+        List<CompletableFuture<Boolean>> commits = new ArrayList<>(items.size());
+        for (E item : items) {
+            commits.add(apply(id.applyAsLong(item), otherId.applyAsLong(item), () -> change.apply(item)));
+        }
+        CompletableFuture.allOf(commits.toArray(CompletableFuture<?>[]::new)).join();
+        writeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        List<E> changed = new ArrayList<>();
+        int i = 0;
+        for (E item : items) {
+            if (commits.get(i++).join()) {
+                changed.add(item);
+            }
+        }
+        return changed;
+    }
+
+    private Mutation insert(T element) {
+        idGenerator.observe(element.getId());
+        T previous = data.put(element.getId(), element);
+        if (previous == null) {
+            size.incrementAndGet();
+        }
+        onWrite(previous, element);
+        return Mutation.of(createdType, element);
+    }
+
+    // stripes are locked in (shard, stripe) order, so two writers locking the same pair cannot deadlock
+    private CompletableFuture<Boolean> apply(long id, long otherId, Supplier<Mutation> change) {
+        InMemoryStorage<T> other = holder(otherId);
+        long order = lockOrder(id);
+        long otherOrder = other.lockOrder(otherId);
+        Lock first = order <= otherOrder ? lock(id) : other.lock(otherId);
+        Lock second = order <= otherOrder ? other.lock(otherId) : lock(id);
+        first.lock();
+        try {
+            second.lock();
+            try {
+                Mutation mutation = change.get();
+                if (mutation != null) {
+                    stamp(other, id, otherId);
+                    changeListener.onChange(mutation, lookup(mutation.id()));
+                }
+                return log(mutation);
+            } finally {
+                second.unlock();
+            }
+        } finally {
+            first.unlock();
+        }
+    }
+
+    private Lock lock(long id) {
+        return locks[Long.hashCode(id) & (LOCK_STRIPES - 1)];
+    }
+
+    private long lockOrder(long id) {
+        return (long) shard * LOCK_STRIPES + (Long.hashCode(id) & (LOCK_STRIPES - 1));
+    }
+
+    // Every applied change takes the next version of its shard and stamps it on the elements it touched. A change
+    // reaching into another shard takes a version above both shards' and raises both to it, so each shard's version
+    // stays at least that of every element it holds and an element's version only ever grows.
+    private void stamp(InMemoryStorage<T> other, long id, long otherId) {
+        long stamp = version.incrementAndGet();
+        if (other != this) {
+            stamp = other.version.accumulateAndGet(stamp, (current, least) -> Math.max(current + 1, least));
+            version.accumulateAndGet(stamp, Math::max);
+        }
+        T element = lookup(id);
+        if (element != null) {
+            element.setVersion(stamp);
+        }
+        if (otherId != id) {
+            T otherElement = lookup(otherId);
+            if (otherElement != null) {
+                otherElement.setVersion(stamp);
+            }
+        }
+    }
+
+    // completes with whether there was anything to log
+    private CompletableFuture<Boolean> log(Mutation mutation) {
+        return mutation == null
+                ? CompletableFuture.completedFuture(false)
+                : mutationLog.append(mutation).thenApply(sequence -> true);
+    }
+}
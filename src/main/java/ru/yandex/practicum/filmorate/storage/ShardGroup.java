@@ -0,0 +1,17 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+// What the shards of one partitioned storage share so that together they behave as one storage: ids come from one
+// sequence, and every shard has its place in one lock order, so a write touching elements of two shards (a
+// friendship) locks both ids' stripes shard by shard. Lock stripes and version counters are each shard's own, so
+// writers to different shards share nothing but the id sequence. A storage that is not partitioned is a group of one.
+public final class ShardGroup {
+    final IdGenerator idGenerator = new IdGenerator();
+    private final AtomicInteger shards = new AtomicInteger();
+
+    // the joining shard's place in the lock order
+    int join() {
+        return shards.getAndIncrement();
+    }
+}
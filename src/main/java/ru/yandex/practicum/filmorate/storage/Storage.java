@@ -3,14 +3,44 @@ package ru.yandex.practicum.filmorate.storage;
 import ru.yandex.practicum.filmorate.model.StorageData;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface Storage<T extends StorageData> {
     void create(T data);
 
+    // applies the whole batch and returns once all of it is durable
+    void createAll(Collection<T> data);
+
     void update(T data);
 
     Collection<T> getAll();
 
+    // elements with id > after, in id order
+    List<T> getPage(long after, int limit);
+
     Optional<T> getElement(Long id);
+
+    // the elements with these ids, in the same order, ids without one skipped: a single pass over the storage
+    // (a single query in SQL) instead of a getElement call per id
+    List<T> getElements(long[] ids);
+
+    long nextId();
+
+    // first id of a block of count consecutive ids
+    long reserveIds(int count);
+
+    long size();
+
+    // grows with every change to the collection; the version of a single element is StorageData.getVersion()
+    long version();
+
+    // replaces the listener that sees every applied change, see ChangeListener
+    void setChangeListener(ChangeListener listener);
+
+    // A read-only view of the collection at one point in time, for reads that span several calls. Storages that
+    // keep no versions return themselves, and their reads see the writes made in between.
+    default Storage<T> snapshot() {
+        return this;
+    }
 }
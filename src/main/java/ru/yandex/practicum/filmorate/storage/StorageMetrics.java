@@ -0,0 +1,35 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+// gauges are sampled on scrape and read maintained counters, so a scrape never copies or decodes entities
+@Component
+@RequiredArgsConstructor
+public class StorageMetrics implements MeterBinder {
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("filmorate.storage.size", filmStorage, Storage::size)
+                .tag("entity", "film")
+                .register(registry);
+        Gauge.builder("filmorate.storage.size", userStorage, Storage::size)
+                .tag("entity", "user")
+                .register(registry);
+        Gauge.builder("filmorate.likes.per.film", filmStorage, films -> average(films.getLikeCount(), films.size()))
+                .register(registry);
+        Gauge.builder("filmorate.friends.per.user", userStorage, users -> average(users.getFriendCount(), users.size()))
+                .register(registry);
+    }
+
+    private static double average(long total, long count) {
+        return count == 0 ? 0 : (double) total / count;
+    }
+}
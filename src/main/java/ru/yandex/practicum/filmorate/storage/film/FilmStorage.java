@@ -1,7 +1,29 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Like;
 import ru.yandex.practicum.filmorate.storage.Storage;
 
+import java.util.Collection;
+import java.util.List;
+
 public interface FilmStorage extends Storage<Film> {
+    // true if the film had no like from the user yet
+    boolean addLike(long filmId, long userId);
+
+    // the likes that were not there yet
+    List<Like> addLikes(Collection<Like> likes);
+
+    // true if the film had a like from the user
+    boolean deleteLike(long filmId, long userId);
+
+    List<Film> getPopular(int count);
+
+    // total number of likes over all films
+    long getLikeCount();
+
+    @Override
+    default FilmStorage snapshot() {
+        return this;
+    }
 }
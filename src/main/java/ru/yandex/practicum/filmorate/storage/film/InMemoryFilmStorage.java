@@ -1,38 +1,80 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
-import lombok.Getter;
-import lombok.Setter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.storage.InMemoryStorage;
+import ru.yandex.practicum.filmorate.storage.ShardGroup;
+import ru.yandex.practicum.filmorate.storage.persistence.Mutation;
 
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Optional;
+import java.util.List;
 
 @Component
-@Getter
-@Setter
-public class InMemoryFilmStorage implements FilmStorage {
-    private final Map<Long, Film> films = new HashMap<>();
+@ConditionalOnProperty(prefix = "filmorate", name = "storage", havingValue = "memory", matchIfMissing = true)
+public class InMemoryFilmStorage extends InMemoryStorage<Film> implements FilmStorage {
+    protected final PopularityIndex popularityIndex = new PopularityIndex();
+
+    public InMemoryFilmStorage() {
+        super(Mutation.Type.FILM_CREATED, Mutation.Type.FILM_UPDATED);
+    }
+
+    public InMemoryFilmStorage(ShardGroup group) {
+        super(Mutation.Type.FILM_CREATED, Mutation.Type.FILM_UPDATED, group);
+    }
+
+    @Override
+    public boolean addLike(long filmId, long userId) {
+        return write(filmId, () -> like(filmId, userId));
+    }
 
     @Override
-    public void create(Film film) {
-        films.put(film.getId(), film);
+    public List<Like> addLikes(Collection<Like> likes) {
+        return writeAll(likes, Like::filmId, like -> like(like.filmId(), like.userId()));
     }
 
     @Override
-    public void update(Film film) {
-        films.put(film.getId(), film);
+    public boolean deleteLike(long filmId, long userId) {
+        return write(filmId, () -> {
+            Film film = getFilm(filmId);
+            if (!film.getLikes().remove(userId)) {
+                return null;
+            }
+            popularityIndex.update(filmId, film.getLikes().size());
+            return Mutation.of(Mutation.Type.LIKE_DELETED, filmId, userId);
+        });
     }
 
     @Override
-    public Collection<Film> getAll() {
-        return films.values();
+    public List<Film> getPopular(int count) {
+        return popularityIndex.top(count).stream()
+                .map(this::lookup)
+                .toList();
     }
 
     @Override
-    public Optional<Film> getElement(Long id) {
-        return Optional.ofNullable(films.get(id));
+    public long getLikeCount() {
+        return popularityIndex.totalLikes();
+    }
+
+    @Override
+    protected void onWrite(Film previous, Film film) {
+        popularityIndex.update(film.getId(), film.getLikes().size());
+    }
+
+    private Mutation like(long filmId, long userId) {
+        Film film = getFilm(filmId);
+        if (!film.getLikes().add(userId)) {
+            return null;
+        }
+        popularityIndex.update(filmId, film.getLikes().size());
+        return Mutation.of(Mutation.Type.LIKE_ADDED, filmId, userId);
+    }
+
+    private Film getFilm(long id) {
+        return getElement(id)
+                .orElseThrow(() -> new NotFoundException("не найден фильм с id: " + id));
     }
 }
@@ -0,0 +1,65 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// films ordered by like count (desc), ties broken by id (asc)
+public class PopularityIndex {
+    private static final Comparator<Rank> ORDER = Comparator.comparingInt(Rank::likes).reversed()
+            .thenComparingLong(Rank::filmId);
+
+    private final NavigableSet<Rank> ranking = new TreeSet<>(ORDER);
+    private final Map<Long, Rank> ranks = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private long totalLikes;
+
+    public void update(long filmId, int likes) {
+        Rank rank = new Rank(filmId, likes);
+        lock.writeLock().lock();
+        try {
+            Rank previous = ranks.put(filmId, rank);
+            if (previous != null) {
+                ranking.remove(previous);
+                totalLikes -= previous.likes();
+            }
+            ranking.add(rank);
+            totalLikes += likes;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<Long> top(int count) {
+        List<Long> result = new ArrayList<>(Math.max(0, Math.min(count, 1024)));
+        lock.readLock().lock();
+        try {
+            Iterator<Rank> iterator = ranking.iterator();
+            while (result.size() < count && iterator.hasNext()) {
+                result.add(iterator.next().filmId());
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    public long totalLikes() {
+        lock.readLock().lock();
+        try {
+            return totalLikes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private record Rank(long filmId, int likes) {
+    }
+}
@@ -0,0 +1,121 @@
+package ru.yandex.practicum.filmorate.storage.jdbc;
+
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.persistence.Mutation;
+import ru.yandex.practicum.filmorate.util.LongHashSet;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// films.like_count mirrors the film's rows in likes and is changed in the same transaction, so getPopular is a
+// range scan of the films_popularity index instead of a GROUP BY over all likes
+public class JdbcFilmStorage extends JdbcStorage<Film> implements FilmStorage {
+    public JdbcFilmStorage(DataSource dataSource, int batchSize) {
+        super(dataSource, batchSize, Mutation.Type.FILM_CREATED, Mutation.Type.FILM_UPDATED, "films", "likes",
+                "film_id", "user_id",
+                "name", "description", "release_date", "duration_seconds", "like_count");
+    }
+
+    @Override
+    public boolean addLike(long filmId, long userId) {
+        return write(() -> {
+            requireExists(filmId);
+            if (!link(filmId, userId)) {
+                return UNCHANGED;
+            }
+            jdbc.update("UPDATE films SET like_count = like_count + 1 WHERE id = ?", filmId);
+            changed(Mutation.of(Mutation.Type.LIKE_ADDED, filmId, userId));
+            return new long[]{filmId};
+        });
+    }
+
+    @Override
+    public List<Like> addLikes(Collection<Like> likes) {
+        if (likes.isEmpty()) {
+            return List.of();
+        }
+        List<Like> pending = List.copyOf(likes);
+        List<Like> added = new ArrayList<>();
+        write(() -> {
+            requireExists(pending.stream().mapToLong(Like::filmId).toArray());
+            boolean[] linked = linkAll(pending.stream().map(like -> new long[]{like.filmId(), like.userId()}).toList());
+            Map<Long, Integer> counts = new HashMap<>();
+            for (int i = 0; i < linked.length; i++) {
+                if (linked[i]) {
+                    added.add(pending.get(i));
+                    counts.merge(pending.get(i).filmId(), 1, Integer::sum);
+                }
+            }
+            jdbc.batchUpdate("UPDATE films SET like_count = like_count + ? WHERE id = ?", counts.entrySet(),
+                    counts.size(), (ps, film) -> {
+                        ps.setInt(1, film.getValue());
+                        ps.setLong(2, film.getKey());
+                    });
+            added.forEach(like -> changed(Mutation.of(Mutation.Type.LIKE_ADDED, like.filmId(), like.userId())));
+            return counts.keySet().stream().mapToLong(Long::longValue).toArray();
+        });
+        return added;
+    }
+
+    @Override
+    public boolean deleteLike(long filmId, long userId) {
+        return write(() -> {
+            requireExists(filmId);
+            if (!unlink(filmId, userId)) {
+                return UNCHANGED;
+            }
+            jdbc.update("UPDATE films SET like_count = like_count - 1 WHERE id = ?", filmId);
+            changed(Mutation.of(Mutation.Type.LIKE_DELETED, filmId, userId));
+            return new long[]{filmId};
+        });
+    }
+
+    @Override
+    public List<Film> getPopular(int count) {
+        return select("ORDER BY like_count DESC, id LIMIT ?", Math.max(count, 0));
+    }
+
+    @Override
+    public long getLikeCount() {
+        return linkCount();
+    }
+
+    @Override
+    protected Film map(ResultSet rs) throws SQLException {
+        Long seconds = rs.getObject("duration_seconds", Long.class);
+        return new Film(rs.getLong("id"), rs.getString("name"), rs.getString("description"),
+                rs.getObject("release_date", LocalDate.class), seconds == null ? null : Duration.ofSeconds(seconds),
+                new LongHashSet());
+    }
+
+    @Override
+    protected void bind(PreparedStatement ps, Film film) throws SQLException {
+        ps.setString(1, film.getName());
+        ps.setString(2, film.getDescription());
+        ps.setObject(3, film.getReleaseDate());
+        ps.setObject(4, film.getDuration() == null ? null : film.getDuration().getSeconds());
+        ps.setInt(5, film.getLikes().size());
+    }
+
+    @Override
+    protected LongHashSet links(Film film) {
+        return film.getLikes();
+    }
+
+    @Override
+    protected NotFoundException notFound(long id) {
+        return new NotFoundException("не найден фильм с id: " + id);
+    }
+}
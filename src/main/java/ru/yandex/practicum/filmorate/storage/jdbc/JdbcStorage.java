@@ -0,0 +1,341 @@
+package ru.yandex.practicum.filmorate.storage.jdbc;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.StorageData;
+import ru.yandex.practicum.filmorate.storage.ChangeListener;
+import ru.yandex.practicum.filmorate.storage.IdGenerator;
+import ru.yandex.practicum.filmorate.storage.Storage;
+import ru.yandex.practicum.filmorate.storage.persistence.Mutation;
+import ru.yandex.practicum.filmorate.util.LongHashSet;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+// An entity table plus one link table (parent id, child id) holding the entity's id set: likes of a film or
+// friends of a user. Writes run in one transaction each and go out as batched prepared statements; reads load
+// the rows first and then all their links with a single query.
+public abstract class JdbcStorage<T extends StorageData> implements Storage<T> {
+    protected static final long[] UNCHANGED = new long[0];
+    // An id array parameter as a table. H2 turns a join against it into one primary key lookup per id, while
+    // "= ANY(?)" with thousands of ids was 10x and "IN (SELECT ... UNNEST(?))" 1000x slower.
+    private static final String IDS = "UNNEST(CAST(? AS BIGINT ARRAY)) ids (id)";
+
+    protected final JdbcTemplate jdbc;
+    private final TransactionTemplate transactions;
+    private final int batchSize;
+    private final IdGenerator idGenerator = new IdGenerator();
+    private final AtomicLong version = new AtomicLong();
+    private final Timer writeTimer;
+    private final RowMapper<T> rowMapper;
+    private final Mutation.Type createdType;
+    private final Mutation.Type updatedType;
+    private volatile ChangeListener changeListener = ChangeListener.NOOP;
+
+    private final String table;
+    private final String linkTable;
+    private final int columnCount;
+    private final String insertSql;
+    private final String updateSql;
+    private final String insertLinkSql;
+    private final String linkSql;
+    private final String unlinkSql;
+    private final String deleteLinksSql;
+    private final String selectLinksSql;
+    private final String selectByIdsSql;
+    private final String allLinksSql;
+    private final String missingSql;
+    private final String stampSql;
+
+    // columns are bound by bind() in this order; id and version are handled here
+    protected JdbcStorage(DataSource dataSource, int batchSize, Mutation.Type createdType, Mutation.Type updatedType,
+                          String table, String linkTable, String parentColumn, String childColumn, String... columns) {
+        this.jdbc = new JdbcTemplate(dataSource);
+        this.transactions = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        this.batchSize = batchSize;
+        this.createdType = createdType;
+        this.updatedType = updatedType;
+        this.table = table;
+        this.linkTable = linkTable;
+        this.columnCount = columns.length;
+        this.writeTimer = Timer.builder("filmorate.storage.writes")
+                .description("время записи, включая транзакцию и проставление версии")
+                .tag("entity", createdType.getEntityType().getSimpleName().toLowerCase())
+                .register(Metrics.globalRegistry);
+        this.rowMapper = (rs, rowNum) -> {
+            T element = map(rs);
+            element.setVersion(rs.getLong("version"));
+            return element;
+        };
+
+        String columnList = String.join(", ", columns);
+        this.insertSql = "INSERT INTO " + table + " (" + columnList + ", id) VALUES ("
+                + "?, ".repeat(columns.length) + "?)";
+        this.updateSql = "UPDATE " + table + " SET "
+                + Arrays.stream(columns).map(column -> column + " = ?").collect(Collectors.joining(", "))
+                + " WHERE id = ?";
+        this.insertLinkSql = "INSERT INTO " + linkTable + " (" + parentColumn + ", " + childColumn + ") VALUES (?, ?)";
+        // inserts only a missing link, so the update count tells whether the link was added
+        this.linkSql = "MERGE INTO " + linkTable + " l USING (VALUES (CAST(? AS BIGINT), CAST(? AS BIGINT))) s (p, c)"
+                + " ON l." + parentColumn + " = s.p AND l." + childColumn + " = s.c"
+                + " WHEN NOT MATCHED THEN INSERT (" + parentColumn + ", " + childColumn + ") VALUES (s.p, s.c)";
+        this.unlinkSql = "DELETE FROM " + linkTable + " WHERE " + parentColumn + " = ? AND " + childColumn + " = ?";
+        this.deleteLinksSql = "DELETE FROM " + linkTable + " WHERE " + parentColumn + " = ?";
+        this.selectLinksSql = "SELECT l." + parentColumn + ", l." + childColumn + " FROM " + IDS
+                + " JOIN " + linkTable + " l ON l." + parentColumn + " = ids.id";
+        this.selectByIdsSql = "SELECT t.* FROM " + IDS + " JOIN " + table + " t ON t.id = ids.id";
+        this.allLinksSql = "SELECT " + parentColumn + ", " + childColumn + " FROM " + linkTable;
+        this.missingSql = "SELECT ids.id FROM " + IDS + " LEFT JOIN " + table + " t ON t.id = ids.id"
+                + " WHERE t.id IS NULL LIMIT 1";
+        this.stampSql = "UPDATE " + table + " SET version = ? WHERE id = ? AND version < ?";
+
+        idGenerator.observe(jdbc.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class));
+        version.set(jdbc.queryForObject("SELECT COALESCE(MAX(version), 0) FROM " + table, Long.class));
+    }
+
+    @Override
+    public void create(T element) {
+        createAll(List.of(element));
+    }
+
+    @Override
+    public void createAll(Collection<T> elements) {
+        if (elements.isEmpty()) {
+            return;
+        }
+        elements.forEach(element -> idGenerator.observe(element.getId()));
+        write(() -> {
+            jdbc.batchUpdate(insertSql, elements, batchSize, (ps, element) -> bindWithId(ps, element));
+            insertLinks(elements);
+            elements.forEach(element -> changed(Mutation.of(createdType, element), element));
+            return ids(elements);
+        });
+    }
+
+    // replaces the row and the element's whole link set, like the in-memory put
+    @Override
+    public void update(T element) {
+        write(() -> {
+            if (jdbc.update(updateSql, ps -> bindWithId(ps, element)) == 0) {
+                throw notFound(element.getId());
+            }
+            jdbc.update(deleteLinksSql, element.getId());
+            insertLinks(List.of(element));
+            changed(Mutation.of(updatedType, element), element);
+            return new long[]{element.getId()};
+        });
+    }
+
+    // the link table is scanned once instead of being joined against every id
+    @Override
+    public Collection<T> getAll() {
+        List<T> elements = jdbc.query("SELECT * FROM " + table + " ORDER BY id", rowMapper);
+        attachLinks(elements, allLinksSql);
+        return elements;
+    }
+
+    @Override
+    public List<T> getPage(long after, int limit) {
+        return select("WHERE id > ? ORDER BY id LIMIT ?", after, limit);
+    }
+
+    @Override
+    public Optional<T> getElement(Long id) {
+        return select("WHERE id = ?", id).stream().findFirst();
+    }
+
+    // one query for the rows and one for their links, however many ids there are
+    @Override
+    public List<T> getElements(long[] ids) {
+        if (ids.length == 0) {
+            return List.of();
+        }
+        List<T> elements = jdbc.query(selectByIdsSql, rowMapper, (Object) boxed(ids));
+        if (elements.isEmpty()) {
+            return elements;
+        }
+        Map<Long, T> byId = attachLinks(elements, selectLinksSql, (Object) boxed(ids(elements)));
+        List<T> ordered = new ArrayList<>(elements.size());
+        for (long id : ids) {
+            T element = byId.get(id);
+            if (element != null) {
+                ordered.add(element);
+            }
+        }
+        return ordered;
+    }
+
+    @Override
+    public long nextId() {
+        return idGenerator.next();
+    }
+
+    @Override
+    public long reserveIds(int count) {
+        return idGenerator.reserve(count);
+    }
+
+    @Override
+    public long version() {
+        return version.get();
+    }
+
+    @Override
+    public void setChangeListener(ChangeListener listener) {
+        this.changeListener = listener;
+    }
+
+    @Override
+    public long size() {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM " + table, Long.class);
+    }
+
+    protected abstract T map(ResultSet rs) throws SQLException;
+
+    protected abstract void bind(PreparedStatement ps, T element) throws SQLException;
+
+    // the id set stored in the link table
+    protected abstract LongHashSet links(T element);
+
+    protected abstract NotFoundException notFound(long id);
+
+    // Runs the change in one transaction; it returns the ids of the rows it modified. The rows are stamped with
+    // the next version only after the commit, so a version never becomes visible before the data it covers
+    // (the same order InMemoryStorage keeps under its locks). Returns whether any row was modified.
+    protected boolean write(Supplier<long[]> change) {
+        long start = System.nanoTime();
+        long[] changed = transactions.execute(status -> change.get());
+        boolean modified = changed != null && changed.length > 0;
+        if (modified) {
+            long stamp = version.incrementAndGet();
+            jdbc.batchUpdate(stampSql, Arrays.stream(changed).boxed().toList(), batchSize, (ps, id) -> {
+                ps.setLong(1, stamp);
+                ps.setLong(2, id);
+                ps.setLong(3, stamp);
+            });
+        }
+        writeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return modified;
+    }
+
+    // Tells the listener about a change from inside the write's transaction: the rows the change wrote stay locked
+    // until the commit, so concurrent changes of one element reach the listener in the order they commit. The element
+    // is read back in the same transaction, and only when someone listens. A batch is one transaction, so all of its
+    // changes see the element as the whole batch left it.
+    protected void changed(Mutation mutation) {
+        if (changeListener != ChangeListener.NOOP) {
+            select("WHERE id = ?", mutation.id()).forEach(element -> changed(mutation, element));
+        }
+    }
+
+    protected void changed(Mutation mutation, T element) {
+        changeListener.onChange(mutation, element);
+    }
+
+    // rows matching the clause, each with its link set
+    protected List<T> select(String clause, Object... args) {
+        List<T> elements = jdbc.query("SELECT * FROM " + table + " " + clause, rowMapper, args);
+        if (!elements.isEmpty()) {
+            attachLinks(elements, selectLinksSql, (Object) boxed(ids(elements)));
+        }
+        return elements;
+    }
+
+    protected void requireExists(long... ids) {
+        List<Long> missing = jdbc.queryForList(missingSql, Long.class, (Object) boxed(ids));
+        if (!missing.isEmpty()) {
+            throw notFound(missing.getFirst());
+        }
+    }
+
+    // true if the link was added, false if it already existed
+    protected boolean link(long parent, long child) {
+        try {
+            return jdbc.update(linkSql, parent, child) > 0;
+        } catch (DuplicateKeyException e) {
+            // a concurrent transaction added the same link first
+            return false;
+        }
+    }
+
+    protected boolean unlink(long parent, long child) {
+        return jdbc.update(unlinkSql, parent, child) > 0;
+    }
+
+    // adds the links in batches; returns for each pair whether it was not present yet
+    protected boolean[] linkAll(List<long[]> pairs) {
+        boolean[] added = new boolean[pairs.size()];
+        int[][] counts = jdbc.batchUpdate(linkSql, pairs, batchSize, JdbcStorage::bindPair);
+        int i = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                added[i++] = count != 0;
+            }
+        }
+        return added;
+    }
+
+    protected long linkCount() {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM " + linkTable, Long.class);
+    }
+
+    // returns the elements by id
+    private Map<Long, T> attachLinks(List<T> elements, String sql, Object... args) {
+        Map<Long, T> byId = new HashMap<>(elements.size() * 2);
+        elements.forEach(element -> byId.put(element.getId(), element));
+        jdbc.query(sql, rs -> {
+            T element = byId.get(rs.getLong(1));
+            // a row created after the elements were read
+            if (element != null) {
+                links(element).add(rs.getLong(2));
+            }
+        }, args);
+        return byId;
+    }
+
+    private static Long[] boxed(long[] ids) {
+        return Arrays.stream(ids).boxed().toArray(Long[]::new);
+    }
+
+    private void bindWithId(PreparedStatement ps, T element) throws SQLException {
+        bind(ps, element);
+        ps.setLong(columnCount + 1, element.getId());
+    }
+
+    // links of elements that have none stored yet
+    private void insertLinks(Collection<T> elements) {
+        List<long[]> pairs = elements.stream()
+                .flatMap(element -> Arrays.stream(links(element).toLongArray())
+                        .mapToObj(child -> new long[]{element.getId(), child}))
+                .toList();
+        jdbc.batchUpdate(insertLinkSql, pairs, batchSize, JdbcStorage::bindPair);
+    }
+
+    private static void bindPair(PreparedStatement ps, long[] pair) throws SQLException {
+        ps.setLong(1, pair[0]);
+        ps.setLong(2, pair[1]);
+    }
+
+    private static long[] ids(Collection<? extends StorageData> elements) {
+        return elements.stream().mapToLong(StorageData::getId).toArray();
+    }
+}
@@ -0,0 +1,45 @@
+package ru.yandex.practicum.filmorate.storage.jdbc;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+
+@Configuration
+@ConditionalOnProperty(prefix = "filmorate", name = "storage", havingValue = "jdbc")
+public class JdbcStorageConfiguration {
+    private static final String SCHEMA = "db/schema.sql";
+
+    @Bean(destroyMethod = "close")
+    public HikariDataSource dataSource(JdbcStorageProperties properties) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("filmorate");
+        config.setJdbcUrl(properties.url());
+        config.setUsername(properties.username());
+        config.setPassword(properties.password());
+        config.setMaximumPoolSize(properties.poolSize());
+        HikariDataSource dataSource = new HikariDataSource(config);
+        createSchema(dataSource);
+        return dataSource;
+    }
+
+    @Bean
+    public JdbcFilmStorage jdbcFilmStorage(DataSource dataSource, JdbcStorageProperties properties) {
+        return new JdbcFilmStorage(dataSource, properties.batchSize());
+    }
+
+    @Bean
+    public JdbcUserStorage jdbcUserStorage(DataSource dataSource, JdbcStorageProperties properties) {
+        return new JdbcUserStorage(dataSource, properties.batchSize());
+    }
+
+    // every statement is CREATE ... IF NOT EXISTS, so this runs on each start
+    public static void createSchema(DataSource dataSource) {
+        new ResourceDatabasePopulator(new ClassPathResource(SCHEMA)).execute(dataSource);
+    }
+}
@@ -0,0 +1,14 @@
+package ru.yandex.practicum.filmorate.storage.jdbc;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+// batchSize: statements per JDBC batch for createAll, addLikes and addFriends
+@ConfigurationProperties(prefix = "filmorate.jdbc")
+public record JdbcStorageProperties(
+        @DefaultValue("jdbc:h2:file:./data/filmorate") String url,
+        @DefaultValue("sa") String username,
+        @DefaultValue("") String password,
+        @DefaultValue("10") int poolSize,
+        @DefaultValue("1000") int batchSize) {
+}
@@ -0,0 +1,122 @@
+package ru.yandex.practicum.filmorate.storage.jdbc;
+
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.persistence.Mutation;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.util.LongHashSet;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.LongStream;
+
+// a friendship is two rows in friendships, one per side, exactly as it is two entries in the in-memory sets
+public class JdbcUserStorage extends JdbcStorage<User> implements UserStorage {
+    public JdbcUserStorage(DataSource dataSource, int batchSize) {
+        super(dataSource, batchSize, Mutation.Type.USER_CREATED, Mutation.Type.USER_UPDATED, "users", "friendships",
+                "user_id", "friend_id", "email", "login", "name", "birthday");
+    }
+
+    @Override
+    public boolean addFriend(long userId, long friendId) {
+        return write(() -> {
+            requireExists(userId, friendId);
+            boolean added = link(userId, friendId) | link(friendId, userId);
+            if (!added) {
+                return UNCHANGED;
+            }
+            changed(Mutation.of(Mutation.Type.FRIEND_ADDED, userId, friendId));
+            return new long[]{userId, friendId};
+        });
+    }
+
+    @Override
+    public List<Friendship> addFriends(Collection<Friendship> friendships) {
+        if (friendships.isEmpty()) {
+            return List.of();
+        }
+        List<Friendship> pending = List.copyOf(friendships);
+        List<Friendship> added = new ArrayList<>();
+        write(() -> {
+            requireExists(pending.stream()
+                    .flatMapToLong(friendship -> LongStream.of(friendship.userId(), friendship.friendId()))
+                    .toArray());
+            List<long[]> pairs = new ArrayList<>(pending.size() * 2);
+            for (Friendship friendship : pending) {
+                pairs.add(new long[]{friendship.userId(), friendship.friendId()});
+                pairs.add(new long[]{friendship.friendId(), friendship.userId()});
+            }
+            // pairs 2i and 2i + 1 are the two sides of friendship i
+            boolean[] linked = linkAll(pairs);
+            LongHashSet touched = new LongHashSet();
+            for (int i = 0; i < pending.size(); i++) {
+                if (linked[2 * i] || linked[2 * i + 1]) {
+                    added.add(pending.get(i));
+                    touched.add(pending.get(i).userId());
+                    touched.add(pending.get(i).friendId());
+                }
+            }
+            added.forEach(friendship -> changed(
+                    Mutation.of(Mutation.Type.FRIEND_ADDED, friendship.userId(), friendship.friendId())));
+            return touched.toLongArray();
+        });
+        return added;
+    }
+
+    @Override
+    public boolean deleteFriend(long userId, long friendId) {
+        return write(() -> {
+            requireExists(userId, friendId);
+            boolean removed = unlink(userId, friendId) | unlink(friendId, userId);
+            if (!removed) {
+                return UNCHANGED;
+            }
+            changed(Mutation.of(Mutation.Type.FRIEND_DELETED, userId, friendId));
+            return new long[]{userId, friendId};
+        });
+    }
+
+    // the intersection is a join on the friendships primary key, nothing but the common friends leaves the database
+    @Override
+    public List<User> getCommonFriends(long userId, long otherId) {
+        requireExists(userId, otherId);
+        return select("WHERE id IN (SELECT a.friend_id FROM friendships a JOIN friendships b"
+                + " ON b.user_id = ? AND b.friend_id = a.friend_id WHERE a.user_id = ?) ORDER BY id", otherId, userId);
+    }
+
+    @Override
+    public long getFriendCount() {
+        return linkCount();
+    }
+
+    @Override
+    protected User map(ResultSet rs) throws SQLException {
+        return new User(rs.getLong("id"), rs.getString("email"), rs.getString("login"), rs.getString("name"),
+                rs.getObject("birthday", LocalDate.class), new LongHashSet());
+    }
+
+    @Override
+    protected void bind(PreparedStatement ps, User user) throws SQLException {
+        ps.setString(1, user.getEmail());
+        ps.setString(2, user.getLogin());
+        ps.setString(3, user.getName());
+        ps.setObject(4, user.getBirthday());
+    }
+
+    @Override
+    protected LongHashSet links(User user) {
+        return user.getFriends();
+    }
+
+    @Override
+    protected NotFoundException notFound(long id) {
+        return new NotFoundException("не найден пользователь с id: " + id);
+    }
+}
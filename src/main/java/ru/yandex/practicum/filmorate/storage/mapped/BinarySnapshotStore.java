@@ -0,0 +1,28 @@
+package ru.yandex.practicum.filmorate.storage.mapped;
+
+import lombok.RequiredArgsConstructor;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.Storage;
+import ru.yandex.practicum.filmorate.storage.persistence.SnapshotStore;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+@RequiredArgsConstructor
+public class BinarySnapshotStore implements SnapshotStore {
+    private final Path file;
+    private final MappedSnapshot current;
+
+    @Override
+    public void write(long sequence, Storage<User> users, Storage<Film> films) throws IOException {
+        MappedSnapshotWriter.write(file, sequence, users, films);
+    }
+
+    // nothing to load: the mapped storages already serve the snapshot lazily, only the log tail is replayed
+    @Override
+    public long read(Consumer<User> users, Consumer<Film> films) {
+        return current.sequence();
+    }
+}
@@ -0,0 +1,112 @@
+package ru.yandex.practicum.filmorate.storage.mapped;
+
+import io.micrometer.core.instrument.Metrics;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Films served from a mapped snapshot. The first write to a mapped film copies it into the in-memory
+// overlay, which then shadows the mapped record. The popularity index is filled from the snapshot's
+// index entries on the first getPopular call, without decoding any film.
+public class MappedFilmStorage extends InMemoryFilmStorage {
+    private final MappedSection<Film> mapped;
+    private final Lock popularityLock = new ReentrantLock();
+    private volatile boolean popularityLoaded;
+
+    public MappedFilmStorage(MappedSnapshot snapshot) {
+        this.mapped = snapshot.films();
+        observeId(mapped.maxId());
+    }
+
+    @Override
+    public boolean addLike(long filmId, long userId) {
+        promote(filmId);
+        return super.addLike(filmId, userId);
+    }
+
+    @Override
+    public List<Like> addLikes(Collection<Like> likes) {
+        likes.forEach(like -> promote(like.filmId()));
+        return super.addLikes(likes);
+    }
+
+    @Override
+    public boolean deleteLike(long filmId, long userId) {
+        promote(filmId);
+        return super.deleteLike(filmId, userId);
+    }
+
+    @Override
+    public List<Film> getPopular(int count) {
+        loadPopularity();
+        return super.getPopular(count);
+    }
+
+    @Override
+    public long getLikeCount() {
+        loadPopularity();
+        return super.getLikeCount();
+    }
+
+    @Override
+    public long size() {
+        return super.size() + mapped.count();
+    }
+
+    @Override
+    public Collection<Film> getAll() {
+        return MappedViews.page(data, mapped, 0, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Film> getPage(long after, int limit) {
+        return MappedViews.page(data, mapped, after, limit);
+    }
+
+    @Override
+    protected Film lookup(long id) {
+        return MappedViews.lookup(data, mapped, id);
+    }
+
+    private void promote(long id) {
+        locked(id, () -> {
+            if (!data.containsKey(id)) {
+                Film film = mapped.find(id);
+                if (film != null) {
+                    data.put(id, film);
+                    popularityIndex.update(id, film.getLikes().size());
+                }
+            }
+        });
+    }
+
+    private void loadPopularity() {
+        if (popularityLoaded) {
+            return;
+        }
+        popularityLock.lock();
+        try {
+            if (popularityLoaded) {
+                return;
+            }
+            for (int i = 0; i < mapped.count(); i++) {
+                long id = mapped.idAt(i);
+                int likes = mapped.setSizeAt(i);
+                locked(id, () -> {
+                    if (!data.containsKey(id)) {
+                        popularityIndex.update(id, likes);
+                    }
+                });
+            }
+            popularityLoaded = true;
+            Metrics.counter("filmorate.popularity.index.rebuilds").increment();
+        } finally {
+            popularityLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package ru.yandex.practicum.filmorate.storage.mapped;
+
+import java.nio.ByteBuffer;
+
+// One entity type inside a mapped snapshot: a sorted index of (id, record offset, set size) entries of
+// ENTRY_SIZE bytes each, plus the records they point to. Only absolute reads are used, so one buffer is shared
+// by all threads.
+public class MappedSection<T> {
+    static final int ENTRY_SIZE = Long.BYTES + Long.BYTES + Integer.BYTES;
+
+    private final ByteBuffer buffer;
+    private final long indexOffset;
+    private final int count;
+    private final RecordReader<T> reader;
+
+    MappedSection(ByteBuffer buffer, long indexOffset, int count, RecordReader<T> reader) {
+        this.buffer = buffer;
+        this.indexOffset = indexOffset;
+        this.count = count;
+        this.reader = reader;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public long idAt(int index) {
+        return buffer.getLong(entry(index));
+    }
+
+    // size of the entity's likes/friends set, readable without decoding the record
+    public int setSizeAt(int index) {
+        return buffer.getInt(entry(index) + Long.BYTES + Long.BYTES);
+    }
+
+    public T readAt(int index) {
+        return reader.read(buffer, (int) buffer.getLong(entry(index) + Long.BYTES), idAt(index));
+    }
+
+    public long maxId() {
+        return count == 0 ? 0 : idAt(count - 1);
+    }
+
+    // index of the id, or -(insertion point) - 1 like Arrays.binarySearch
+    public int search(long id) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midId = idAt(mid);
+            if (midId < id) {
+                low = mid + 1;
+            } else if (midId > id) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    public T find(long id) {
+        int index = search(id);
+        return index < 0 ? null : readAt(index);
+    }
+
+    private int entry(int index) {
+        return (int) (indexOffset + (long) index * ENTRY_SIZE);
+    }
+
+    interface RecordReader<T> {
+        T read(ByteBuffer buffer, int offset, long id);
+    }
+}
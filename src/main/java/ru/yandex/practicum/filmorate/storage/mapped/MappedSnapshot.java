@@ -0,0 +1,154 @@
+package ru.yandex.practicum.filmorate.storage.mapped;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.util.LongHashSet;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+
+// Read-only view of a binary snapshot mapped with FileChannel.map. Opening it only reads the header,
+// so startup cost does not depend on the number of stored entities; records are decoded on access.
+//
+// Layout (big-endian): header | records | film index | user index
+//   header: magic, version, sequence, film count, user count, film index offset, user index offset
+//   film:   name, description, release date (epoch day), duration (seconds), likes count, likes
+//   user:   email, login, name, birthday (epoch day), friends count, friends
+//   string: byte length (-1 for null) + UTF-8; missing dates/durations are Long.MIN_VALUE
+public class MappedSnapshot {
+    static final int MAGIC = 0x464C4D52;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = Integer.BYTES * 2 + Long.BYTES + Integer.BYTES * 2 + Long.BYTES * 2;
+    static final long ABSENT = Long.MIN_VALUE;
+
+    private static final MappedSnapshot EMPTY = new MappedSnapshot(0, ByteBuffer.allocate(0), 0, 0, 0, 0);
+
+    private final long sequence;
+    private final MappedSection<Film> films;
+    private final MappedSection<User> users;
+
+    private MappedSnapshot(long sequence, ByteBuffer buffer, int filmCount, int userCount,
+                           long filmIndexOffset, long userIndexOffset) {
+        this.sequence = sequence;
+        this.films = new MappedSection<>(buffer, filmIndexOffset, filmCount, MappedSnapshot::readFilm);
+        this.users = new MappedSection<>(buffer, userIndexOffset, userCount, MappedSnapshot::readUser);
+    }
+
+    public static MappedSnapshot open(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return EMPTY;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("снимок " + path + " больше 2 ГБ и не может быть отображён целиком");
+            }
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(Integer.BYTES) != VERSION) {
+                throw new IOException("файл " + path + " не является снимком хранилища версии " + VERSION);
+            }
+            int position = Integer.BYTES * 2;
+            long sequence = buffer.getLong(position);
+            position += Long.BYTES;
+            int filmCount = buffer.getInt(position);
+            position += Integer.BYTES;
+            int userCount = buffer.getInt(position);
+            position += Integer.BYTES;
+            long filmIndexOffset = buffer.getLong(position);
+            position += Long.BYTES;
+            long userIndexOffset = buffer.getLong(position);
+            return new MappedSnapshot(sequence, buffer, filmCount, userCount, filmIndexOffset, userIndexOffset);
+        }
+    }
+
+    public static MappedSnapshot empty() {
+        return EMPTY;
+    }
+
+    public long sequence() {
+        return sequence;
+    }
+
+    public MappedSection<Film> films() {
+        return films;
+    }
+
+    public MappedSection<User> users() {
+        return users;
+    }
+
+    private static Film readFilm(ByteBuffer buffer, int offset, long id) {
+        Cursor cursor = new Cursor(buffer, offset);
+        Film film = new Film();
+        film.setId(id);
+        film.setName(cursor.string());
+        film.setDescription(cursor.string());
+        long releaseDate = cursor.longValue();
+        film.setReleaseDate(releaseDate == ABSENT ? null : LocalDate.ofEpochDay(releaseDate));
+        long duration = cursor.longValue();
+        film.setDuration(duration == ABSENT ? null : Duration.ofSeconds(duration));
+        film.setLikes(cursor.longSet());
+        return film;
+    }
+
+    private static User readUser(ByteBuffer buffer, int offset, long id) {
+        Cursor cursor = new Cursor(buffer, offset);
+        User user = new User();
+        user.setId(id);
+        user.setEmail(cursor.string());
+        user.setLogin(cursor.string());
+        user.setName(cursor.string());
+        long birthday = cursor.longValue();
+        user.setBirthday(birthday == ABSENT ? null : LocalDate.ofEpochDay(birthday));
+        user.setFriends(cursor.longSet());
+        return user;
+    }
+
+    private static final class Cursor {
+        private final ByteBuffer buffer;
+        private int position;
+
+        private Cursor(ByteBuffer buffer, int position) {
+            this.buffer = buffer;
+            this.position = position;
+        }
+
+        long longValue() {
+            long value = buffer.getLong(position);
+            position += Long.BYTES;
+            return value;
+        }
+
+        int intValue() {
+            int value = buffer.getInt(position);
+            position += Integer.BYTES;
+            return value;
+        }
+
+        String string() {
+            int length = intValue();
+            if (length < 0) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            buffer.get(position, bytes);
+            position += length;
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        LongHashSet longSet() {
+            int size = intValue();
+            LongHashSet set = new LongHashSet(size);
+            for (int i = 0; i < size; i++) {
+                set.add(longValue());
+            }
+            return set;
+        }
+    }
+}
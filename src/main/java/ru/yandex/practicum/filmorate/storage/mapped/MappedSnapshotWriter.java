@@ -0,0 +1,193 @@
+package ru.yandex.practicum.filmorate.storage.mapped;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.StorageData;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.Storage;
+import ru.yandex.practicum.filmorate.util.LongHashSet;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+// writes the layout described in MappedSnapshot; records stream out page by page, only the index is kept in memory
+public class MappedSnapshotWriter {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int PAGE_SIZE = 1000;
+
+    private final FileChannel channel;
+    private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private long position;
+    private int lastSetSize;
+
+    private MappedSnapshotWriter(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    public static void write(Path target, long sequence, Storage<User> users, Storage<Film> films) throws IOException {
+        Files.createDirectories(target.toAbsolutePath().getParent());
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedSnapshotWriter writer = new MappedSnapshotWriter(channel);
+            writer.skip(MappedSnapshot.HEADER_SIZE);
+            Index filmIndex = writer.writeRecords(films, writer::writeFilm);
+            Index userIndex = writer.writeRecords(users, writer::writeUser);
+            long filmIndexOffset = writer.writeIndex(filmIndex);
+            long userIndexOffset = writer.writeIndex(userIndex);
+            writer.flush();
+            if (writer.position > Integer.MAX_VALUE) {
+                throw new IOException("снимок больше 2 ГБ не поддерживается");
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(MappedSnapshot.HEADER_SIZE)
+                    .putInt(MappedSnapshot.MAGIC)
+                    .putInt(MappedSnapshot.VERSION)
+                    .putLong(sequence)
+                    .putInt(filmIndex.size)
+                    .putInt(userIndex.size)
+                    .putLong(filmIndexOffset)
+                    .putLong(userIndexOffset)
+                    .flip();
+            channel.write(header, 0);
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private <T extends StorageData> Index writeRecords(Storage<T> storage, RecordWriter<T> recordWriter)
+            throws IOException {
+        Index index = new Index();
+        long after = 0;
+        List<T> page;
+        do {
+            page = storage.getPage(after, PAGE_SIZE);
+            for (T element : page) {
+                long offset = position;
+                recordWriter.write(element);
+                index.add(element.getId(), offset, lastSetSize);
+            }
+            if (!page.isEmpty()) {
+                after = page.getLast().getId();
+            }
+        } while (page.size() == PAGE_SIZE);
+        return index;
+    }
+
+    private void writeFilm(Film film) throws IOException {
+        writeString(film.getName());
+        writeString(film.getDescription());
+        writeLong(film.getReleaseDate() == null ? MappedSnapshot.ABSENT : film.getReleaseDate().toEpochDay());
+        Duration duration = film.getDuration();
+        writeLong(duration == null ? MappedSnapshot.ABSENT : duration.getSeconds());
+        writeSet(film.getLikes());
+    }
+
+    private void writeUser(User user) throws IOException {
+        writeString(user.getEmail());
+        writeString(user.getLogin());
+        writeString(user.getName());
+        LocalDate birthday = user.getBirthday();
+        writeLong(birthday == null ? MappedSnapshot.ABSENT : birthday.toEpochDay());
+        writeSet(user.getFriends());
+    }
+
+    private long writeIndex(Index index) throws IOException {
+        long offset = position;
+        for (int i = 0; i < index.size; i++) {
+            ensure(MappedSection.ENTRY_SIZE);
+            buffer.putLong(index.ids[i]).putLong(index.offsets[i]).putInt(index.setSizes[i]);
+            position += MappedSection.ENTRY_SIZE;
+        }
+        return offset;
+    }
+
+    private void writeString(String value) throws IOException {
+        if (value == null) {
+            writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeInt(bytes.length);
+        ensure(bytes.length);
+        buffer.put(bytes);
+        position += bytes.length;
+    }
+
+    private void writeSet(LongHashSet set) throws IOException {
+        long[] values = set.toLongArray();
+        lastSetSize = values.length;
+        writeInt(values.length);
+        for (long value : values) {
+            writeLong(value);
+        }
+    }
+
+    private void writeLong(long value) throws IOException {
+        ensure(Long.BYTES);
+        buffer.putLong(value);
+        position += Long.BYTES;
+    }
+
+    private void writeInt(int value) throws IOException {
+        ensure(Integer.BYTES);
+        buffer.putInt(value);
+        position += Integer.BYTES;
+    }
+
+    private void skip(int bytes) throws IOException {
+        ensure(bytes);
+        buffer.position(buffer.position() + bytes);
+        position += bytes;
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return;
+        }
+        flush();
+        if (buffer.capacity() < bytes) {
+            buffer = ByteBuffer.allocate(bytes);
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private interface RecordWriter<T> {
+        void write(T element) throws IOException;
+    }
+
+    private static final class Index {
+        private long[] ids = new long[1024];
+        private long[] offsets = new long[1024];
+        private int[] setSizes = new int[1024];
+        private int size;
+
+        void add(long id, long offset, int setSize) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                offsets = Arrays.copyOf(offsets, size * 2);
+                setSizes = Arrays.copyOf(setSizes, size * 2);
+            }
+            ids[size] = id;
+            offsets[size] = offset;
+            setSizes[size] = setSize;
+            size++;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package ru.yandex.practicum.filmorate.storage.mapped;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.yandex.practicum.filmorate.storage.persistence.PersistenceProperties;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+@Configuration
+@ConditionalOnProperty(prefix = "filmorate", name = "storage", havingValue = "mapped")
+public class MappedStorageConfiguration {
+    private static final String SNAPSHOT_FILE = "snapshot.bin";
+
+    @Bean
+    public MappedSnapshot mappedSnapshot(PersistenceProperties properties) throws IOException {
+        return MappedSnapshot.open(snapshotFile(properties));
+    }
+
+    @Bean
+    public MappedFilmStorage mappedFilmStorage(MappedSnapshot snapshot) {
+        return new MappedFilmStorage(snapshot);
+    }
+
+    @Bean
+    public MappedUserStorage mappedUserStorage(MappedSnapshot snapshot) {
+        return new MappedUserStorage(snapshot);
+    }
+
+    @Bean
+    public BinarySnapshotStore binarySnapshotStore(PersistenceProperties properties, MappedSnapshot snapshot) {
+        return new BinarySnapshotStore(snapshotFile(properties), snapshot);
+    }
+
+    private static Path snapshotFile(PersistenceProperties properties) {
+        return properties.directory().resolve(SNAPSHOT_FILE);
+    }
+}
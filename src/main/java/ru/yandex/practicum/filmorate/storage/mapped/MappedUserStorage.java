@@ -0,0 +1,109 @@
+package ru.yandex.practicum.filmorate.storage.mapped;
+
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Users served from a mapped snapshot, with writes copied into the in-memory overlay (see MappedFilmStorage). The
+// friend lists of the snapshot are added to the friend count on the first getFriendCount call, so opening it stays
+// independent of its size; writes before that only add their own differences, and the sum comes out the same.
+public class MappedUserStorage extends InMemoryUserStorage {
+    private final MappedSection<User> mapped;
+    private final Lock friendCountLock = new ReentrantLock();
+    private volatile boolean friendCountLoaded;
+
+    public MappedUserStorage(MappedSnapshot snapshot) {
+        this.mapped = snapshot.users();
+        observeId(mapped.maxId());
+    }
+
+    // promoted first, so the replaced friend list is subtracted from the friend count
+    @Override
+    public void update(User user) {
+        promote(user.getId());
+        super.update(user);
+    }
+
+    @Override
+    public boolean addFriend(long userId, long friendId) {
+        promote(userId);
+        promote(friendId);
+        return super.addFriend(userId, friendId);
+    }
+
+    @Override
+    public List<Friendship> addFriends(Collection<Friendship> friendships) {
+        friendships.forEach(friendship -> {
+            promote(friendship.userId());
+            promote(friendship.friendId());
+        });
+        return super.addFriends(friendships);
+    }
+
+    @Override
+    public boolean deleteFriend(long userId, long friendId) {
+        promote(userId);
+        promote(friendId);
+        return super.deleteFriend(userId, friendId);
+    }
+
+    @Override
+    public long getFriendCount() {
+        loadFriendCount();
+        return super.getFriendCount();
+    }
+
+    @Override
+    public long size() {
+        return super.size() + mapped.count();
+    }
+
+    @Override
+    public Collection<User> getAll() {
+        return MappedViews.page(data, mapped, 0, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<User> getPage(long after, int limit) {
+        return MappedViews.page(data, mapped, after, limit);
+    }
+
+    @Override
+    protected User lookup(long id) {
+        return MappedViews.lookup(data, mapped, id);
+    }
+
+    private void promote(long id) {
+        locked(id, () -> {
+            if (!data.containsKey(id)) {
+                User user = mapped.find(id);
+                if (user != null) {
+                    data.put(id, user);
+                }
+            }
+        });
+    }
+
+    private void loadFriendCount() {
+        if (friendCountLoaded) {
+            return;
+        }
+        friendCountLock.lock();
+        try {
+            if (friendCountLoaded) {
+                return;
+            }
+            for (int i = 0; i < mapped.count(); i++) {
+                friendCount.add(mapped.setSizeAt(i));
+            }
+            friendCountLoaded = true;
+        } finally {
+            friendCountLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package ru.yandex.practicum.filmorate.storage.mapped;
+
+import ru.yandex.practicum.filmorate.model.StorageData;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableMap;
+
+// reads over the mutation overlay merged with the mapped snapshot; an overlay entry shadows the mapped record
+final class MappedViews {
+    private MappedViews() {
+    }
+
+    static <T extends StorageData> T lookup(NavigableMap<Long, T> overlay, MappedSection<T> mapped, long id) {
+        T element = overlay.get(id);
+        return element != null ? element : mapped.find(id);
+    }
+
+    static <T extends StorageData> List<T> page(NavigableMap<Long, T> overlay, MappedSection<T> mapped,
+                                                long after, int limit) {
+        List<T> result = new ArrayList<>(Math.min(limit, 1024));
+        Iterator<T> overlayValues = overlay.tailMap(after, false).values().iterator();
+        T nextOverlay = overlayValues.hasNext() ? overlayValues.next() : null;
+        int found = mapped.search(after);
+        int index = found < 0 ? -found - 1 : found + 1;
+
+        while (result.size() < limit && (nextOverlay != null || index < mapped.count())) {
+            boolean mappedLeft = index < mapped.count();
+            if (nextOverlay != null && (!mappedLeft || nextOverlay.getId() <= mapped.idAt(index))) {
+                if (mappedLeft && nextOverlay.getId() == mapped.idAt(index)) {
+                    index++;
+                }
+                result.add(nextOverlay);
+                nextOverlay = overlayValues.hasNext() ? overlayValues.next() : null;
+            } else {
+                result.add(mapped.readAt(index++));
+            }
+        }
+        return result;
+    }
+}
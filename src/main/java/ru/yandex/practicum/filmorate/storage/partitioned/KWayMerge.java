@@ -0,0 +1,35 @@
+package ru.yandex.practicum.filmorate.storage.partitioned;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+// Merges lists that are each sorted by one order into the first limit elements of their union. The heap holds
+// one head per list, so this costs O(limit * log k) for k lists however long they are.
+final class KWayMerge {
+    private KWayMerge() {
+    }
+
+    static <T> List<T> merge(List<List<T>> sorted, Comparator<? super T> order, int limit) {
+        long total = sorted.stream().mapToLong(List::size).sum();
+        List<T> result = new ArrayList<>((int) Math.min(total, limit));
+        int[] positions = new int[sorted.size()];
+        // a list's position only moves while it is out of the heap
+        PriorityQueue<Integer> heads = new PriorityQueue<>(Math.max(1, sorted.size()),
+                (a, b) -> order.compare(sorted.get(a).get(positions[a]), sorted.get(b).get(positions[b])));
+        for (int i = 0; i < sorted.size(); i++) {
+            if (!sorted.get(i).isEmpty()) {
+                heads.add(i);
+            }
+        }
+        while (result.size() < limit && !heads.isEmpty()) {
+            int list = heads.poll();
+            result.add(sorted.get(list).get(positions[list]++));
+            if (positions[list] < sorted.get(list).size()) {
+                heads.add(list);
+            }
+        }
+        return result;
+    }
+}
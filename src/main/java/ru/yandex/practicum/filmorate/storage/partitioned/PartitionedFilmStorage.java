@@ -0,0 +1,60 @@
+package ru.yandex.practicum.filmorate.storage.partitioned;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+// A like touches its film only, so every film write stays within one shard; each shard keeps its own popularity
+// index and the popular films are the top of the merged per-shard tops.
+@Component
+@ConditionalOnProperty(prefix = "filmorate", name = "storage", havingValue = "partitioned")
+public class PartitionedFilmStorage extends PartitionedStorage<Film, InMemoryFilmStorage> implements FilmStorage {
+    // as PopularityIndex: more likes first, then lower ids
+    private static final Comparator<Ranked> POPULARITY = Comparator.comparingInt(Ranked::likes).reversed()
+            .thenComparingLong(ranked -> ranked.film().getId());
+
+    public PartitionedFilmStorage(PartitionedStorageProperties properties) {
+        super(properties.shardCount(), InMemoryFilmStorage::new);
+    }
+
+    @Override
+    public boolean addLike(long filmId, long userId) {
+        return shard(filmId).addLike(filmId, userId);
+    }
+
+    @Override
+    public List<Like> addLikes(Collection<Like> likes) {
+        return scatter(likes, Like::filmId, InMemoryFilmStorage::addLikes);
+    }
+
+    @Override
+    public boolean deleteLike(long filmId, long userId) {
+        return shard(filmId).deleteLike(filmId, userId);
+    }
+
+    // the like counts are read once per gathered film, so concurrent likes cannot reorder the merge under it
+    @Override
+    public List<Film> getPopular(int count) {
+        List<List<Ranked>> tops = gather(count, shard -> shard.getPopular(count).stream()
+                .map(film -> new Ranked(film, film.getLikes().size()))
+                .toList());
+        return KWayMerge.merge(tops, POPULARITY, count).stream()
+                .map(Ranked::film)
+                .toList();
+    }
+
+    @Override
+    public long getLikeCount() {
+        return shards.stream().mapToLong(InMemoryFilmStorage::getLikeCount).sum();
+    }
+
+    private record Ranked(Film film, int likes) {
+    }
+}
@@ -0,0 +1,174 @@
+package ru.yandex.practicum.filmorate.storage.partitioned;
+
+import ru.yandex.practicum.filmorate.model.StorageData;
+import ru.yandex.practicum.filmorate.storage.ChangeListener;
+import ru.yandex.practicum.filmorate.storage.InMemoryStorage;
+import ru.yandex.practicum.filmorate.storage.ShardGroup;
+import ru.yandex.practicum.filmorate.storage.Storage;
+import ru.yandex.practicum.filmorate.storage.persistence.MutationLog;
+import ru.yandex.practicum.filmorate.storage.persistence.MutationLogAware;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import java.util.stream.IntStream;
+
+// In-memory storage split by id hash into shards, each with its own map and indexes. Point operations go to the
+// id's shard; scans run on every shard, in parallel on the fork-join pool once they are large enough, and their
+// id-ordered results are merged. The shards share one ShardGroup, so ids and the lock order stay global, while each
+// shard counts its own version; the storage's version is their sum, which grows with every write to any shard.
+public abstract class PartitionedStorage<T extends StorageData, S extends InMemoryStorage<T>>
+        implements Storage<T>, MutationLogAware {
+    // below this many elements a scan or batch stays on the calling thread, forking costs more than it saves
+    static final int PARALLEL_THRESHOLD = 1 << 14;
+
+    protected final List<S> shards;
+
+    protected PartitionedStorage(int shardCount, Function<ShardGroup, S> shard) {
+        ShardGroup group = new ShardGroup();
+        List<S> created = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            created.add(shard.apply(group));
+        }
+        this.shards = List.copyOf(created);
+    }
+
+    @Override
+    public void create(T element) {
+        shard(element.getId()).create(element);
+    }
+
+    @Override
+    public void createAll(Collection<T> elements) {
+        scatter(elements, StorageData::getId, (shard, part) -> {
+            shard.createAll(part);
+            return List.of();
+        });
+    }
+
+    @Override
+    public void update(T element) {
+        shard(element.getId()).update(element);
+    }
+
+    @Override
+    public Collection<T> getAll() {
+        return KWayMerge.merge(gather(size(), shard -> List.copyOf(shard.getAll())), byId(), Integer.MAX_VALUE);
+    }
+
+    // every shard's first limit elements after the id hold the page
+    @Override
+    public List<T> getPage(long after, int limit) {
+        return KWayMerge.merge(gather(limit, shard -> shard.getPage(after, limit)), byId(), limit);
+    }
+
+    @Override
+    public Optional<T> getElement(Long id) {
+        return shard(id).getElement(id);
+    }
+
+    // each shard looks up its own part of the ids, and the results are put back in the order asked for
+    @Override
+    public List<T> getElements(long[] ids) {
+        long[][] parts = new long[shards.size()][];
+        int[] sizes = new int[shards.size()];
+        for (long id : ids) {
+            sizes[index(id)]++;
+        }
+        for (int i = 0; i < parts.length; i++) {
+            parts[i] = new long[sizes[i]];
+            sizes[i] = 0;
+        }
+        for (long id : ids) {
+            int i = index(id);
+            parts[i][sizes[i]++] = id;
+        }
+        List<List<T>> found = parallel(ids.length).mapToObj(i -> shards.get(i).getElements(parts[i])).toList();
+        Map<Long, T> byId = new HashMap<>(ids.length * 2);
+        found.forEach(part -> part.forEach(element -> byId.put(element.getId(), element)));
+        List<T> ordered = new ArrayList<>(byId.size());
+        for (long id : ids) {
+            T element = byId.get(id);
+            if (element != null) {
+                ordered.add(element);
+            }
+        }
+        return ordered;
+    }
+
+    @Override
+    public long nextId() {
+        return shards.getFirst().nextId();
+    }
+
+    @Override
+    public long reserveIds(int count) {
+        return shards.getFirst().reserveIds(count);
+    }
+
+    @Override
+    public long size() {
+        return shards.stream().mapToLong(S::size).sum();
+    }
+
+    @Override
+    public long version() {
+        return shards.stream().mapToLong(S::version).sum();
+    }
+
+    @Override
+    public void setMutationLog(MutationLog mutationLog) {
+        shards.forEach(shard -> shard.setMutationLog(mutationLog));
+    }
+
+    @Override
+    public void setChangeListener(ChangeListener listener) {
+        shards.forEach(shard -> shard.setChangeListener(listener));
+    }
+
+    protected S shard(long id) {
+        return shards.get(index(id));
+    }
+
+    // the per-shard results of a query, from the fork-join pool when the expected work is large
+    protected <R> List<R> gather(long work, Function<S, R> query) {
+        return parallel(work).mapToObj(i -> query.apply(shards.get(i))).toList();
+    }
+
+    // splits a batch by shard and applies each part in one call, returning the concatenated per-part results; parts
+    // run in parallel for large batches, which also lets their log records share group commits
+    protected <E, R> List<R> scatter(Collection<E> items, ToLongFunction<E> id, BiFunction<S, List<E>, List<R>> apply) {
+        List<List<E>> parts = new ArrayList<>(shards.size());
+        for (int i = 0; i < shards.size(); i++) {
+            parts.add(new ArrayList<>());
+        }
+        for (E item : items) {
+            parts.get(index(id.applyAsLong(item))).add(item);
+        }
+        return parallel(items.size()).filter(i -> !parts.get(i).isEmpty())
+                .mapToObj(i -> apply.apply(shards.get(i), parts.get(i)))
+                .flatMap(List::stream)
+                .toList();
+    }
+
+    protected static <E extends StorageData> Comparator<E> byId() {
+        return Comparator.comparingLong(StorageData::getId);
+    }
+
+    // Fibonacci hashing: consecutive ids land on different shards
+    private int index(long id) {
+        return Math.floorMod(Long.hashCode(id * 0x9E3779B97F4A7C15L), shards.size());
+    }
+
+    private IntStream parallel(long work) {
+        IntStream indexes = IntStream.range(0, shards.size());
+        return work < PARALLEL_THRESHOLD ? indexes : indexes.parallel();
+    }
+}
@@ -0,0 +1,12 @@
+package ru.yandex.practicum.filmorate.storage.partitioned;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+// shards: number of partitions of each of the film and user storages, 0 for one per available processor
+@ConfigurationProperties(prefix = "filmorate.partitioned")
+public record PartitionedStorageProperties(@DefaultValue("0") int shards) {
+    public int shardCount() {
+        return shards > 0 ? shards : Runtime.getRuntime().availableProcessors();
+    }
+}
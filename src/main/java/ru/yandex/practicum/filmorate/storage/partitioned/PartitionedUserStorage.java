@@ -0,0 +1,73 @@
+package ru.yandex.practicum.filmorate.storage.partitioned;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.ShardGroup;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.Collection;
+import java.util.List;
+
+// A friendship is written by the user's shard, which finds the friend in whichever shard holds it and locks the
+// friend's stripe there too, so it stays exclusive with the friend's own writes; both users get the change's version.
+@Component
+@ConditionalOnProperty(prefix = "filmorate", name = "storage", havingValue = "partitioned")
+public class PartitionedUserStorage extends PartitionedStorage<User, PartitionedUserStorage.Shard>
+        implements UserStorage {
+
+    public PartitionedUserStorage(PartitionedStorageProperties properties) {
+        super(properties.shardCount(), Shard::new);
+        shards.forEach(shard -> shard.owner = this);
+    }
+
+    @Override
+    public boolean addFriend(long userId, long friendId) {
+        return shard(userId).addFriend(userId, friendId);
+    }
+
+    @Override
+    public List<Friendship> addFriends(Collection<Friendship> friendships) {
+        return scatter(friendships, Friendship::userId, InMemoryUserStorage::addFriends);
+    }
+
+    @Override
+    public boolean deleteFriend(long userId, long friendId) {
+        return shard(userId).deleteFriend(userId, friendId);
+    }
+
+    @Override
+    public List<User> getCommonFriends(long userId, long otherId) {
+        return shard(userId).getCommonFriends(userId, otherId);
+    }
+
+    @Override
+    public long getFriendCount() {
+        return shards.stream().mapToLong(InMemoryUserStorage::getFriendCount).sum();
+    }
+
+    // reads and locks of any user go to the shard that holds it
+    static final class Shard extends InMemoryUserStorage {
+        private PartitionedUserStorage owner;
+
+        Shard(ShardGroup group) {
+            super(group);
+        }
+
+        @Override
+        protected User lookup(long id) {
+            return owner.shard(id).local(id);
+        }
+
+        @Override
+        protected Shard holder(long id) {
+            return owner.shard(id);
+        }
+
+        private User local(long id) {
+            return data.get(id);
+        }
+    }
+}
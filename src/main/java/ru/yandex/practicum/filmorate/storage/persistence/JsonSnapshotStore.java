@@ -0,0 +1,101 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.StorageData;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.Storage;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.function.Consumer;
+
+// {"sequence": n, "users": [...], "films": [...]}, written page by page to a temp file and moved into place atomically;
+// also for the partitioned and versioned storages, which keep the same entities in memory, only laid out differently
+@Component
+@ConditionalOnExpression("'${filmorate.storage:memory}' matches 'memory|partitioned|versioned'")
+public class JsonSnapshotStore implements SnapshotStore {
+    private static final String SNAPSHOT_FILE = "snapshot.json";
+    private static final int PAGE_SIZE = 1000;
+
+    private final Path directory;
+    private final ObjectMapper objectMapper;
+
+    public JsonSnapshotStore(PersistenceProperties properties, ObjectMapper objectMapper) {
+        this.directory = properties.directory();
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void write(long sequence, Storage<User> users, Storage<Film> films) throws IOException {
+        Path target = directory.resolve(SNAPSHOT_FILE);
+        Path temp = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp.toFile())) {
+            try (JsonGenerator generator = objectMapper.createGenerator(out)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.writeStartObject();
+                generator.writeNumberField("sequence", sequence);
+                writeArray(generator, "users", users);
+                writeArray(generator, "films", films);
+                generator.writeEndObject();
+            }
+            out.getFD().sync();
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @Override
+    public long read(Consumer<User> users, Consumer<Film> films) throws IOException {
+        Path source = directory.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(source)) {
+            return 0;
+        }
+        long sequence = 0;
+        try (JsonParser parser = objectMapper.createParser(source.toFile())) {
+            parser.nextToken();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "sequence" -> sequence = parser.getLongValue();
+                    case "users" -> readArray(parser, User.class, users);
+                    case "films" -> readArray(parser, Film.class, films);
+                    default -> parser.skipChildren();
+                }
+            }
+        }
+        return sequence;
+    }
+
+    private static <T extends StorageData> void writeArray(JsonGenerator generator, String name, Storage<T> storage)
+            throws IOException {
+        generator.writeArrayFieldStart(name);
+        long after = 0;
+        List<T> page;
+        do {
+            page = storage.getPage(after, PAGE_SIZE);
+            for (T element : page) {
+                generator.writeObject(element);
+            }
+            if (!page.isEmpty()) {
+                after = page.getLast().getId();
+            }
+        } while (page.size() == PAGE_SIZE);
+        generator.writeEndArray();
+    }
+
+    private static <T> void readArray(JsonParser parser, Class<T> type, Consumer<T> consumer) throws IOException {
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            consumer.accept(parser.readValueAs(type));
+        }
+    }
+}
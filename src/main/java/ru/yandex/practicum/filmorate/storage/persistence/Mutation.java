@@ -0,0 +1,38 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.StorageData;
+import ru.yandex.practicum.filmorate.model.User;
+
+// a single storage change; entity is set only for created/updated mutations
+public record Mutation(Type type, long id, long targetId, StorageData entity) {
+
+    public enum Type {
+        FILM_CREATED(Film.class),
+        FILM_UPDATED(Film.class),
+        LIKE_ADDED(null),
+        LIKE_DELETED(null),
+        USER_CREATED(User.class),
+        USER_UPDATED(User.class),
+        FRIEND_ADDED(null),
+        FRIEND_DELETED(null);
+
+        private final Class<? extends StorageData> entityType;
+
+        Type(Class<? extends StorageData> entityType) {
+            this.entityType = entityType;
+        }
+
+        public Class<? extends StorageData> getEntityType() {
+            return entityType;
+        }
+    }
+
+    public static Mutation of(Type type, StorageData entity) {
+        return new Mutation(type, entity.getId(), 0, entity);
+    }
+
+    public static Mutation of(Type type, long id, long targetId) {
+        return new Mutation(type, id, targetId, null);
+    }
+}
@@ -0,0 +1,49 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import ru.yandex.practicum.filmorate.model.StorageData;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+
+// body layout: type (1 byte), id (8), targetId (8), entity length (4), entity as JSON
+@RequiredArgsConstructor
+public class MutationCodec {
+    private static final Mutation.Type[] TYPES = Mutation.Type.values();
+    private static final int HEADER_SIZE = 1 + Long.BYTES + Long.BYTES + Integer.BYTES;
+
+    private final ObjectMapper objectMapper;
+
+    public byte[] encode(Mutation mutation) {
+        byte[] entity = new byte[0];
+        if (mutation.entity() != null) {
+            try {
+                entity = objectMapper.writeValueAsBytes(mutation.entity());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return ByteBuffer.allocate(HEADER_SIZE + entity.length)
+                .put((byte) mutation.type().ordinal())
+                .putLong(mutation.id())
+                .putLong(mutation.targetId())
+                .putInt(entity.length)
+                .put(entity)
+                .array();
+    }
+
+    public Mutation decode(byte[] body) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(body);
+        Mutation.Type type = TYPES[buffer.get()];
+        long id = buffer.getLong();
+        long targetId = buffer.getLong();
+        int length = buffer.getInt();
+        StorageData entity = null;
+        if (length > 0) {
+            entity = objectMapper.readValue(body, buffer.position(), length, type.getEntityType());
+        }
+        return new Mutation(type, id, targetId, entity);
+    }
+}
@@ -0,0 +1,10 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import java.util.concurrent.CompletableFuture;
+
+public interface MutationLog {
+    MutationLog NOOP = mutation -> CompletableFuture.completedFuture(0L);
+
+    // the log order is the order of append calls; the future completes with the sequence number once the record is durable
+    CompletableFuture<Long> append(Mutation mutation);
+}
@@ -0,0 +1,5 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+public interface MutationLogAware {
+    void setMutationLog(MutationLog mutationLog);
+}
@@ -0,0 +1,108 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Recovery: load the latest snapshot, then replay the log tail after the snapshot's sequence.
+// Snapshots are fuzzy (writers keep running while one is taken); replaying from the rotation
+// boundary still converges because every mutation is an idempotent put/add/remove.
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "filmorate.persistence", name = "enabled", havingValue = "true")
+public class PersistenceManager {
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final PersistenceProperties properties;
+    private final MutationCodec codec;
+    private final SnapshotStore snapshotStore;
+
+    private WriteAheadLog writeAheadLog;
+    private ScheduledExecutorService scheduler;
+
+    public PersistenceManager(FilmStorage filmStorage, UserStorage userStorage, PersistenceProperties properties,
+                              ObjectMapper objectMapper, SnapshotStore snapshotStore) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.properties = properties;
+        this.codec = new MutationCodec(objectMapper);
+        this.snapshotStore = snapshotStore;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        long started = System.nanoTime();
+        long snapshotSequence = snapshotStore.read(userStorage::create, filmStorage::create);
+        long lastSequence = WriteAheadLog.replay(properties.directory(), snapshotSequence, codec, this::apply);
+        log.info("Восстановлено состояние на последовательность {} (снимок {}) за {} мс",
+                lastSequence, snapshotSequence, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+
+        writeAheadLog = WriteAheadLog.open(properties.directory(), lastSequence, codec, properties.fsync());
+        attach(writeAheadLog);
+
+        long interval = properties.snapshotInterval().toMillis();
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "snapshot-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::snapshotQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        scheduler.shutdown();
+        snapshot();
+        attach(MutationLog.NOOP);
+        writeAheadLog.close();
+    }
+
+    public synchronized void snapshot() throws IOException {
+        long boundary = writeAheadLog.rotate();
+        snapshotStore.write(boundary, userStorage, filmStorage);
+        writeAheadLog.deleteSegmentsUpTo(boundary);
+        log.info("Снимок хранилища записан на последовательность {}", boundary);
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (IOException e) {
+            log.error("Не удалось записать снимок хранилища", e);
+        }
+    }
+
+    private void attach(MutationLog mutationLog) {
+        if (filmStorage instanceof MutationLogAware aware) {
+            aware.setMutationLog(mutationLog);
+        }
+        if (userStorage instanceof MutationLogAware aware) {
+            aware.setMutationLog(mutationLog);
+        }
+    }
+
+    private void apply(Mutation mutation) {
+        switch (mutation.type()) {
+            case FILM_CREATED -> filmStorage.create((Film) mutation.entity());
+            case FILM_UPDATED -> filmStorage.update((Film) mutation.entity());
+            case LIKE_ADDED -> filmStorage.addLike(mutation.id(), mutation.targetId());
+            case LIKE_DELETED -> filmStorage.deleteLike(mutation.id(), mutation.targetId());
+            case USER_CREATED -> userStorage.create((User) mutation.entity());
+            case USER_UPDATED -> userStorage.update((User) mutation.entity());
+            case FRIEND_ADDED -> userStorage.addFriend(mutation.id(), mutation.targetId());
+            case FRIEND_DELETED -> userStorage.deleteFriend(mutation.id(), mutation.targetId());
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "filmorate.persistence")
+public record PersistenceProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("data") Path directory,
+        @DefaultValue("10m") Duration snapshotInterval,
+        @DefaultValue("true") boolean fsync) {
+}
@@ -0,0 +1,15 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.Storage;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+public interface SnapshotStore {
+    void write(long sequence, Storage<User> users, Storage<Film> films) throws IOException;
+
+    // feeds the snapshot's entities to the consumers and returns the sequence it was taken at, 0 if there is none
+    long read(Consumer<User> users, Consumer<Film> films) throws IOException;
+}
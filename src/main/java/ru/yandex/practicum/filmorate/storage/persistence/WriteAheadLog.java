@@ -0,0 +1,271 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+// Append-only mutation log split into segments named after their first sequence number.
+// A single writer thread drains everything queued since its last pass and fsyncs once per batch (group commit).
+// Record layout: length (4 bytes), sequence (8), body, CRC32 of sequence + body (4).
+// Once the writer stops, on close or on a write error, every entry still queued fails, and so does every entry
+// appended later: a caller waiting for durability never waits for a writer that is gone.
+@Slf4j
+public class WriteAheadLog implements MutationLog, Closeable {
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int MAX_BATCH = 4096;
+    private static final int MAX_RECORD_SIZE = 64 * 1024 * 1024;
+
+    private final Path directory;
+    private final MutationCodec codec;
+    private final boolean fsync;
+    private final BlockingQueue<Entry> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+
+    private FileChannel segment;
+    private long lastSequence;
+    private volatile boolean running = true;
+    private final Lock stateLock = new ReentrantLock();
+    // set under stateLock when the writer stops, and checked under it before queueing
+    private RuntimeException stopped;
+
+    private WriteAheadLog(Path directory, long lastSequence, MutationCodec codec, boolean fsync) throws IOException {
+        this.directory = directory;
+        this.codec = codec;
+        this.fsync = fsync;
+        this.lastSequence = lastSequence;
+        this.segment = openSegment(lastSequence + 1);
+        this.writer = new Thread(this::run, "wal-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    public static WriteAheadLog open(Path directory, long lastSequence, MutationCodec codec, boolean fsync)
+            throws IOException {
+        Files.createDirectories(directory);
+        return new WriteAheadLog(directory, lastSequence, codec, fsync);
+    }
+
+    // applies every readable record with sequence > after, oldest segment first; returns the last sequence seen
+    public static long replay(Path directory, long after, MutationCodec codec, Consumer<Mutation> consumer)
+            throws IOException {
+        long last = after;
+        for (Path path : segments(directory)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+                while (true) {
+                    byte[] record;
+                    try {
+                        int length = in.readInt();
+                        if (length <= Long.BYTES + Integer.BYTES || length > MAX_RECORD_SIZE) {
+                            log.warn("Повреждённая запись в {} после последовательности {}, остаток сегмента пропущен",
+                                    path, last);
+                            break;
+                        }
+                        record = new byte[length];
+                        in.readFully(record);
+                    } catch (EOFException e) {
+                        break;
+                    }
+                    ByteBuffer buffer = ByteBuffer.wrap(record);
+                    long sequence = buffer.getLong();
+                    byte[] body = new byte[record.length - Long.BYTES - Integer.BYTES];
+                    buffer.get(body);
+                    if (buffer.getInt() != checksum(sequence, body)) {
+                        log.warn("Повреждённая запись в {} после последовательности {}, остаток сегмента пропущен",
+                                path, last);
+                        break;
+                    }
+                    if (sequence > after) {
+                        consumer.accept(codec.decode(body));
+                        last = sequence;
+                    }
+                }
+            }
+        }
+        return last;
+    }
+
+    @Override
+    public CompletableFuture<Long> append(Mutation mutation) {
+        return enqueue(new Entry(codec.encode(mutation), new CompletableFuture<>()));
+    }
+
+    // starts a new segment; returns the last sequence number stored in the previous segments
+    public long rotate() {
+        return enqueue(new Entry(null, new CompletableFuture<>())).join();
+    }
+
+    public void deleteSegmentsUpTo(long sequence) throws IOException {
+        for (Path path : segments(directory)) {
+            if (firstSequence(path) <= sequence) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        segment.close();
+    }
+
+    private CompletableFuture<Long> enqueue(Entry entry) {
+        stateLock.lock();
+        try {
+            if (stopped != null) {
+                return CompletableFuture.failedFuture(stopped);
+            }
+            if (!running) {
+                return CompletableFuture.failedFuture(new IllegalStateException("журнал изменений закрыт"));
+            }
+            queue.add(entry);
+        } finally {
+            stateLock.unlock();
+        }
+        return entry.done();
+    }
+
+    private void run() {
+        RuntimeException reason = new IllegalStateException("журнал изменений закрыт");
+        List<Entry> batch = new ArrayList<>();
+        try {
+            while (running || !queue.isEmpty()) {
+                Entry first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, MAX_BATCH - 1);
+                writeBatch(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            log.error("Ошибка записи журнала изменений", e);
+            reason = new UncheckedIOException(e);
+        } finally {
+            stop(batch, reason);
+        }
+    }
+
+    // fails the unfinished batch and everything queued; nothing is queued after stopped is set, so none is missed
+    private void stop(List<Entry> batch, RuntimeException reason) {
+        stateLock.lock();
+        try {
+            stopped = reason;
+        } finally {
+            stateLock.unlock();
+        }
+        queue.drainTo(batch);
+        batch.forEach(entry -> entry.done().completeExceptionally(reason));
+    }
+
+    private void writeBatch(List<Entry> batch) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        List<Entry> pending = new ArrayList<>();
+        for (Entry entry : batch) {
+            if (entry.body() == null) {
+                flush(bytes, pending);
+                segment.close();
+                segment = openSegment(lastSequence + 1);
+                entry.done().complete(lastSequence);
+                continue;
+            }
+            long sequence = ++lastSequence;
+            out.writeInt(Long.BYTES + entry.body().length + Integer.BYTES);
+            out.writeLong(sequence);
+            out.write(entry.body());
+            out.writeInt(checksum(sequence, entry.body()));
+            pending.add(entry.withSequence(sequence));
+        }
+        flush(bytes, pending);
+    }
+
+    private void flush(ByteArrayOutputStream bytes, List<Entry> pending) throws IOException {
+        if (pending.isEmpty()) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        while (buffer.hasRemaining()) {
+            segment.write(buffer);
+        }
+        if (fsync) {
+            segment.force(false);
+        }
+        pending.forEach(entry -> entry.done().complete(entry.sequence()));
+        pending.clear();
+        bytes.reset();
+    }
+
+    // a segment that already has this name holds no readable records past lastSequence, so it is safe to truncate
+    private FileChannel openSegment(long firstSequence) throws IOException {
+        Path path = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX));
+        return FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    private static List<Path> segments(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(path -> path.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                    .filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static long firstSequence(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static int checksum(long sequence, byte[] body) {
+        CRC32 crc = new CRC32();
+        crc.update(ByteBuffer.allocate(Long.BYTES).putLong(sequence).array());
+        crc.update(body);
+        return (int) crc.getValue();
+    }
+
+    private record Entry(byte[] body, CompletableFuture<Long> done, long sequence) {
+        Entry(byte[] body, CompletableFuture<Long> done) {
+            this(body, done, 0);
+        }
+
+        Entry withSequence(long sequence) {
+            return new Entry(body, done, sequence);
+        }
+    }
+}
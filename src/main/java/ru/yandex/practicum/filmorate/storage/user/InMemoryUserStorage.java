@@ -1,38 +1,80 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
-import lombok.Getter;
-import lombok.Setter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.InMemoryStorage;
+import ru.yandex.practicum.filmorate.storage.ShardGroup;
+import ru.yandex.practicum.filmorate.storage.persistence.Mutation;
 
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Optional;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import static ru.yandex.practicum.filmorate.util.LongHashSet.intersection;
 
 @Component
-@Getter
-@Setter
-public class InMemoryUserStorage implements UserStorage {
-    private final Map<Long, User> users = new HashMap<>();
+@ConditionalOnProperty(prefix = "filmorate", name = "storage", havingValue = "memory", matchIfMissing = true)
+public class InMemoryUserStorage extends InMemoryStorage<User> implements UserStorage {
+    protected final LongAdder friendCount = new LongAdder();
+
+    public InMemoryUserStorage() {
+        super(Mutation.Type.USER_CREATED, Mutation.Type.USER_UPDATED);
+    }
+
+    public InMemoryUserStorage(ShardGroup group) {
+        super(Mutation.Type.USER_CREATED, Mutation.Type.USER_UPDATED, group);
+    }
+
+    @Override
+    public boolean addFriend(long userId, long friendId) {
+        return write(userId, friendId, () -> befriend(userId, friendId));
+    }
 
     @Override
-    public void create(User user) {
-        users.put(user.getId(), user);
+    public List<Friendship> addFriends(Collection<Friendship> friendships) {
+        return writeAll(friendships, Friendship::userId, Friendship::friendId,
+                friendship -> befriend(friendship.userId(), friendship.friendId()));
     }
 
     @Override
-    public void update(User user) {
-        users.put(user.getId(), user);
+    public boolean deleteFriend(long userId, long friendId) {
+        return write(userId, friendId, () -> {
+            User user = getUser(userId);
+            User friend = getUser(friendId);
+            int removed = (user.getFriends().remove(friendId) ? 1 : 0) + (friend.getFriends().remove(userId) ? 1 : 0);
+            friendCount.add(-removed);
+            return removed > 0 ? Mutation.of(Mutation.Type.FRIEND_DELETED, userId, friendId) : null;
+        });
     }
 
     @Override
-    public Collection<User> getAll() {
-        return users.values();
+    public List<User> getCommonFriends(long userId, long otherId) {
+        return getElements(intersection(getUser(userId).getFriends(), getUser(otherId).getFriends()));
     }
 
     @Override
-    public Optional<User> getElement(Long id) {
-        return Optional.ofNullable(users.get(id));
+    public long getFriendCount() {
+        return friendCount.sum();
+    }
+
+    @Override
+    protected void onWrite(User previous, User user) {
+        friendCount.add(user.getFriends().size() - (previous == null ? 0 : previous.getFriends().size()));
+    }
+
+    private Mutation befriend(long userId, long friendId) {
+        User user = getUser(userId);
+        User friend = getUser(friendId);
+        int added = (user.getFriends().add(friendId) ? 1 : 0) + (friend.getFriends().add(userId) ? 1 : 0);
+        friendCount.add(added);
+        return added > 0 ? Mutation.of(Mutation.Type.FRIEND_ADDED, userId, friendId) : null;
+    }
+
+    private User getUser(long id) {
+        return getElement(id)
+                .orElseThrow(() -> new NotFoundException("не найден пользователь с id: " + id));
     }
 }
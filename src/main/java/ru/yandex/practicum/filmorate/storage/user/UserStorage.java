@@ -1,7 +1,29 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.Storage;
 
+import java.util.Collection;
+import java.util.List;
+
 public interface UserStorage extends Storage<User> {
+    // true if either side of the friendship was missing
+    boolean addFriend(long userId, long friendId);
+
+    // the friendships that were not there yet
+    List<Friendship> addFriends(Collection<Friendship> friendships);
+
+    // true if either side of the friendship existed
+    boolean deleteFriend(long userId, long friendId);
+
+    List<User> getCommonFriends(long userId, long otherId);
+
+    // total number of friend list entries; a friendship counts once on each side
+    long getFriendCount();
+
+    @Override
+    default UserStorage snapshot() {
+        return this;
+    }
 }
@@ -0,0 +1,115 @@
+package ru.yandex.practicum.filmorate.storage.versioned;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.persistence.Mutation;
+import ru.yandex.practicum.filmorate.util.PersistentLongMap;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+// The popularity ranking is a second persistent map in the same state: one map of films by id per like count, keyed
+// so that its key order is the ranking order, more likes first, and within it lower ids first. A like copies the
+// film with its like set and moves it to the next map.
+@Component
+@ConditionalOnProperty(prefix = "filmorate", name = "storage", havingValue = "versioned")
+public class VersionedFilmStorage extends VersionedStorage<Film, VersionedFilmStorage.Films> implements FilmStorage {
+    public VersionedFilmStorage() {
+        super(Mutation.Type.FILM_CREATED, Mutation.Type.FILM_UPDATED, Films.EMPTY);
+    }
+
+    private VersionedFilmStorage(Films state) {
+        super(Mutation.Type.FILM_CREATED, Mutation.Type.FILM_UPDATED, state, true);
+    }
+
+    @Override
+    public FilmStorage snapshot() {
+        return new VersionedFilmStorage(current());
+    }
+
+    @Override
+    public boolean addLike(long filmId, long userId) {
+        return write(state -> like(state, filmId, userId, true));
+    }
+
+    @Override
+    public List<Like> addLikes(Collection<Like> likes) {
+        return writeAll(likes, (state, like) -> like(state, like.filmId(), like.userId(), true));
+    }
+
+    @Override
+    public boolean deleteLike(long filmId, long userId) {
+        return write(state -> like(state, filmId, userId, false));
+    }
+
+    @Override
+    public List<Film> getPopular(int count) {
+        List<Film> popular = new ArrayList<>();
+        current().ranking().forEachAfter(-1, films -> {
+            popular.addAll(films.page(-1, count - popular.size()));
+            return popular.size() < count;
+        });
+        return popular;
+    }
+
+    @Override
+    public long getLikeCount() {
+        return current().likes();
+    }
+
+    @Override
+    protected Film copy(Film film) {
+        return new Film(film.getId(), film.getName(), film.getDescription(), film.getReleaseDate(),
+                film.getDuration(), film.getLikes().copy());
+    }
+
+    @Override
+    protected Films replace(Films state, Film previous, Film film, long version) {
+        PersistentLongMap<PersistentLongMap<Film>> ranking = previous == null ? state.ranking()
+                : rank(state.ranking(), previous, films -> films.remove(previous.getId()));
+        int before = previous == null ? 0 : previous.getLikes().size();
+        return new Films(state.elements().put(film.getId(), film),
+                rank(ranking, film, films -> films.put(film.getId(), film)),
+                state.likes() + film.getLikes().size() - before, version);
+    }
+
+    // the like set is checked first, so a like that changes nothing copies nothing
+    private Change<Films> like(Films state, long filmId, long userId, boolean added) {
+        Film film = state.elements().get(filmId);
+        if (film == null) {
+            throw new NotFoundException("не найден фильм с id: " + filmId);
+        }
+        if (film.getLikes().contains(userId) == added) {
+            return null;
+        }
+        Film next = copy(film);
+        if (added) {
+            next.getLikes().add(userId);
+        } else {
+            next.getLikes().remove(userId);
+        }
+        Mutation.Type type = added ? Mutation.Type.LIKE_ADDED : Mutation.Type.LIKE_DELETED;
+        return new Change<>(replace(state, film, next), Mutation.of(type, filmId, userId));
+    }
+
+    // changes the films with the film's like count, dropping the map once it is empty
+    private static PersistentLongMap<PersistentLongMap<Film>> rank(PersistentLongMap<PersistentLongMap<Film>> ranking,
+            Film film, UnaryOperator<PersistentLongMap<Film>> change) {
+        long key = Integer.MAX_VALUE - film.getLikes().size();
+        PersistentLongMap<Film> films = ranking.get(key);
+        films = change.apply(films == null ? PersistentLongMap.empty() : films);
+        return films.size() == 0 ? ranking.remove(key) : ranking.put(key, films);
+    }
+
+    // films by id, the same films by like count and id, and the total of their likes
+    protected record Films(PersistentLongMap<Film> elements, PersistentLongMap<PersistentLongMap<Film>> ranking,
+            long likes, long version) implements State<Film> {
+        static final Films EMPTY = new Films(PersistentLongMap.empty(), PersistentLongMap.empty(), 0, 0);
+    }
+}
@@ -0,0 +1,207 @@
+package ru.yandex.practicum.filmorate.storage.versioned;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import lombok.Setter;
+import ru.yandex.practicum.filmorate.model.StorageData;
+import ru.yandex.practicum.filmorate.storage.ChangeListener;
+import ru.yandex.practicum.filmorate.storage.IdGenerator;
+import ru.yandex.practicum.filmorate.storage.Storage;
+import ru.yandex.practicum.filmorate.storage.persistence.Mutation;
+import ru.yandex.practicum.filmorate.storage.persistence.MutationLog;
+import ru.yandex.practicum.filmorate.storage.persistence.MutationLogAware;
+import ru.yandex.practicum.filmorate.util.PersistentLongMap;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+// Multi-version storage: the whole collection is one immutable state in a volatile field. A reader takes the current
+// state and answers from it without locking, however long it takes; writers take turns on one lock, build the next
+// state from copies of the elements they change over persistent maps that share everything else with the previous
+// state, and publish it with a single write. Stored elements are never modified after they are published, and a
+// state no reader holds any more is garbage like any other object.
+public abstract class VersionedStorage<T extends StorageData, S extends VersionedStorage.State<T>>
+        implements Storage<T>, MutationLogAware {
+    private final IdGenerator idGenerator;
+    private final Mutation.Type createdType;
+    private final Mutation.Type updatedType;
+    private final Lock writeLock = new ReentrantLock();
+    private final Timer writeTimer;
+    // a snapshot view: reads answer from this state forever and writes are refused
+    private final boolean frozen;
+    private volatile S current;
+
+    @Setter
+    private volatile MutationLog mutationLog = MutationLog.NOOP;
+    @Setter
+    private volatile ChangeListener changeListener = ChangeListener.NOOP;
+
+    protected VersionedStorage(Mutation.Type createdType, Mutation.Type updatedType, S initial) {
+        this(createdType, updatedType, initial, false);
+    }
+
+    protected VersionedStorage(Mutation.Type createdType, Mutation.Type updatedType, S state, boolean frozen) {
+        this.idGenerator = new IdGenerator();
+        this.createdType = createdType;
+        this.updatedType = updatedType;
+        this.current = state;
+        this.frozen = frozen;
+        this.writeTimer = Timer.builder("filmorate.storage.writes")
+                .description("время записи, включая ожидание блокировки и журнала изменений")
+                .tag("entity", createdType.getEntityType().getSimpleName().toLowerCase())
+                .register(Metrics.globalRegistry);
+    }
+
+    @Override
+    public void create(T element) {
+        createAll(List.of(element));
+    }
+
+    @Override
+    public void createAll(Collection<T> elements) {
+        writeAll(elements, (state, element) -> {
+            idGenerator.observe(element.getId());
+            T stored = copy(element);
+            return new Change<>(replace(state, state.elements().get(element.getId()), stored),
+                    Mutation.of(createdType, stored));
+        });
+    }
+
+    @Override
+    public void update(T element) {
+        write(state -> {
+            T stored = copy(element);
+            return new Change<>(replace(state, state.elements().get(element.getId()), stored),
+                    Mutation.of(updatedType, stored));
+        });
+    }
+
+    // the elements of one state: nothing written later shows up in it, so it needs no copy
+    @Override
+    public Collection<T> getAll() {
+        return current.elements().values();
+    }
+
+    @Override
+    public List<T> getPage(long after, int limit) {
+        return current.elements().page(after, limit);
+    }
+
+    @Override
+    public Optional<T> getElement(Long id) {
+        return Optional.ofNullable(current.elements().get(id));
+    }
+
+    // every id is looked up in one state
+    @Override
+    public List<T> getElements(long[] ids) {
+        PersistentLongMap<T> elements = current.elements();
+        List<T> found = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            T element = elements.get(id);
+            if (element != null) {
+                found.add(element);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public long nextId() {
+        checkWritable();
+        return idGenerator.next();
+    }
+
+    @Override
+    public long reserveIds(int count) {
+        checkWritable();
+        return idGenerator.reserve(count);
+    }
+
+    @Override
+    public long size() {
+        return current.elements().size();
+    }
+
+    @Override
+    public long version() {
+        return current.version();
+    }
+
+    protected S current() {
+        return current;
+    }
+
+    // a deep copy: later changes to the argument must not reach the stored element, nor the other way round
+    protected abstract T copy(T element);
+
+    // The state with the element stored under its id in place of previous (null for a new one), both stamped with
+    // the given version; subclasses keep their indexes and counters in step here.
+    protected abstract S replace(S state, T previous, T element, long version);
+
+    protected S replace(S state, T previous, T element) {
+        long version = state.version() + 1;
+        element.setVersion(version);
+        return replace(state, previous, element, version);
+    }
+
+    // a change builds on the state it is given and returns the next one with its mutation, or null for no change;
+    // write returns whether there was one
+    protected boolean write(Function<S, Change<S>> change) {
+        return !writeAll(List.of(change), (state, item) -> item.apply(state)).isEmpty();
+    }
+
+    // The whole batch is applied under one lock hold and published once, so readers see all of it or none; records
+    // reach the log in apply order inside the critical section, and durability is awaited after the lock is
+    // released. A change that throws still publishes the ones before it, which are already in the log. Returns the
+    // items that changed something.
+    protected <E> List<E> writeAll(Collection<E> items, BiFunction<S, E, Change<S>> change) {
+        checkWritable();
+        long start = System.nanoTime();
+        List<CompletableFuture<Long>> commits = new ArrayList<>(items.size());
+        List<E> changed = new ArrayList<>();
+        writeLock.lock();
+        S state = current;
+        try {
+            for (E item : items) {
+                Change<S> applied = change.apply(state, item);
+                if (applied != null) {
+                    state = applied.state();
+                    changeListener.onChange(applied.mutation(), state.elements().get(applied.mutation().id()));
+                    commits.add(mutationLog.append(applied.mutation()));
+                    changed.add(item);
+                }
+            }
+        } finally {
+            current = state;
+            writeLock.unlock();
+        }
+        CompletableFuture.allOf(commits.toArray(CompletableFuture<?>[]::new)).join();
+        writeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return changed;
+    }
+
+    private void checkWritable() {
+        if (frozen) {
+            throw new UnsupportedOperationException("снимок хранилища доступен только для чтения");
+        }
+    }
+
+    // elements by id and the version of the last change
+    protected interface State<T> {
+        PersistentLongMap<T> elements();
+
+        long version();
+    }
+
+    protected record Change<S>(S state, Mutation mutation) {
+    }
+}
@@ -0,0 +1,119 @@
+package ru.yandex.practicum.filmorate.storage.versioned;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.persistence.Mutation;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.util.PersistentLongMap;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+import static ru.yandex.practicum.filmorate.util.LongHashSet.intersection;
+
+// A friendship change copies both users with their friend sets into the next state, under one version.
+@Component
+@ConditionalOnProperty(prefix = "filmorate", name = "storage", havingValue = "versioned")
+public class VersionedUserStorage extends VersionedStorage<User, VersionedUserStorage.Users> implements UserStorage {
+    public VersionedUserStorage() {
+        super(Mutation.Type.USER_CREATED, Mutation.Type.USER_UPDATED, Users.EMPTY);
+    }
+
+    private VersionedUserStorage(Users state) {
+        super(Mutation.Type.USER_CREATED, Mutation.Type.USER_UPDATED, state, true);
+    }
+
+    @Override
+    public UserStorage snapshot() {
+        return new VersionedUserStorage(current());
+    }
+
+    @Override
+    public boolean addFriend(long userId, long friendId) {
+        return write(state -> friendship(state, userId, friendId, true));
+    }
+
+    @Override
+    public List<Friendship> addFriends(Collection<Friendship> friendships) {
+        return writeAll(friendships,
+                (state, friendship) -> friendship(state, friendship.userId(), friendship.friendId(), true));
+    }
+
+    @Override
+    public boolean deleteFriend(long userId, long friendId) {
+        return write(state -> friendship(state, userId, friendId, false));
+    }
+
+    // both users come from one state, so the answer is consistent even while friendships change
+    @Override
+    public List<User> getCommonFriends(long userId, long otherId) {
+        Users state = current();
+        return Arrays.stream(intersection(getUser(state, userId).getFriends(), getUser(state, otherId).getFriends()))
+                .mapToObj(state.elements()::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    @Override
+    public long getFriendCount() {
+        return current().friends();
+    }
+
+    @Override
+    protected User copy(User user) {
+        return new User(user.getId(), user.getEmail(), user.getLogin(), user.getName(), user.getBirthday(),
+                user.getFriends().copy());
+    }
+
+    @Override
+    protected Users replace(Users state, User previous, User user, long version) {
+        int before = previous == null ? 0 : previous.getFriends().size();
+        return new Users(state.elements().put(user.getId(), user),
+                state.friends() + user.getFriends().size() - before, version);
+    }
+
+    private Change<Users> friendship(Users state, long userId, long friendId, boolean added) {
+        User user = getUser(state, userId);
+        User friend = getUser(state, friendId);
+        if (user.getFriends().contains(friendId) == added && friend.getFriends().contains(userId) == added) {
+            return null;
+        }
+        Users next = replace(state, user, link(user, friendId, added));
+        // both sides of one friendship share its version
+        if (friendId != userId) {
+            User linked = link(friend, userId, added);
+            linked.setVersion(next.version());
+            next = replace(next, friend, linked, next.version());
+        }
+        Mutation.Type type = added ? Mutation.Type.FRIEND_ADDED : Mutation.Type.FRIEND_DELETED;
+        return new Change<>(next, Mutation.of(type, userId, friendId));
+    }
+
+    private User link(User user, long otherId, boolean added) {
+        User next = copy(user);
+        if (added) {
+            next.getFriends().add(otherId);
+        } else {
+            next.getFriends().remove(otherId);
+        }
+        return next;
+    }
+
+    private static User getUser(Users state, long id) {
+        User user = state.elements().get(id);
+        if (user == null) {
+            throw new NotFoundException("не найден пользователь с id: " + id);
+        }
+        return user;
+    }
+
+    // users by id and the total size of their friend lists
+    protected record Users(PersistentLongMap<User> elements, long friends, long version) implements State<User> {
+        static final Users EMPTY = new Users(PersistentLongMap.empty(), 0, 0);
+    }
+}
@@ -0,0 +1,13 @@
+package ru.yandex.practicum.filmorate.util;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+// A random id of this process. Storage versions and change sequence numbers restart with the process, so whatever
+// hands them out to clients prefixes them with the epoch, and a value issued before a restart never matches after it.
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class Epoch {
+    public static final String CURRENT = Long.toHexString(ThreadLocalRandom.current().nextLong());
+}
@@ -0,0 +1,250 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+// Compressed set of non-negative ints in the layout of Roaring bitmaps: values are split into chunks by their high
+// 16 bits, a chunk of up to 4096 values is a sorted char[] (2 bytes per value) and a fuller one a 1024-word bitmap
+// (8 KB). Sparse and dense sets both stay compact, and intersections go chunk by chunk with word-wide ANDs where
+// both chunks are dense. Not synchronized: the owner guards it.
+public class IntBitmap {
+    private static final int ARRAY_MAX = 4096;
+    private static final int BITMAP_WORDS = 1024;
+
+    private char[] keys = new char[0];
+    // char[] (sorted, sizes[i] values used) or long[BITMAP_WORDS]
+    private Object[] chunks = new Object[0];
+    private int[] sizes = new int[0];
+    private int chunkCount;
+    private int cardinality;
+
+    public boolean add(int value) {
+        checkValue(value);
+        char key = (char) (value >>> 16);
+        char low = (char) value;
+        int i = chunkIndex(key);
+        if (i < 0) {
+            i = -i - 1;
+            insertChunk(i, key);
+        }
+        boolean added;
+        if (chunks[i] instanceof long[] bits) {
+            added = (bits[low >>> 6] & 1L << low) == 0;
+            bits[low >>> 6] |= 1L << low;
+        } else {
+            char[] values = (char[]) chunks[i];
+            int pos = Arrays.binarySearch(values, 0, sizes[i], low);
+            added = pos < 0;
+            if (added && sizes[i] == ARRAY_MAX) {
+                long[] bits = toBitmap(values, sizes[i]);
+                bits[low >>> 6] |= 1L << low;
+                chunks[i] = bits;
+            } else if (added) {
+                pos = -pos - 1;
+                if (sizes[i] == values.length) {
+                    values = Arrays.copyOf(values, Math.min(ARRAY_MAX, values.length * 2));
+                    chunks[i] = values;
+                }
+                System.arraycopy(values, pos, values, pos + 1, sizes[i] - pos);
+                values[pos] = low;
+            }
+        }
+        if (added) {
+            sizes[i]++;
+            cardinality++;
+        }
+        return added;
+    }
+
+    public boolean remove(int value) {
+        if (value < 0) {
+            return false;
+        }
+        char low = (char) value;
+        int i = chunkIndex((char) (value >>> 16));
+        if (i < 0) {
+            return false;
+        }
+        if (chunks[i] instanceof long[] bits) {
+            if ((bits[low >>> 6] & 1L << low) == 0) {
+                return false;
+            }
+            bits[low >>> 6] &= ~(1L << low);
+            if (sizes[i] - 1 == ARRAY_MAX) {
+                chunks[i] = toArray(bits, ARRAY_MAX);
+            }
+        } else {
+            char[] values = (char[]) chunks[i];
+            int pos = Arrays.binarySearch(values, 0, sizes[i], low);
+            if (pos < 0) {
+                return false;
+            }
+            System.arraycopy(values, pos + 1, values, pos, sizes[i] - pos - 1);
+        }
+        cardinality--;
+        if (--sizes[i] == 0) {
+            removeChunk(i);
+        }
+        return true;
+    }
+
+    public boolean contains(int value) {
+        if (value < 0) {
+            return false;
+        }
+        int i = chunkIndex((char) (value >>> 16));
+        return i >= 0 && contains(chunks[i], sizes[i], (char) value);
+    }
+
+    public int cardinality() {
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return cardinality == 0;
+    }
+
+    // |this ∩ other| without materializing the intersection
+    public int andCardinality(IntBitmap other) {
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < chunkCount && j < other.chunkCount) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                count += andCardinality(chunks[i], sizes[i], other.chunks[j], other.sizes[j]);
+                i++;
+                j++;
+            }
+        }
+        return count;
+    }
+
+    // values in ascending order
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < chunkCount; i++) {
+            int high = keys[i] << 16;
+            if (chunks[i] instanceof long[] bits) {
+                for (int word = 0; word < BITMAP_WORDS; word++) {
+                    long w = bits[word];
+                    while (w != 0) {
+                        action.accept(high | word << 6 | Long.numberOfTrailingZeros(w));
+                        w &= w - 1;
+                    }
+                }
+            } else {
+                char[] values = (char[]) chunks[i];
+                for (int k = 0; k < sizes[i]; k++) {
+                    action.accept(high | values[k]);
+                }
+            }
+        }
+    }
+
+    public int[] toArray() {
+        int[] result = new int[cardinality];
+        int[] next = {0};
+        forEach(value -> result[next[0]++] = value);
+        return result;
+    }
+
+    private static boolean contains(Object chunk, int size, char low) {
+        if (chunk instanceof long[] bits) {
+            return (bits[low >>> 6] & 1L << low) != 0;
+        }
+        return Arrays.binarySearch((char[]) chunk, 0, size, low) >= 0;
+    }
+
+    private static int andCardinality(Object a, int aSize, Object b, int bSize) {
+        if (a instanceof long[] aBits && b instanceof long[] bBits) {
+            int count = 0;
+            for (int word = 0; word < BITMAP_WORDS; word++) {
+                count += Long.bitCount(aBits[word] & bBits[word]);
+            }
+            return count;
+        }
+        if (a instanceof long[]) {
+            return andCardinality(b, bSize, a, aSize);
+        }
+        char[] values = (char[]) a;
+        int count = 0;
+        if (b instanceof long[] bits) {
+            for (int k = 0; k < aSize; k++) {
+                count += (int) (bits[values[k] >>> 6] >>> values[k]) & 1;
+            }
+            return count;
+        }
+        char[] other = (char[]) b;
+        int i = 0;
+        int j = 0;
+        while (i < aSize && j < bSize) {
+            if (values[i] < other[j]) {
+                i++;
+            } else if (values[i] > other[j]) {
+                j++;
+            } else {
+                count++;
+                i++;
+                j++;
+            }
+        }
+        return count;
+    }
+
+    private int chunkIndex(char key) {
+        return Arrays.binarySearch(keys, 0, chunkCount, key);
+    }
+
+    private void insertChunk(int i, char key) {
+        if (chunkCount == keys.length) {
+            int capacity = Math.max(4, chunkCount * 2);
+            keys = Arrays.copyOf(keys, capacity);
+            chunks = Arrays.copyOf(chunks, capacity);
+            sizes = Arrays.copyOf(sizes, capacity);
+        }
+        System.arraycopy(keys, i, keys, i + 1, chunkCount - i);
+        System.arraycopy(chunks, i, chunks, i + 1, chunkCount - i);
+        System.arraycopy(sizes, i, sizes, i + 1, chunkCount - i);
+        keys[i] = key;
+        chunks[i] = new char[4];
+        sizes[i] = 0;
+        chunkCount++;
+    }
+
+    private void removeChunk(int i) {
+        System.arraycopy(keys, i + 1, keys, i, chunkCount - i - 1);
+        System.arraycopy(chunks, i + 1, chunks, i, chunkCount - i - 1);
+        System.arraycopy(sizes, i + 1, sizes, i, chunkCount - i - 1);
+        chunks[--chunkCount] = null;
+    }
+
+    private static long[] toBitmap(char[] values, int size) {
+        long[] bits = new long[BITMAP_WORDS];
+        for (int k = 0; k < size; k++) {
+            bits[values[k] >>> 6] |= 1L << values[k];
+        }
+        return bits;
+    }
+
+    private static char[] toArray(long[] bits, int size) {
+        char[] values = new char[size];
+        int k = 0;
+        for (int word = 0; word < BITMAP_WORDS; word++) {
+            long w = bits[word];
+            while (w != 0) {
+                values[k++] = (char) (word << 6 | Long.numberOfTrailingZeros(w));
+                w &= w - 1;
+            }
+        }
+        return values;
+    }
+
+    private static void checkValue(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("отрицательное значение: " + value);
+        }
+    }
+}
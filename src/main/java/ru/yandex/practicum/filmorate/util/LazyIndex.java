@@ -0,0 +1,86 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// A derived structure that the first reader builds from the storage and that changes then keep current in place.
+// The storage is read without blocking writers: changes made meanwhile are queued and replayed on top, so a change
+// must leave the same result when applied to state that already includes it. Before the first read changes are
+// dropped, since the load sees them anyway.
+public class LazyIndex<T> {
+    private final Supplier<T> loader;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Lock loadLock = new ReentrantLock();
+    // guarded by lock
+    private T index;
+    private List<Consumer<T>> pending;
+
+    public LazyIndex(Supplier<T> loader) {
+        this.loader = loader;
+    }
+
+    // the query runs under the read lock, which every change waits for, so it should take what it needs and return
+    public <R> R read(Function<T, R> query) {
+        load();
+        lock.readLock().lock();
+        try {
+            return query.apply(index);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void change(Consumer<T> change) {
+        lock.writeLock().lock();
+        try {
+            if (index != null) {
+                change.accept(index);
+            } else if (pending != null) {
+                pending.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void load() {
+        lock.readLock().lock();
+        try {
+            if (index != null) {
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        loadLock.lock();
+        try {
+            lock.writeLock().lock();
+            try {
+                if (index != null) {
+                    return;
+                }
+                pending = new ArrayList<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            T loaded = loader.get();
+            lock.writeLock().lock();
+            try {
+                pending.forEach(change -> change.accept(loaded));
+                pending = null;
+                index = loaded;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            loadLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package ru.yandex.practicum.filmorate.util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.LongConsumer;
+
+// open-addressing set of primitive longs (linear probing), about 17 bytes per element (16.8 measured with 2M ids)
+// instead of 64 in HashSet<Long>.
+// All methods are synchronized; iteration walks a snapshot, so readers never see ConcurrentModificationException.
+@JsonSerialize(using = LongHashSet.Serializer.class)
+public class LongHashSet extends AbstractSet<Long> {
+    private static final long FREE = 0L;
+    private static final float LOAD_FACTOR = 0.75f;
+    private static final int MIN_CAPACITY = 4;
+
+    private long[] keys;
+    private boolean containsFree;
+    private int size;
+    private int mask;
+    private int maxFill;
+
+    public LongHashSet() {
+        this(MIN_CAPACITY);
+    }
+
+    public LongHashSet(int expectedSize) {
+        allocate(tableSize(expectedSize));
+    }
+
+    public LongHashSet(Collection<Long> source) {
+        this(source.size());
+        source.forEach(this::add);
+    }
+
+    // an independent set with the same elements, made by copying the table rather than re-adding them
+    public synchronized LongHashSet copy() {
+        LongHashSet copy = new LongHashSet();
+        copy.keys = keys.clone();
+        copy.containsFree = containsFree;
+        copy.size = size;
+        copy.mask = mask;
+        copy.maxFill = maxFill;
+        return copy;
+    }
+
+    public synchronized boolean add(long key) {
+        if (key == FREE) {
+            if (containsFree) {
+                return false;
+            }
+            containsFree = true;
+            size++;
+            return true;
+        }
+        int pos = slot(key);
+        while (keys[pos] != FREE) {
+            if (keys[pos] == key) {
+                return false;
+            }
+            pos = (pos + 1) & mask;
+        }
+        keys[pos] = key;
+        if (++size >= maxFill) {
+            rehash(keys.length * 2);
+        }
+        return true;
+    }
+
+    public synchronized boolean contains(long key) {
+        if (key == FREE) {
+            return containsFree;
+        }
+        int pos = slot(key);
+        while (keys[pos] != FREE) {
+            if (keys[pos] == key) {
+                return true;
+            }
+            pos = (pos + 1) & mask;
+        }
+        return false;
+    }
+
+    public synchronized boolean remove(long key) {
+        if (key == FREE) {
+            if (!containsFree) {
+                return false;
+            }
+            containsFree = false;
+            size--;
+            return true;
+        }
+        int pos = slot(key);
+        while (keys[pos] != FREE) {
+            if (keys[pos] == key) {
+                size--;
+                shiftKeys(pos);
+                return true;
+            }
+            pos = (pos + 1) & mask;
+        }
+        return false;
+    }
+
+    public synchronized long[] toLongArray() {
+        long[] result = new long[size];
+        int i = 0;
+        if (containsFree) {
+            result[i++] = FREE;
+        }
+        for (long key : keys) {
+            if (key != FREE) {
+                result[i++] = key;
+            }
+        }
+        return result;
+    }
+
+    // keeps the candidates that are present in this set; one lock acquisition for the whole batch
+    public synchronized long[] retainPresent(long[] candidates) {
+        long[] result = new long[Math.min(candidates.length, size)];
+        int found = 0;
+        for (long candidate : candidates) {
+            if (found < result.length && contains(candidate)) {
+                result[found++] = candidate;
+            }
+        }
+        return found == result.length ? result : Arrays.copyOf(result, found);
+    }
+
+    // probes the smaller set into the larger one, so the cost is O(min(|a|, |b|)); neither set is modified
+    public static long[] intersection(LongHashSet a, LongHashSet b) {
+        LongHashSet smaller = a.size() <= b.size() ? a : b;
+        LongHashSet larger = smaller == a ? b : a;
+        return larger.retainPresent(smaller.toLongArray());
+    }
+
+    public void forEachLong(LongConsumer action) {
+        for (long key : toLongArray()) {
+            action.accept(key);
+        }
+    }
+
+    @Override
+    public boolean add(Long key) {
+        return add(key.longValue());
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Long key && contains(key.longValue());
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return o instanceof Long key && remove(key.longValue());
+    }
+
+    @Override
+    public synchronized int size() {
+        return size;
+    }
+
+    @Override
+    public synchronized void clear() {
+        allocate(MIN_CAPACITY);
+        containsFree = false;
+        size = 0;
+    }
+
+    @Override
+    public Iterator<Long> iterator() {
+        long[] snapshot = toLongArray();
+        return new Iterator<>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < snapshot.length;
+            }
+
+            @Override
+            public Long next() {
+                if (next >= snapshot.length) {
+                    throw new NoSuchElementException();
+                }
+                return snapshot[next++];
+            }
+
+            @Override
+            public void remove() {
+                if (next == 0) {
+                    throw new IllegalStateException();
+                }
+                LongHashSet.this.remove(snapshot[next - 1]);
+            }
+        };
+    }
+
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    // backward-shift deletion: closes the gap so that probe chains stay unbroken without tombstones
+    private void shiftKeys(int pos) {
+        while (true) {
+            int last = pos;
+            pos = (pos + 1) & mask;
+            long current;
+            while (true) {
+                current = keys[pos];
+                if (current == FREE) {
+                    keys[last] = FREE;
+                    return;
+                }
+                int ideal = slot(current);
+                if (last <= pos ? last >= ideal || ideal > pos : last >= ideal && ideal > pos) {
+                    break;
+                }
+                pos = (pos + 1) & mask;
+            }
+            keys[last] = current;
+        }
+    }
+
+    private void rehash(int capacity) {
+        long[] old = keys;
+        allocate(capacity);
+        for (long key : old) {
+            if (key != FREE) {
+                int pos = slot(key);
+                while (keys[pos] != FREE) {
+                    pos = (pos + 1) & mask;
+                }
+                keys[pos] = key;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        mask = capacity - 1;
+        maxFill = Math.min(capacity - 1, (int) Math.ceil(capacity * LOAD_FACTOR));
+    }
+
+    private static int tableSize(int expectedSize) {
+        int needed = (int) Math.ceil(Math.max(expectedSize, MIN_CAPACITY) / LOAD_FACTOR) + 1;
+        return Integer.highestOneBit(needed - 1) << 1;
+    }
+
+    public static class Serializer extends StdSerializer<LongHashSet> {
+        public Serializer() {
+            super(LongHashSet.class);
+        }
+
+        @Override
+        public void serialize(LongHashSet value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            long[] array = value.toLongArray();
+            gen.writeArray(array, 0, array.length);
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.Predicate;
+
+// Immutable map from non-negative long keys to values: a 32-way trie over the key's bits with bitmap-compressed
+// nodes, so values iterate in key order and dense ids take about one slot each. put and remove return a new map
+// that shares every node off the changed path with this one, which stays valid: a writer builds the next version
+// while readers keep using theirs, and a version nobody references any more is collected as ordinary garbage.
+public final class PersistentLongMap<V> implements Iterable<V> {
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    private static final int MAX_DEPTH = (Long.SIZE + BITS - 1) / BITS;
+    private static final PersistentLongMap<?> EMPTY = new PersistentLongMap<>(null, 0, 0);
+
+    private final Node root;
+    // bit offset of the root's slot index: the trie holds keys below 2^(shift + BITS)
+    private final int shift;
+    private final int size;
+
+    private PersistentLongMap(Node root, int shift, int size) {
+        this.root = root;
+        this.shift = shift;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <V> PersistentLongMap<V> empty() {
+        return (PersistentLongMap<V>) EMPTY;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        if (root == null || key < 0 || !fits(key, shift)) {
+            return null;
+        }
+        Node node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            node = (Node) node.get(index(key, level));
+            if (node == null) {
+                return null;
+            }
+        }
+        return (V) node.get(index(key, 0));
+    }
+
+    public PersistentLongMap<V> put(long key, V value) {
+        Objects.requireNonNull(value);
+        if (key < 0) {
+            throw new IllegalArgumentException("ключ не может быть отрицательным: " + key);
+        }
+        Node top = root == null ? Node.EMPTY : root;
+        int level = shift;
+        while (!fits(key, level)) {
+            top = top == Node.EMPTY ? top : Node.EMPTY.with(0, top);
+            level += BITS;
+        }
+        int grown = get(key) == null ? size + 1 : size;
+        return new PersistentLongMap<>(put(top, level, key, value), level, grown);
+    }
+
+    public PersistentLongMap<V> remove(long key) {
+        if (get(key) == null) {
+            return this;
+        }
+        Node next = remove(root, shift, key);
+        return next == null ? empty() : new PersistentLongMap<>(next, shift, size - 1);
+    }
+
+    // values with keys above after, in key order, until the action returns false
+    public void forEachAfter(long after, Predicate<? super V> action) {
+        long from = Math.max(0, after + 1);
+        if (root != null && after != Long.MAX_VALUE && fits(from, shift)) {
+            walk(root, shift, from, true, action);
+        }
+    }
+
+    public List<V> page(long after, int limit) {
+        List<V> page = new ArrayList<>(Math.min(limit, size));
+        if (limit > 0) {
+            forEachAfter(after, value -> page.add(value) && page.size() < limit);
+        }
+        return page;
+    }
+
+    // a read-only view in key order; it never changes, however the map it came from is updated
+    public Collection<V> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<V> iterator() {
+                return PersistentLongMap.this.iterator();
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public Iterator<V> iterator() {
+        return new ValueIterator();
+    }
+
+    private static boolean fits(long key, int level) {
+        return level + BITS >= Long.SIZE || key >>> (level + BITS) == 0;
+    }
+
+    private static int index(long key, int level) {
+        return (int) (key >>> level) & MASK;
+    }
+
+    private static Node put(Node node, int level, long key, Object value) {
+        int i = index(key, level);
+        if (level == 0) {
+            return node.with(i, value);
+        }
+        Node child = (Node) node.get(i);
+        return node.with(i, put(child == null ? Node.EMPTY : child, level - BITS, key, value));
+    }
+
+    // null when the node is left empty
+    private static Node remove(Node node, int level, long key) {
+        int i = index(key, level);
+        if (level == 0) {
+            return node.without(i);
+        }
+        Node child = remove((Node) node.get(i), level - BITS, key);
+        return child == null ? node.without(i) : node.with(i, child);
+    }
+
+    // only the nodes on the path of from skip the slots below it; every other subtree is walked whole
+    @SuppressWarnings("unchecked")
+    private static <V> boolean walk(Node node, int level, long from, boolean bounded, Predicate<? super V> action) {
+        int start = bounded ? index(from, level) : 0;
+        int bits = node.bitmap & (-1 << start);
+        int position = Integer.bitCount(node.bitmap & ~(-1 << start));
+        while (bits != 0) {
+            int i = Integer.numberOfTrailingZeros(bits);
+            bits &= bits - 1;
+            Object slot = node.slots[position++];
+            boolean more = level == 0
+                    ? action.test((V) slot)
+                    : walk((Node) slot, level - BITS, from, bounded && i == start, action);
+            if (!more) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // A node's present slots, compacted in index order: bit i of the bitmap tells whether slot i is present, and
+    // its value sits at the number of present slots below it. Every change returns a copy.
+    private static final class Node {
+        static final Node EMPTY = new Node(0, new Object[0]);
+
+        final int bitmap;
+        final Object[] slots;
+
+        Node(int bitmap, Object[] slots) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+
+        Object get(int i) {
+            int bit = 1 << i;
+            return (bitmap & bit) == 0 ? null : slots[Integer.bitCount(bitmap & (bit - 1))];
+        }
+
+        Node with(int i, Object value) {
+            int bit = 1 << i;
+            int position = Integer.bitCount(bitmap & (bit - 1));
+            if ((bitmap & bit) != 0) {
+                Object[] copy = slots.clone();
+                copy[position] = value;
+                return new Node(bitmap, copy);
+            }
+            Object[] copy = new Object[slots.length + 1];
+            System.arraycopy(slots, 0, copy, 0, position);
+            copy[position] = value;
+            System.arraycopy(slots, position, copy, position + 1, slots.length - position);
+            return new Node(bitmap | bit, copy);
+        }
+
+        Node without(int i) {
+            int bit = 1 << i;
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            if (slots.length == 1) {
+                return null;
+            }
+            int position = Integer.bitCount(bitmap & (bit - 1));
+            Object[] copy = new Object[slots.length - 1];
+            System.arraycopy(slots, 0, copy, 0, position);
+            System.arraycopy(slots, position + 1, copy, position, copy.length - position);
+            return new Node(bitmap & ~bit, copy);
+        }
+    }
+
+    // depth-first over the compacted slots, one (node, position) pair per level on an explicit stack
+    private final class ValueIterator implements Iterator<V> {
+        private final Node[] nodes = new Node[MAX_DEPTH];
+        private final int[] positions = new int[MAX_DEPTH];
+        private final int leaf = shift / BITS;
+        private int depth;
+        private Object next;
+
+        ValueIterator() {
+            nodes[0] = root;
+            depth = root == null ? -1 : 0;
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            V value = (V) next;
+            advance();
+            return value;
+        }
+
+        private void advance() {
+            next = null;
+            while (depth >= 0) {
+                Node node = nodes[depth];
+                if (positions[depth] == node.slots.length) {
+                    depth--;
+                    continue;
+                }
+                Object slot = node.slots[positions[depth]++];
+                if (depth == leaf) {
+                    next = slot;
+                    return;
+                }
+                depth++;
+                nodes[depth] = (Node) slot;
+                positions[depth] = 0;
+            }
+        }
+    }
+}
@@ -2,22 +2,28 @@ package ru.yandex.practicum.filmorate.util;
 
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
-import ru.yandex.practicum.filmorate.model.StorageData;
-
-import java.util.Collection;
-import java.util.Objects;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
 
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public class Utils {
-    public static long getNextId(final Collection<? extends StorageData> data) {
-        long currentMaxId = data.stream()
-                .map(StorageData::getId)
-                .max(Long::compareTo)
-                .orElse(0L);
-        return ++currentMaxId;
+    public static final int MAX_PAGE_SIZE = 1000;
+    public static final int MAX_BATCH_SIZE = 10_000;
+
+    public static void validatePageLimit(final int limit) {
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new ValidationException("размер страницы должен быть от 1 до " + MAX_PAGE_SIZE);
+        }
+    }
+
+    // Ids from a sequence start at 1 and stay dense, so in-process indexes use them as array indexes directly. Any
+    // other id, given by a client or stored before the sequence, is left out of such an index.
+    public static boolean isDenseId(final long id) {
+        return id > 0 && id <= Integer.MAX_VALUE;
     }
 
-    public static boolean hasId(final Collection<? extends StorageData> data, final Long id) {
-        return data.stream().anyMatch(obj -> Objects.equals(obj.getId(), id));
+    public static void validateBatchSize(final int size) {
+        if (size > MAX_BATCH_SIZE) {
+            throw new ValidationException("размер пакета не может превышать " + MAX_BATCH_SIZE);
+        }
     }
 }
@@ -0,0 +1,37 @@
+-- Schema of the jdbc storage (filmorate.storage=jdbc). Friendships are stored once per side, like the in-memory
+-- friend sets; likes.user_id and friendships.friend_id are not foreign keys, as in the in-memory storages the
+-- film and user collections are independent.
+CREATE TABLE IF NOT EXISTS films (
+    id BIGINT PRIMARY KEY,
+    name VARCHAR,
+    description VARCHAR,
+    release_date DATE,
+    duration_seconds BIGINT,
+    -- number of rows in likes for the film, kept in the same transaction as the likes
+    like_count INT NOT NULL DEFAULT 0,
+    version BIGINT NOT NULL DEFAULT 0
+);
+
+-- serves ORDER BY like_count DESC, id LIMIT n without sorting the table
+CREATE INDEX IF NOT EXISTS films_popularity ON films (like_count DESC, id);
+
+CREATE TABLE IF NOT EXISTS likes (
+    film_id BIGINT NOT NULL REFERENCES films (id),
+    user_id BIGINT NOT NULL,
+    PRIMARY KEY (film_id, user_id)
+);
+
+CREATE TABLE IF NOT EXISTS users (
+    id BIGINT PRIMARY KEY,
+    email VARCHAR,
+    login VARCHAR,
+    name VARCHAR,
+    birthday DATE,
+    version BIGINT NOT NULL DEFAULT 0
+);
+
+CREATE TABLE IF NOT EXISTS friendships (
+    user_id BIGINT NOT NULL REFERENCES users (id),
+    friend_id BIGINT NOT NULL,
+    PRIMARY KEY (user_id, friend_id)
+);
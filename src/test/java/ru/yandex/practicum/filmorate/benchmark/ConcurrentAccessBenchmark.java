@@ -0,0 +1,59 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.io.IOException;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Lookups and whole-element updates from several threads at once, straight on the film storage, to see how its
+// throughput follows the number of threads. JMH takes one thread count per run, so sweep it with separate runs:
+// -t 1, -t 2, -t 4, -t 8.
+@State(Scope.Benchmark)
+@Fork(1)
+@Threads(4)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ConcurrentAccessBenchmark {
+    @Param({Fixture.MEMORY, Fixture.PARTITIONED, Fixture.VERSIONED})
+    private String storage;
+
+    @Param({"100000"})
+    private int count;
+
+    private Fixture fixture;
+
+    @Setup
+    public void setUp() throws IOException {
+        fixture = Fixture.create(storage, 1, count, (users, films) -> { });
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private final SplittableRandom random = new SplittableRandom(Thread.currentThread().threadId());
+    }
+
+    @Benchmark
+    public Film read(Cursor cursor) {
+        return fixture.filmStorage.getElement(1L + cursor.random.nextInt(count)).orElseThrow();
+    }
+
+    @Benchmark
+    public void update(Cursor cursor) {
+        fixture.filmStorage.update(Fixture.film(1L + cursor.random.nextInt(count)));
+    }
+}
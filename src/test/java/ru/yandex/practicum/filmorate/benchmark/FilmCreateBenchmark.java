@@ -0,0 +1,52 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Creates run in fixed batches against a freshly built storage of filmCount films, so the measured size does not
+// drift upwards the way it would in a timed throughput loop. 1000000 is the largest set that fits the 4 GB heap:
+// 3000000 in-memory films already run out of it, so 10000000 needs -jvmArgsAppend with a much larger -Xmx.
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, batchSize = FilmCreateBenchmark.BATCH_SIZE)
+@Measurement(iterations = 10, batchSize = FilmCreateBenchmark.BATCH_SIZE)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class FilmCreateBenchmark {
+    static final int BATCH_SIZE = 10_000;
+
+    @Param({Fixture.MEMORY, Fixture.MAPPED, Fixture.JDBC})
+    private String storage;
+
+    @Param({"10000", "1000000"})
+    private int filmCount;
+
+    private Fixture fixture;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        fixture = Fixture.create(storage, 0, filmCount, (users, films) -> {
+        });
+    }
+
+    @Benchmark
+    public Film create() {
+        Film film = Fixture.film(0L);
+        fixture.filmService.create(film);
+        return film;
+    }
+}
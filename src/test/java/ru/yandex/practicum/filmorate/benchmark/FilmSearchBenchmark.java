@@ -0,0 +1,112 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.event.FilmChangedEvent;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.search.FilmSearchIndex;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Names of 1-3 and descriptions of 8-15 words drawn from a Zipf distribution over a vocabulary of made-up
+// words, so a few words are in most films and most words in a handful. Queries pick a word by the same
+// distribution: a whole word, its first two letters (prefix), three letters from its middle (infix), or two words.
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FilmSearchBenchmark {
+    private static final int VOCABULARY = 50_000;
+    private static final String[] SYLLABLES = {"ка", "ро", "ми", "на", "то", "ле", "вас", "дор", "пер", "ин",
+        "сти", "ал", "мо", "ре", "би", "зон", "гра", "фи", "ло", "ту", "ше", "ван", "кру", "це", "жа", "люм"};
+
+    @Param({"10000", "1000000"})
+    private int filmCount;
+
+    private Fixture fixture;
+    private FilmSearchIndex index;
+    private String[] words;
+    private Zipf zipf;
+
+    @Setup
+    public void setUp() throws IOException {
+        SplittableRandom random = new SplittableRandom(1);
+        words = new String[VOCABULARY];
+        for (int i = 0; i < VOCABULARY; i++) {
+            StringBuilder word = new StringBuilder();
+            for (int s = 2 + random.nextInt(3); s > 0; s--) {
+                word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+            words[i] = word.toString();
+        }
+        zipf = new Zipf(VOCABULARY, 1.0);
+        fixture = Fixture.create(Fixture.MEMORY, 0, filmCount, (users, films) -> {
+            for (long id = 1; id <= filmCount; id++) {
+                Film film = films.getElement(id).orElseThrow();
+                film.setName(text(random, 1 + random.nextInt(3)));
+                film.setDescription(text(random, 8 + random.nextInt(8)));
+                films.update(film);
+            }
+        });
+        index = new FilmSearchIndex(fixture.filmStorage);
+        index.search(words[0], 10);
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private final SplittableRandom random = new SplittableRandom(Thread.currentThread().threadId());
+    }
+
+    @Benchmark
+    public List<Long> wholeWord(Cursor cursor) {
+        return index.search(word(cursor), 10);
+    }
+
+    @Benchmark
+    public List<Long> prefix(Cursor cursor) {
+        return index.search(word(cursor).substring(0, 2), 10);
+    }
+
+    @Benchmark
+    public List<Long> infix(Cursor cursor) {
+        String word = word(cursor);
+        return index.search(word.substring(1, 4), 10);
+    }
+
+    @Benchmark
+    public List<Long> twoWords(Cursor cursor) {
+        return index.search(word(cursor) + " " + word(cursor), 10);
+    }
+
+    // an update re-indexes the film: out of its old words' postings, into the new ones
+    @Benchmark
+    public void reindex(Cursor cursor) {
+        index.onFilmChanged(new FilmChangedEvent(1 + cursor.random.nextInt(filmCount), 0, false));
+    }
+
+    private String word(Cursor cursor) {
+        return words[zipf.next(cursor.random) - 1];
+    }
+
+    private String text(SplittableRandom random, int length) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            text.append(i == 0 ? "" : " ").append(words[zipf.next(random) - 1]);
+        }
+        return text.toString();
+    }
+}
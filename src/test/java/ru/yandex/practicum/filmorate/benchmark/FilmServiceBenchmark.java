@@ -0,0 +1,128 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.event.LikeChangedEvent;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.recommendation.Candidate;
+import ru.yandex.practicum.filmorate.recommendation.LikeMatrix;
+import ru.yandex.practicum.filmorate.recommendation.RecommendationProperties;
+import ru.yandex.practicum.filmorate.recommendation.TrendWindow;
+import ru.yandex.practicum.filmorate.recommendation.TrendingLikes;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Every user likes LIKES_PER_USER films drawn from a Zipf distribution, so like sets range from thousands
+// on the head films to empty on the tail, as in real rating data.
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FilmServiceBenchmark {
+    private static final int LIKES_PER_USER = 20;
+    private static final double ZIPF_EXPONENT = 1.0;
+
+    @Param({Fixture.MEMORY, Fixture.MAPPED, Fixture.JDBC, Fixture.PARTITIONED, Fixture.VERSIONED})
+    private String storage;
+
+    @Param({"10000", "1000000"})
+    private int filmCount;
+
+    @Param({"10000"})
+    private int userCount;
+
+    private Fixture fixture;
+    private Zipf zipf;
+    private LikeMatrix likeMatrix;
+    private TrendingLikes trendingLikes;
+
+    @Setup
+    public void setUp() throws IOException {
+        zipf = new Zipf(filmCount, ZIPF_EXPONENT);
+        SplittableRandom random = new SplittableRandom(1);
+        trendingLikes = new TrendingLikes();
+        fixture = Fixture.create(storage, userCount, filmCount, (users, films) -> {
+            for (long userId = 1; userId <= userCount; userId++) {
+                for (int i = 0; i < LIKES_PER_USER; i++) {
+                    long filmId = zipf.next(random);
+                    films.addLike(filmId, userId);
+                    trendingLikes.onLikeChanged(new LikeChangedEvent(filmId, userId, true, 0));
+                }
+            }
+        });
+        likeMatrix = new LikeMatrix(fixture.filmStorage,
+                new RecommendationProperties(Duration.ofSeconds(1), 1_000_000, 50));
+        likeMatrix.recommend(1, 10);
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private final SplittableRandom random = new SplittableRandom(Thread.currentThread().threadId());
+    }
+
+    @Benchmark
+    public void addLike(Cursor cursor) {
+        fixture.filmService.addLike(zipf.next(cursor.random), 1 + cursor.random.nextInt(userCount));
+    }
+
+    @Benchmark
+    public List<Film> getPopular() {
+        return fixture.filmService.getPopular(10);
+    }
+
+    // a full scan read to the end, as writing the response does: the partitioned storage runs it per shard and
+    // merges by id, the versioned one hands out a view of its current state and the cost is in the walk
+    @Benchmark
+    public long getAll() {
+        long ids = 0;
+        for (Film film : fixture.filmService.getAll()) {
+            ids += film.getId();
+        }
+        return ids;
+    }
+
+    // the existence check FilmService.update runs before every update
+    @Benchmark
+    public boolean existsOnUpdate(Cursor cursor) {
+        return fixture.filmStorage.getElement(1L + cursor.random.nextInt(filmCount)).isPresent();
+    }
+
+    @Benchmark
+    public List<Candidate> getRecommendedFilms(Cursor cursor) {
+        return likeMatrix.recommend(1 + cursor.random.nextInt(userCount), 10);
+    }
+
+    // the in-place index update every like and unlike costs once the matrix is loaded
+    @Benchmark
+    public void updateLikeMatrix(Cursor cursor) {
+        likeMatrix.onLikeChanged(new LikeChangedEvent(zipf.next(cursor.random), 1 + cursor.random.nextInt(userCount),
+                cursor.random.nextBoolean(), 0));
+    }
+
+    // one pass over every film liked this week, which here is every liked film
+    @Benchmark
+    public List<Candidate> getTrending() {
+        return trendingLikes.top(TrendWindow.DAY, 10);
+    }
+
+    @Benchmark
+    public void updateTrending(Cursor cursor) {
+        trendingLikes.onLikeChanged(new LikeChangedEvent(zipf.next(cursor.random),
+                1 + cursor.random.nextInt(userCount), cursor.random.nextBoolean(), 0));
+    }
+}
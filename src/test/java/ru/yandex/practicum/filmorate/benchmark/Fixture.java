@@ -0,0 +1,144 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.StorageData;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.Storage;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.jdbc.JdbcFilmStorage;
+import ru.yandex.practicum.filmorate.storage.jdbc.JdbcStorageConfiguration;
+import ru.yandex.practicum.filmorate.storage.jdbc.JdbcUserStorage;
+import ru.yandex.practicum.filmorate.storage.mapped.MappedFilmStorage;
+import ru.yandex.practicum.filmorate.storage.mapped.MappedSnapshot;
+import ru.yandex.practicum.filmorate.storage.mapped.MappedSnapshotWriter;
+import ru.yandex.practicum.filmorate.storage.mapped.MappedUserStorage;
+import ru.yandex.practicum.filmorate.storage.partitioned.PartitionedFilmStorage;
+import ru.yandex.practicum.filmorate.storage.partitioned.PartitionedStorageProperties;
+import ru.yandex.practicum.filmorate.storage.partitioned.PartitionedUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.storage.versioned.VersionedFilmStorage;
+import ru.yandex.practicum.filmorate.storage.versioned.VersionedUserStorage;
+import ru.yandex.practicum.filmorate.util.LongHashSet;
+import ru.yandex.practicum.filmorate.util.Utils;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+// Services on top of the storage under test. The data set is always built in memory first and then
+// handed to the requested storage kind; a new storage implementation only needs a case in open().
+public class Fixture {
+    public static final String MEMORY = "memory";
+    public static final String MAPPED = "mapped";
+    public static final String JDBC = "jdbc";
+    public static final String PARTITIONED = "partitioned";
+    public static final String VERSIONED = "versioned";
+    private static final int JDBC_BATCH_SIZE = 1000;
+    // fixed rather than one per processor, so the merges run on any machine
+    private static final int SHARDS = 4;
+
+    public final FilmStorage filmStorage;
+    public final UserStorage userStorage;
+    public final UserService userService;
+    public final FilmService filmService;
+
+    private Fixture(FilmStorage filmStorage, UserStorage userStorage) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.userService = new UserService(userStorage, event -> { });
+        this.filmService = new FilmService(filmStorage, userService, event -> { });
+    }
+
+    public static Fixture create(String storage, int userCount, int filmCount,
+                                 BiConsumer<InMemoryUserStorage, InMemoryFilmStorage> populate) throws IOException {
+        InMemoryUserStorage users = new InMemoryUserStorage();
+        InMemoryFilmStorage films = new InMemoryFilmStorage();
+        for (long id = 1; id <= userCount; id++) {
+            users.create(user(id));
+        }
+        for (long id = 1; id <= filmCount; id++) {
+            films.create(film(id));
+        }
+        populate.accept(users, films);
+        return open(storage, users, films);
+    }
+
+    public static User user(long id) {
+        return new User(id, "user" + id + "@mail.ru", "user" + id, "Пользователь " + id,
+                LocalDate.of(1990, 1, 1), new LongHashSet());
+    }
+
+    public static Film film(long id) {
+        return new Film(id, "Фильм " + id, "Описание фильма " + id, LocalDate.of(2000, 1, 1),
+                Duration.ofMinutes(100), new LongHashSet());
+    }
+
+    private static Fixture open(String storage, InMemoryUserStorage users, InMemoryFilmStorage films)
+            throws IOException {
+        return switch (storage) {
+            case MEMORY -> new Fixture(films, users);
+            case MAPPED -> {
+                Path directory = Files.createTempDirectory("filmorate-jmh");
+                Path file = directory.resolve("snapshot.bin");
+                MappedSnapshotWriter.write(file, 0, users, films);
+                file.toFile().deleteOnExit();
+                directory.toFile().deleteOnExit();
+                MappedSnapshot snapshot = MappedSnapshot.open(file);
+                yield new Fixture(new MappedFilmStorage(snapshot), new MappedUserStorage(snapshot));
+            }
+            case JDBC -> {
+                Path directory = Files.createTempDirectory("filmorate-jmh");
+                HikariConfig config = new HikariConfig();
+                config.setJdbcUrl("jdbc:h2:file:" + directory.resolve("filmorate").toAbsolutePath());
+                config.setUsername("sa");
+                DataSource dataSource = new HikariDataSource(config);
+                JdbcStorageConfiguration.createSchema(dataSource);
+                JdbcFilmStorage filmStorage = new JdbcFilmStorage(dataSource, JDBC_BATCH_SIZE);
+                JdbcUserStorage userStorage = new JdbcUserStorage(dataSource, JDBC_BATCH_SIZE);
+                copy(users, userStorage);
+                copy(films, filmStorage);
+                yield new Fixture(filmStorage, userStorage);
+            }
+            case PARTITIONED -> {
+                PartitionedStorageProperties properties = new PartitionedStorageProperties(SHARDS);
+                PartitionedFilmStorage filmStorage = new PartitionedFilmStorage(properties);
+                PartitionedUserStorage userStorage = new PartitionedUserStorage(properties);
+                copy(users, userStorage);
+                copy(films, filmStorage);
+                yield new Fixture(filmStorage, userStorage);
+            }
+            case VERSIONED -> {
+                VersionedFilmStorage filmStorage = new VersionedFilmStorage();
+                VersionedUserStorage userStorage = new VersionedUserStorage();
+                copy(users, userStorage);
+                copy(films, filmStorage);
+                yield new Fixture(filmStorage, userStorage);
+            }
+            default -> throw new IllegalArgumentException("неизвестное хранилище: " + storage);
+        };
+    }
+
+    private static <T extends StorageData> void copy(Storage<T> from, Storage<T> to) {
+        List<T> batch = new ArrayList<>(Utils.MAX_BATCH_SIZE);
+        for (T element : from.getAll()) {
+            batch.add(element);
+            if (batch.size() == Utils.MAX_BATCH_SIZE) {
+                to.createAll(batch);
+                batch.clear();
+            }
+        }
+        to.createAll(batch);
+    }
+}
@@ -0,0 +1,120 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Closed-loop load against a running application: every connection is a virtual thread that sends its next
+// request as soon as the previous one is answered. writeRatio of the requests add a like (and wait for the WAL
+// when persistence is on), the rest read /films/popular. Run against each execution mode:
+//   mvn -Pload test-compile exec:exec -Dload.args="http://localhost:8080 10000 30 0.1"
+public class HttpLoadTest {
+    private static final int FILMS = 1000;
+    private static final int USERS = 1000;
+    private static final Duration WARMUP = Duration.ofSeconds(10);
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:8080";
+        int connections = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        Duration duration = Duration.ofSeconds(args.length > 2 ? Long.parseLong(args[2]) : 30);
+        double writeRatio = args.length > 3 ? Double.parseDouble(args[3]) : 0.1;
+
+        HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+        populate(client, baseUrl);
+
+        Histogram latencies = new ConcurrentHistogram(TimeUnit.SECONDS.toMicros(60), 3);
+        AtomicLong errors = new AtomicLong();
+        long measureFrom = System.nanoTime() + WARMUP.toNanos();
+        long stopAt = measureFrom + duration.toNanos();
+
+        List<Thread> threads = new ArrayList<>(connections);
+        for (int i = 0; i < connections; i++) {
+            SplittableRandom random = new SplittableRandom(i);
+            threads.add(Thread.ofVirtual().start(() -> {
+                while (System.nanoTime() < stopAt) {
+                    long start = System.nanoTime();
+                    boolean ok = send(client, nextRequest(baseUrl, random, writeRatio));
+                    if (start >= measureFrom) {
+                        if (ok) {
+                            latencies.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+                        } else {
+                            errors.incrementAndGet();
+                        }
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        System.out.printf("connections=%d duration=%ds writeRatio=%.2f%n", connections, duration.toSeconds(),
+                writeRatio);
+        System.out.printf("throughput %.0f req/s, errors %d%n",
+                latencies.getTotalCount() / (double) duration.toSeconds(), errors.get());
+        System.out.printf("latency ms: p50 %.1f  p99 %.1f  p999 %.1f  max %.1f%n",
+                latencies.getValueAtPercentile(50) / 1000.0, latencies.getValueAtPercentile(99) / 1000.0,
+                latencies.getValueAtPercentile(99.9) / 1000.0, latencies.getMaxValue() / 1000.0);
+    }
+
+    private static void populate(HttpClient client, String baseUrl) throws Exception {
+        StringBuilder users = new StringBuilder("[");
+        StringBuilder films = new StringBuilder("[");
+        for (int i = 0; i < Math.max(USERS, FILMS); i++) {
+            String separator = i == 0 ? "" : ",";
+            if (i < USERS) {
+                users.append(separator).append("{\"email\":\"load").append(i)
+                        .append("@mail.ru\",\"login\":\"load").append(i).append("\",\"birthday\":\"1990-01-01\"}");
+            }
+            if (i < FILMS) {
+                films.append(separator).append("{\"name\":\"Фильм ").append(i)
+                        .append("\",\"description\":\"Описание\",\"releaseDate\":\"2000-01-01\",\"duration\":100}");
+            }
+        }
+        client.send(post(baseUrl + "/users/batch", users.append(']').toString()), HttpResponse.BodyHandlers.discarding());
+        client.send(post(baseUrl + "/films/batch", films.append(']').toString()), HttpResponse.BodyHandlers.discarding());
+    }
+
+    private static HttpRequest nextRequest(String baseUrl, SplittableRandom random, double writeRatio) {
+        if (random.nextDouble() < writeRatio) {
+            String path = "/films/" + (1 + random.nextInt(FILMS)) + "/like/" + (1 + random.nextInt(USERS));
+            return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                    .PUT(HttpRequest.BodyPublishers.noBody())
+                    .timeout(Duration.ofSeconds(60))
+                    .build();
+        }
+        return HttpRequest.newBuilder(URI.create(baseUrl + "/films/popular?count=10"))
+                .timeout(Duration.ofSeconds(60))
+                .build();
+    }
+
+    private static boolean send(HttpClient client, HttpRequest request) {
+        try {
+            return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() < 300;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private static HttpRequest post(String url, String json) {
+        return HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+}
@@ -0,0 +1,101 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.yandex.practicum.filmorate.json.Fields;
+import ru.yandex.practicum.filmorate.json.JsonConfiguration;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// One page of films written as the controllers write it: whole, and projected to id, name and likesCount; unfiltered
+// is the whole page from a mapper without the fields filter, the cost of the filter itself. The output goes to a
+// stream that only counts bytes, and the size of each body is printed once in setup.
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ProjectionBenchmark {
+    private static final int PAGE_SIZE = 100;
+
+    @Param({"10", "1000"})
+    private int likesPerFilm;
+
+    private List<Film> page;
+    private ObjectWriter whole;
+    private ObjectWriter projected;
+    private ObjectWriter unfiltered;
+
+    @Setup
+    public void setUp() throws IOException {
+        Jackson2ObjectMapperBuilder builder = new Jackson2ObjectMapperBuilder();
+        new JsonConfiguration().fieldsCustomizer().customize(builder);
+        ObjectMapper mapper = builder.build();
+        whole = mapper.writer(Fields.ALL.filters());
+        projected = mapper.writer(Fields.parse("id,name,likesCount", Fields.FILM).filters());
+        unfiltered = new Jackson2ObjectMapperBuilder().build().writer();
+        page = new ArrayList<>(PAGE_SIZE);
+        for (long id = 1; id <= PAGE_SIZE; id++) {
+            Film film = Fixture.film(id);
+            for (long user = 1; user <= likesPerFilm; user++) {
+                film.getLikes().add(user * 7919 % 1_000_003);
+            }
+            page.add(film);
+        }
+        System.out.printf("%n%d likes per film: whole %d bytes, projected %d bytes%n",
+                likesPerFilm, write(whole), write(projected));
+    }
+
+    @Benchmark
+    public long whole() throws IOException {
+        return write(whole);
+    }
+
+    @Benchmark
+    public long projected() throws IOException {
+        return write(projected);
+    }
+
+    @Benchmark
+    public long unfiltered() throws IOException {
+        return write(unfiltered);
+    }
+
+    private long write(ObjectWriter writer) throws IOException {
+        Counter out = new Counter();
+        writer.writeValue(out, page);
+        return out.bytes;
+    }
+
+    private static final class Counter extends OutputStream {
+        private long bytes;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.recommendation.Candidate;
+import ru.yandex.practicum.filmorate.recommendation.FriendGraph;
+import ru.yandex.practicum.filmorate.recommendation.RecommendationProperties;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Users 1 and 2 have friendCount friends each and share half of them; every other user is a friend of one or both.
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UserServiceBenchmark {
+    private static final long FIRST = 1;
+    private static final long SECOND = 2;
+
+    @Param({Fixture.MEMORY, Fixture.MAPPED, Fixture.JDBC, Fixture.PARTITIONED, Fixture.VERSIONED})
+    private String storage;
+
+    @Param({"10", "10000", "1000000"})
+    private int friendCount;
+
+    private Fixture fixture;
+    private FriendGraph friendGraph;
+    private int userCount;
+
+    @Setup
+    public void setUp() throws IOException {
+        int shift = friendCount / 2;
+        userCount = 2 + friendCount + shift;
+        fixture = Fixture.create(storage, userCount, 0, (users, films) -> {
+            for (long id = 3; id < 3 + friendCount; id++) {
+                users.addFriend(FIRST, id);
+                users.addFriend(SECOND, id + shift);
+            }
+        });
+        // 1.5 paths per friend of user 1, so at a million friends the default path budget cuts the walk
+        friendGraph = new FriendGraph(fixture.userStorage,
+                new RecommendationProperties(Duration.ofSeconds(1), 1_000_000, 50));
+    }
+
+    @TearDown
+    public void tearDown() {
+        friendGraph.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private final SplittableRandom random = new SplittableRandom(Thread.currentThread().threadId());
+    }
+
+    @Benchmark
+    public void addFriend(Cursor cursor) {
+        long userId = 1 + cursor.random.nextInt(userCount);
+        long friendId = 1 + cursor.random.nextInt(userCount);
+        if (userId != friendId) {
+            fixture.userService.addFriend(userId, friendId);
+        }
+    }
+
+    @Benchmark
+    public Set<User> getFriends() {
+        return fixture.userService.getFriends(FIRST);
+    }
+
+    @Benchmark
+    public Set<User> getCommonFriends() {
+        return fixture.userService.getCommonFriends(FIRST, SECOND);
+    }
+
+    @Benchmark
+    public List<Candidate> getRecommendations() {
+        return friendGraph.recommend(FIRST, 10);
+    }
+}
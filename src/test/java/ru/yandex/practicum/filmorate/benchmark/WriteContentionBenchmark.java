@@ -0,0 +1,67 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Writers on several threads at once, straight on the storages, so the time is spent in their locks and version
+// counters rather than in validation. Ids are uniform, and every write is a like or friendship added or taken back
+// at random, so the data set stays the same size however long it runs. Vary the writers with -t.
+@State(Scope.Benchmark)
+@Fork(1)
+@Threads(4)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class WriteContentionBenchmark {
+    @Param({Fixture.MEMORY, Fixture.PARTITIONED, Fixture.VERSIONED})
+    private String storage;
+
+    @Param({"100000"})
+    private int count;
+
+    private Fixture fixture;
+
+    @Setup
+    public void setUp() throws IOException {
+        fixture = Fixture.create(storage, count, count, (users, films) -> { });
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private final SplittableRandom random = new SplittableRandom(Thread.currentThread().threadId());
+    }
+
+    @Benchmark
+    public boolean like(Cursor cursor) {
+        long filmId = 1 + cursor.random.nextInt(count);
+        long userId = 1 + cursor.random.nextInt(count);
+        return cursor.random.nextBoolean()
+                ? fixture.filmStorage.addLike(filmId, userId)
+                : fixture.filmStorage.deleteLike(filmId, userId);
+    }
+
+    // the two users are usually in different shards of the partitioned storage
+    @Benchmark
+    public boolean friend(Cursor cursor) {
+        long userId = 1 + cursor.random.nextInt(count);
+        long friendId = 1 + cursor.random.nextInt(count);
+        return cursor.random.nextBoolean()
+                ? fixture.userStorage.addFriend(userId, friendId)
+                : fixture.userStorage.deleteFriend(userId, friendId);
+    }
+}
@@ -0,0 +1,26 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+// samples ranks 1..n with P(k) proportional to 1 / k^exponent, so a few films collect most of the likes
+public class Zipf {
+    private final double[] cumulative;
+
+    public Zipf(int n, double exponent) {
+        cumulative = new double[n];
+        double sum = 0;
+        for (int k = 1; k <= n; k++) {
+            sum += 1.0 / Math.pow(k, exponent);
+            cumulative[k - 1] = sum;
+        }
+        for (int i = 0; i < n; i++) {
+            cumulative[i] /= sum;
+        }
+    }
+
+    public int next(SplittableRandom random) {
+        int pos = Arrays.binarySearch(cumulative, random.nextDouble());
+        return Math.min(pos >= 0 ? pos : -pos - 1, cumulative.length - 1) + 1;
+    }
+}
@@ -0,0 +1,139 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+import ru.yandex.practicum.filmorate.event.FilmChangedEvent;
+import ru.yandex.practicum.filmorate.event.FriendshipChangedEvent;
+import ru.yandex.practicum.filmorate.event.LikeChangedEvent;
+import ru.yandex.practicum.filmorate.event.UserChangedEvent;
+import ru.yandex.practicum.filmorate.json.Fields;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.util.LongHashSet;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class ResponseCacheTest {
+    private ResponseCache cache;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        cache = newCache(DataSize.ofMegabytes(1));
+        loads = new AtomicInteger();
+    }
+
+    @Test
+    void popularIsLoadedOnceAndDroppedOnlyByLikesThatCanChangeTheTop() {
+        List<Film> top = List.of(film(1, 5), film(2, 3));
+
+        byte[] first = cache.popular(2, Fields.ALL, () -> load(top));
+        assertSame(first, cache.popular(2, Fields.ALL, () -> load(top)));
+        assertEquals(1, loads.get());
+
+        cache.onLikeChanged(new LikeChangedEvent(7, 1, true, 2));
+        cache.onFilmChanged(new FilmChangedEvent(8, 3, true));
+        cache.popular(2, Fields.ALL, () -> load(top));
+        assertEquals(1, loads.get());
+
+        cache.onLikeChanged(new LikeChangedEvent(7, 1, true, 3));
+        cache.popular(2, Fields.ALL, () -> load(top));
+        assertEquals(2, loads.get());
+
+        cache.onLikeChanged(new LikeChangedEvent(1, 1, false, 4));
+        cache.popular(2, Fields.ALL, () -> load(top));
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void shortPopularListIsDroppedByAnyLike() {
+        List<Film> top = List.of(film(1, 5));
+
+        cache.popular(10, Fields.ALL, () -> load(top));
+        cache.onLikeChanged(new LikeChangedEvent(2, 1, true, 1));
+        cache.popular(10, Fields.ALL, () -> load(top));
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void friendsAreDroppedWhenEitherSideOrAListedFriendChanges() {
+        Set<User> friends = Set.of(user(2), user(3));
+
+        cache.friends(1, () -> load(friends));
+        cache.onFriendshipChanged(new FriendshipChangedEvent(4, 5, true));
+        cache.onUserChanged(new UserChangedEvent(6, true));
+        cache.friends(1, () -> load(friends));
+        assertEquals(1, loads.get());
+
+        cache.onUserChanged(new UserChangedEvent(3, false));
+        cache.friends(1, () -> load(friends));
+        assertEquals(2, loads.get());
+
+        cache.onFriendshipChanged(new FriendshipChangedEvent(9, 1, false));
+        cache.friends(1, () -> load(friends));
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void leastRecentlyUsedEntriesAreEvictedOverTheByteLimit() {
+        Set<User> friends = Set.of(user(2));
+        long entrySize = newCache(DataSize.ofMegabytes(1)).friends(1, () -> friends).length + Long.BYTES;
+        cache = newCache(DataSize.ofBytes(2 * entrySize));
+
+        cache.friends(1, () -> load(friends));
+        cache.friends(2, () -> load(friends));
+        cache.friends(1, () -> load(friends));
+        cache.friends(3, () -> load(friends));
+        assertEquals(3, loads.get());
+
+        cache.friends(1, () -> load(friends));
+        assertEquals(3, loads.get());
+        cache.friends(2, () -> load(friends));
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    void responseComputedAcrossAnInvalidationIsNotStored() {
+        List<Film> top = List.of(film(1, 5));
+
+        cache.popular(1, Fields.ALL, () -> {
+            cache.onLikeChanged(new LikeChangedEvent(1, 2, true, 6));
+            return load(top);
+        });
+        cache.popular(1, Fields.ALL, () -> load(top));
+
+        assertEquals(2, loads.get());
+    }
+
+    private <T> T load(T value) {
+        loads.incrementAndGet();
+        return value;
+    }
+
+    private static ResponseCache newCache(DataSize maxSize) {
+        return new ResponseCache(new ObjectMapper().findAndRegisterModules(), new CacheProperties(maxSize));
+    }
+
+    private static Film film(long id, int likes) {
+        LongHashSet likedBy = new LongHashSet();
+        for (long userId = 1; userId <= likes; userId++) {
+            likedBy.add(userId);
+        }
+        return new Film(id, "Фильм " + id, "Описание", LocalDate.of(2000, 1, 1), Duration.ofMinutes(100), likedBy);
+    }
+
+    private static User user(long id) {
+        return new User(id, "user" + id + "@mail.ru", "user" + id, "Пользователь " + id, LocalDate.of(1990, 1, 1),
+                new LongHashSet());
+    }
+}
@@ -1,48 +1,54 @@
 package ru.yandex.practicum.filmorate.controller;
 
-import org.junit.jupiter.api.BeforeEach;
-import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
+import ru.yandex.practicum.filmorate.event.LikeChangedEvent;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Like;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.service.UserService;
-import ru.yandex.practicum.filmorate.storage.Storage;
+import ru.yandex.practicum.filmorate.storage.StorageKind;
+import ru.yandex.practicum.filmorate.storage.StorageTest;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
-import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
-import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.util.LongHashSet;
+import ru.yandex.practicum.filmorate.util.Utils;
 
 import java.time.Duration;
 import java.time.LocalDate;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 @SpringBootTest
 class FilmServiceTest {
-    private static Storage<Film> filmStorage;
-    private static Storage<User> userStorage;
+    private static FilmStorage filmStorage;
+    private static UserStorage userStorage;
     private static UserService userService;
     private static FilmService filmService;
 
     private Film validFilm;
     private User user;
 
-    @BeforeEach
-    void init() {
-        filmStorage = new InMemoryFilmStorage();
-        userStorage = new InMemoryUserStorage();
-        userService = new UserService(userStorage);
-        filmService = new FilmService(filmStorage, userService);
+    private void init(StorageKind storage) {
+        filmStorage = storage.films();
+        userStorage = storage.users();
+        userService = new UserService(userStorage, event -> { });
+        filmService = new FilmService(filmStorage, userService, event -> { });
         validFilm = new Film(
                 1L,
                 "Матрица",
                 "Описание",
                 LocalDate.of(1999, 12, 28),
                 Duration.ofMinutes(120),
-                new HashSet<>()
+                new LongHashSet()
         );
         user = new User(
                 1L,
@@ -50,111 +56,238 @@ class FilmServiceTest {
                 "Login",
                 "John",
                 LocalDate.of(1990, 1, 1),
-                new HashSet<>()
+                new LongHashSet()
         );
 
         filmStorage.create(validFilm);
         userStorage.create(user);
     }
 
-    @Test
-    void validateFilmOk() {
+    @StorageTest
+    void validateFilmOk(StorageKind storage) {
+        init(storage);
         filmService.validate(validFilm);
     }
 
-    @Test
-    void validateFilmFailEmptyName() {
+    @StorageTest
+    void validateFilmFailEmptyName(StorageKind storage) {
+        init(storage);
         validFilm.setName("");
-         assertThrows(ValidationException.class, () -> filmService.validate(validFilm));
+        assertThrows(ValidationException.class, () -> filmService.validate(validFilm));
     }
 
-    @Test
-    void validateFilmFailEmptyDescription() {
+    @StorageTest
+    void validateFilmFailEmptyDescription(StorageKind storage) {
+        init(storage);
         validFilm.setDescription("");
         assertThrows(ValidationException.class, () -> filmService.validate(validFilm));
     }
 
-    @Test
-    void validateFilmFailIfDescriptionLengthEquals201() {
+    @StorageTest
+    void validateFilmFailIfDescriptionLengthEquals201(StorageKind storage) {
+        init(storage);
         validFilm.setDescription(String.valueOf('a').repeat(201));
         assertThrows(ValidationException.class, () -> filmService.validate(validFilm));
     }
 
-    @Test
-    void validateFilmOkIfDescriptionLengthEquals200() {
+    @StorageTest
+    void validateFilmOkIfDescriptionLengthEquals200(StorageKind storage) {
+        init(storage);
         validFilm.setDescription(String.valueOf('a').repeat(200));
         assertDoesNotThrow(() -> filmService.validate(validFilm));
     }
 
-    @Test
-    void validateFilmFailIfReleaseDateLessMinDate() {
+    @StorageTest
+    void validateFilmFailIfReleaseDateLessMinDate(StorageKind storage) {
+        init(storage);
         validFilm.setReleaseDate(LocalDate.of(1799, 12, 28));
         assertThrows(ValidationException.class, () -> filmService.validate(validFilm));
     }
 
-    @Test
-    void validateFilmFailIfDurationIsNegative() {
+    @StorageTest
+    void validateFilmFailIfDurationIsNegative(StorageKind storage) {
+        init(storage);
         validFilm.setDuration(Duration.ofMinutes(-1));
         assertThrows(ValidationException.class, () -> filmService.validate(validFilm));
     }
 
-    @Test
-    void validateFilmFailIfDurationIsZero() {
+    @StorageTest
+    void validateFilmFailIfDurationIsZero(StorageKind storage) {
+        init(storage);
         validFilm.setDuration(Duration.ofMinutes(0));
         assertThrows(ValidationException.class, () -> filmService.validate(validFilm));
     }
 
-    @Test
-    void successfulAddLike() {
-        assertEquals(0, validFilm.getLikes().size());
+    @StorageTest
+    void validateFilmFailIfLikesAreNotStoredUsers(StorageKind storage) {
+        init(storage);
+        validFilm.setLikes(new LongHashSet(List.of(user.getId())));
+        assertDoesNotThrow(() -> filmService.validate(validFilm));
+        validFilm.setLikes(new LongHashSet(List.of(user.getId(), -1L)));
+        assertThrows(ValidationException.class, () -> filmService.validate(validFilm));
+        validFilm.setLikes(new LongHashSet(List.of(5_000_000_000L)));
+        assertThrows(ValidationException.class, () -> filmService.update(validFilm));
+    }
+
+    @StorageTest
+    void successfulAddLike(StorageKind storage) {
+        init(storage);
+        assertEquals(0, stored(validFilm).getLikes().size());
         filmService.addLike(validFilm.getId(), user.getId());
-        assertEquals(1, validFilm.getLikes().size());
+        assertEquals(1, stored(validFilm).getLikes().size());
     }
 
-    @Test
-    void validateErrorWhenAddLikeAndFilmsIdNotExist() {
+    @StorageTest
+    void validateErrorWhenAddLikeAndFilmsIdNotExist(StorageKind storage) {
+        init(storage);
         final long userId = user.getId();
         assertThrows(NotFoundException.class, () ->  filmService.addLike(999L, userId));
     }
 
-    @Test
-    void validateErrorWhenAddLikeAndUserIdNotExist() {
+    @StorageTest
+    void validateErrorWhenAddLikeAndUserIdNotExist(StorageKind storage) {
+        init(storage);
         final long filmId = validFilm.getId();
         assertThrows(NotFoundException.class, () ->  filmService.addLike(filmId, 4L));
     }
 
-    @Test
-    void successfulDeleteLike() {
-        successfulAddLike();
-        assertEquals(1, validFilm.getLikes().size());
+    @StorageTest
+    void successfulDeleteLike(StorageKind storage) {
+        init(storage);
+        filmService.addLike(validFilm.getId(), user.getId());
+        assertEquals(1, stored(validFilm).getLikes().size());
         filmService.deleteLike(validFilm.getId(), user.getId());
-        assertEquals(0, validFilm.getLikes().size());
+        assertEquals(0, stored(validFilm).getLikes().size());
     }
 
-    @Test
-    void validateErrorWhenDeleteLikeAndFilmsIdNotExist() {
+    @StorageTest
+    void validateErrorWhenDeleteLikeAndFilmsIdNotExist(StorageKind storage) {
+        init(storage);
         final long userId = user.getId();
         assertThrows(NotFoundException.class, () ->  filmService.deleteLike(999L, userId));
     }
 
-    @Test
-    void getPopularFilmsIfFilmsEmptyShouldReturnZero() {
-        FilmStorage emptyFilmStorage = new InMemoryFilmStorage();
-        FilmService newFilmService = new FilmService(emptyFilmStorage, userService);
+    @StorageTest
+    void getPopularFilmsIfFilmsEmptyShouldReturnZero(StorageKind storage) {
+        init(storage);
+        FilmStorage emptyFilmStorage = storage.films();
+        FilmService newFilmService = new FilmService(emptyFilmStorage, userService, event -> { });
         final int films = newFilmService.getPopular(10).size();
         assertEquals(0, films);
     }
 
-    @Test
-    void getPopularFilmsIfFilmsExistShouldReturnFilms() {
+    @StorageTest
+    void getPopularFilmsIfFilmsExistShouldReturnFilms(StorageKind storage) {
+        init(storage);
         final int films = filmService.getPopular(10).size();
         assertEquals(1, films);
     }
 
-    @Test
-    void getPopularFilmsIfRequestZeroFilmsShouldReturnZero() {
+    @StorageTest
+    void getPopularFilmsOrderedByLikesThenById(StorageKind storage) {
+        init(storage);
+        Film second = new Film(2L, "Титаник", "Описание", LocalDate.of(1997, 12, 19),
+                Duration.ofMinutes(190), new LongHashSet());
+        Film third = new Film(3L, "Аватар", "Описание", LocalDate.of(2009, 12, 17),
+                Duration.ofMinutes(160), new LongHashSet());
+        filmStorage.create(second);
+        filmStorage.create(third);
+
+        filmService.addLike(third.getId(), user.getId());
+
+        assertEquals(List.of(third, validFilm, second), filmService.getPopular(10));
+        assertEquals(List.of(third), filmService.getPopular(1));
+
+        filmService.deleteLike(third.getId(), user.getId());
+        assertEquals(List.of(validFilm, second, third), filmService.getPopular(10));
+    }
+
+    @StorageTest
+    void createAllAssignsConsecutiveIdsAndReportsInvalidFilms(StorageKind storage) {
+        init(storage);
+        Film second = new Film(0L, "Титаник", "Описание", LocalDate.of(1997, 12, 19),
+                Duration.ofMinutes(190), new LongHashSet());
+        Film invalid = new Film(0L, "", "Описание", LocalDate.of(1997, 12, 19),
+                Duration.ofMinutes(190), new LongHashSet());
+        Film third = new Film(0L, "Аватар", "Описание", LocalDate.of(2009, 12, 17),
+                Duration.ofMinutes(160), new LongHashSet());
+
+        List<BatchResult> results = filmService.createAll(List.of(second, invalid, third));
+
+        assertEquals(List.of(201, 400, 201), results.stream().map(BatchResult::status).toList());
+        assertEquals(2L, results.get(0).id());
+        assertEquals(3L, results.get(2).id());
+        assertEquals("название не может быть пустым", results.get(1).error());
+        assertEquals(List.of(validFilm, second, third), List.copyOf(filmService.getAll()));
+    }
+
+    @StorageTest
+    void createAllReportsFilmsWithMissingFieldsPerItem(StorageKind storage) {
+        init(storage);
+        Film noDate = new Film(0L, "Титаник", "Описание", null, Duration.ofMinutes(190), new LongHashSet());
+        Film noDuration = new Film(0L, "Аватар", "Описание", LocalDate.of(2009, 12, 17), null, new LongHashSet());
+        Film valid = new Film(0L, "Титаник", "Описание", LocalDate.of(1997, 12, 19),
+                Duration.ofMinutes(190), new LongHashSet());
+
+        List<BatchResult> results = filmService.createAll(Arrays.asList(noDate, null, noDuration, valid));
+
+        assertEquals(List.of(400, 400, 400, 201), results.stream().map(BatchResult::status).toList());
+        assertEquals("дата релиза должна быть указана", results.get(0).error());
+        assertEquals("фильм не может быть пустым", results.get(1).error());
+        assertEquals("продолжительность фильма должна быть указана", results.get(2).error());
+    }
+
+    @StorageTest
+    void addLikesAppliesValidLikesAndReportsMissingIds(StorageKind storage) {
+        init(storage);
+        List<BatchResult> results = filmService.addLikes(List.of(
+                new Like(validFilm.getId(), user.getId()),
+                new Like(2L, user.getId()),
+                new Like(validFilm.getId(), 5L)));
+
+        assertEquals(List.of(200, 404, 404), results.stream().map(BatchResult::status).toList());
+        assertEquals(Set.of(user.getId()), stored(validFilm).getLikes());
+        assertThrows(ValidationException.class, () -> filmService.addLikes(
+                Collections.nCopies(Utils.MAX_BATCH_SIZE + 1, new Like(validFilm.getId(), user.getId()))));
+    }
+
+    @StorageTest
+    void versionGrowsOnlyWhenFilmsChange(StorageKind storage) {
+        init(storage);
+        final long created = filmService.getVersion();
+        filmService.addLike(validFilm.getId(), user.getId());
+        final long liked = filmService.getVersion();
+        filmService.addLike(validFilm.getId(), user.getId());
+        filmService.getPopular(10);
+
+        assertTrue(liked > created);
+        assertEquals(liked, filmService.getVersion());
+        assertEquals(liked, stored(validFilm).getVersion());
+    }
+
+    @StorageTest
+    void onlyLikesThatChangeTheFilmArePublished(StorageKind storage) {
+        init(storage);
+        List<Object> events = new ArrayList<>();
+        filmService = new FilmService(filmStorage, userService, events::add);
+        filmService.addLike(validFilm.getId(), user.getId());
+        filmService.addLike(validFilm.getId(), user.getId());
+        filmService.addLikes(List.of(new Like(validFilm.getId(), user.getId())));
+        filmService.deleteLike(validFilm.getId(), user.getId());
+        filmService.deleteLike(validFilm.getId(), user.getId());
+
+        assertEquals(List.of(new LikeChangedEvent(validFilm.getId(), user.getId(), true, 1),
+                new LikeChangedEvent(validFilm.getId(), user.getId(), false, 0)), events);
+    }
+
+    @StorageTest
+    void getPopularFilmsIfRequestZeroFilmsShouldReturnZero(StorageKind storage) {
+        init(storage);
         final int films = filmService.getPopular(0).size();
         assertEquals(0, films);
     }
 
+    private static Film stored(Film film) {
+        return filmStorage.getElement(film.getId()).orElseThrow();
+    }
 }
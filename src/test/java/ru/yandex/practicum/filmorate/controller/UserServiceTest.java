@@ -1,43 +1,48 @@
 package ru.yandex.practicum.filmorate.controller;
 
-import org.junit.jupiter.api.BeforeEach;
-import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
+import ru.yandex.practicum.filmorate.event.FriendshipChangedEvent;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchResult;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.StorageData;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.service.UserService;
-import ru.yandex.practicum.filmorate.storage.Storage;
-import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.StorageKind;
+import ru.yandex.practicum.filmorate.storage.StorageTest;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.util.LongHashSet;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @SpringBootTest
 class UserServiceTest {
-    private static Storage<User> userStorage;
+    private static UserStorage userStorage;
     private static UserService userService;
 
     private User validUser;
     private User friend;
 
-    @BeforeEach
-    void init() {
-        userStorage = new InMemoryUserStorage();
-        userService = new UserService(userStorage);
+    private void init(StorageKind storage) {
+        userStorage = storage.users();
+        userService = new UserService(userStorage, event -> { });
         validUser = new User(
                 1L,
                 "test@test.ru",
                 "Login",
                 "John",
                 LocalDate.of(1990, 1, 1),
-                new HashSet<>()
+                new LongHashSet()
         );
 
         // without id
@@ -47,73 +52,163 @@ class UserServiceTest {
                 "LoginFriend",
                 "Andy",
                 LocalDate.of(1990, 1, 1),
-                new HashSet<>()
+                new LongHashSet()
         );
 
         userStorage.create(validUser);
     }
 
-    @Test
-    void validateUserOk() {
+    @StorageTest
+    void validateUserOk(StorageKind storage) {
+        init(storage);
         userService.validate(validUser);
     }
 
-    @Test
-    void validateUserFailIfMailEmpty() {
+    @StorageTest
+    void validateUserFailIfMailEmpty(StorageKind storage) {
+        init(storage);
         validUser.setEmail("");
         assertThrows(ValidationException.class, () -> userService.validate(validUser));
     }
 
-    @Test
-    void validateUserFailIsMailNotContainsDogSymbol() {
+    @StorageTest
+    void validateUserFailIsMailNotContainsDogSymbol(StorageKind storage) {
+        init(storage);
         validUser.setEmail("testtest.ru");
         assertThrows(ValidationException.class, () -> userService.validate(validUser));
     }
 
-    @Test
-    void validateUserFailIfLoginEmpty() {
+    @StorageTest
+    void validateUserFailIfLoginEmpty(StorageKind storage) {
+        init(storage);
         validUser.setLogin("");
         assertThrows(ValidationException.class, () -> userService.validate(validUser));
     }
 
-    @Test
-    void validateUserFailIfLoginBlank() {
+    @StorageTest
+    void validateUserFailIfLoginBlank(StorageKind storage) {
+        init(storage);
         validUser.setLogin("  ");
         assertThrows(ValidationException.class, () -> userService.validate(validUser));
     }
 
-    @Test
-    void validateUserFailIfBirthdayInFuture() {
+    @StorageTest
+    void validateUserFailIfBirthdayInFuture(StorageKind storage) {
+        init(storage);
         validUser.setBirthday(LocalDate.now().plusDays(1));
         assertThrows(ValidationException.class, () -> userService.validate(validUser));
     }
 
-    @Test
-    void successfulAddFriend() {
+    @StorageTest
+    void createAssignsIdAfterExistingUsers(StorageKind storage) {
+        init(storage);
+        userService.create(friend);
+        assertEquals(2L, friend.getId());
+    }
+
+    @StorageTest
+    void getPageReturnsUsersAfterCursorInIdOrder(StorageKind storage) {
+        init(storage);
+        userService.create(friend);
+        User third = new User(0L, "third@test.ru", "Third", "Max", LocalDate.of(1990, 1, 1), new LongHashSet());
+        userService.create(third);
+
+        assertEquals(List.of(validUser, friend), userService.getPage(0, 2));
+        assertEquals(List.of(third), userService.getPage(friend.getId(), 2));
+        assertThrows(ValidationException.class, () -> userService.getPage(0, 0));
+    }
+
+    @StorageTest
+    void getElementsKeepsRequestedOrderAndSkipsMissingIds(StorageKind storage) {
+        init(storage);
+        userService.create(friend);
+        userService.addFriend(validUser.getId(), friend.getId());
+
+        List<User> found = userStorage.getElements(new long[]{friend.getId(), 99, validUser.getId()});
+        assertEquals(List.of(friend, validUser), found);
+        assertEquals(Set.of(friend.getId()), Set.copyOf(found.get(1).getFriends()));
+        assertEquals(List.of(), userStorage.getElements(new long[0]));
+    }
+
+    @StorageTest
+    void successfulAddFriend(StorageKind storage) {
+        init(storage);
+        addFriend();
+    }
+
+    private void addFriend() {
         final long friendId = 2L;
         friend.setId(friendId);
 
         userStorage.create(friend);
         userService.addFriend(validUser.getId(), friend.getId());
-        assertEquals(validUser.getFriends(), Set.of(friendId));
-        assertEquals(friend.getFriends(), Set.of(validUser.getId()));
+        assertEquals(stored(validUser).getFriends(), Set.of(friendId));
+        assertEquals(stored(friend).getFriends(), Set.of(validUser.getId()));
+    }
+
+    @StorageTest
+    void addFriendsAppliesValidPairsAndReportsMissingUsers(StorageKind storage) {
+        init(storage);
+        List<BatchResult> created = userService.createAll(List.of(friend,
+                new User(0L, "", "Empty", "Max", LocalDate.of(1990, 1, 1), new LongHashSet())));
+        assertEquals(List.of(201, 400), created.stream().map(BatchResult::status).toList());
+        assertEquals(2L, friend.getId());
+
+        List<BatchResult> results = userService.addFriends(List.of(
+                new Friendship(validUser.getId(), friend.getId()),
+                new Friendship(validUser.getId(), 3L)));
+
+        assertEquals(List.of(200, 404), results.stream().map(BatchResult::status).toList());
+        assertEquals(Set.of(2L), stored(validUser).getFriends());
+        assertEquals(Set.of(1L), stored(friend).getFriends());
+    }
+
+    @StorageTest
+    void createAllReportsUsersWithMissingFieldsPerItem(StorageKind storage) {
+        init(storage);
+        User noBirthday = new User(0L, "new@test.ru", "New", "Max", null, new LongHashSet());
+
+        List<BatchResult> results = userService.createAll(Arrays.asList(noBirthday, null, friend));
+
+        assertEquals(List.of(400, 400, 201), results.stream().map(BatchResult::status).toList());
+        assertEquals("дата рождения должна быть указана", results.get(0).error());
+        assertEquals("пользователь не может быть пустым", results.get(1).error());
     }
 
-    @Test
-    void validateErrorWhenAddFriendAndFriendIdNotExist() {
+    @StorageTest
+    void friendsVersionFollowsFriendListAndFriendProfiles(StorageKind storage) {
+        init(storage);
+        addFriend();
+        final long befriended = userService.getFriendsVersion(validUser.getId());
+
+        User stranger = new User(3L, "s@test.ru", "Stranger", "Max", LocalDate.of(1990, 1, 1), new LongHashSet());
+        userStorage.create(stranger);
+        assertEquals(befriended, userService.getFriendsVersion(validUser.getId()));
+
+        friend.setName("Andrew");
+        userService.update(friend);
+        assertTrue(userService.getFriendsVersion(validUser.getId()) > befriended);
+        assertThrows(NotFoundException.class, () -> userService.getFriendsVersion(4L));
+    }
+
+    @StorageTest
+    void validateErrorWhenAddFriendAndFriendIdNotExist(StorageKind storage) {
+        init(storage);
         final long userId = validUser.getId();
         assertThrows(NotFoundException.class, () -> userService.addFriend(userId, 3L));
     }
 
-    @Test
-    void validateErrorWhenAddFriendAndUserIdNotExist() {
+    @StorageTest
+    void validateErrorWhenAddFriendAndUserIdNotExist(StorageKind storage) {
+        init(storage);
         final long userId = validUser.getId();
         assertThrows(NotFoundException.class, () -> userService.addFriend(3L, userId));
     }
 
-    @Test
-    void successfulDeleteFriend() {
-        successfulAddFriend();
+    @StorageTest
+    void successfulDeleteFriend(StorageKind storage) {
+        init(storage);
+        addFriend();
         final long friendId = userStorage.getAll().stream()
                 .map(StorageData::getId)
                 .filter(id -> !id.equals(validUser.getId()))
@@ -121,24 +216,48 @@ class UserServiceTest {
                 .get();
 
         userService.deleteFriend(validUser.getId(), friendId);
-        assertEquals(Collections.EMPTY_SET, validUser.getFriends());
+        assertEquals(Collections.EMPTY_SET, stored(validUser).getFriends());
+    }
+
+    @StorageTest
+    void onlyFriendshipsThatChangeTheUsersArePublished(StorageKind storage) {
+        init(storage);
+        friend.setId(2L);
+        userStorage.create(friend);
+        List<Object> events = new ArrayList<>();
+        userService = new UserService(userStorage, events::add);
+        userService.addFriend(validUser.getId(), friend.getId());
+        userService.addFriend(friend.getId(), validUser.getId());
+        userService.addFriends(List.of(new Friendship(validUser.getId(), friend.getId())));
+        userService.deleteFriend(validUser.getId(), friend.getId());
+        userService.deleteFriend(validUser.getId(), friend.getId());
+
+        assertEquals(List.of(new FriendshipChangedEvent(validUser.getId(), friend.getId(), true),
+                new FriendshipChangedEvent(validUser.getId(), friend.getId(), false)), events);
     }
 
-    @Test
-    void validateErrorWhenDeleteFriendAndFriendIdNotExist() {
+    @StorageTest
+    void validateErrorWhenDeleteFriendAndFriendIdNotExist(StorageKind storage) {
+        init(storage);
         final long userId = validUser.getId();
         assertThrows(NotFoundException.class, () -> userService.deleteFriend(userId, 3L));
     }
 
-    @Test
-    void validateErrorWhenDeleteFriendAndUserIdNotExist() {
+    @StorageTest
+    void validateErrorWhenDeleteFriendAndUserIdNotExist(StorageKind storage) {
+        init(storage);
         final long userId = validUser.getId();
         assertThrows(NotFoundException.class, () -> userService.deleteFriend(3L, userId));
     }
 
-    @Test
-    void successfulGetCommonFriend() {
-        successfulAddFriend();
+    @StorageTest
+    void successfulGetCommonFriend(StorageKind storage) {
+        init(storage);
+        getCommonFriend();
+    }
+
+    private void getCommonFriend() {
+        addFriend();
 
         User user3 = new User(
                 3L,
@@ -146,7 +265,7 @@ class UserServiceTest {
                 "Garage",
                 "Max",
                 LocalDate.of(1990, 1, 1),
-                new HashSet<>()
+                new LongHashSet()
         );
 
         final long user3Id = 3L;
@@ -159,15 +278,33 @@ class UserServiceTest {
         assertEquals(userService.getCommonFriends(user2Id, validUser.getId()), Set.of(user3));
     }
 
-    @Test
-    void validateErrorWhenGetCommonFriendAndFriendIdNotExist() {
+    @StorageTest
+    void getCommonFriendsDoesNotModifyFriendLists(StorageKind storage) {
+        init(storage);
+        getCommonFriend();
+        final long user2Id = friend.getId();
+
+        userService.getCommonFriends(user2Id, validUser.getId());
+
+        assertEquals(Set.of(2L, 3L), stored(validUser).getFriends());
+        assertEquals(Set.of(1L, 3L), stored(friend).getFriends());
+    }
+
+    @StorageTest
+    void validateErrorWhenGetCommonFriendAndFriendIdNotExist(StorageKind storage) {
+        init(storage);
         final long userId = validUser.getId();
         assertThrows(NotFoundException.class, () -> userService.getCommonFriends(userId, 3L));
     }
 
-    @Test
-    void validateErrorWhenGetCommonFriendAndUserIdNotExist() {
+    @StorageTest
+    void validateErrorWhenGetCommonFriendAndUserIdNotExist(StorageKind storage) {
+        init(storage);
         final long userId = validUser.getId();
         assertThrows(NotFoundException.class, () -> userService.getCommonFriends(3L, userId));
     }
+
+    private static User stored(User user) {
+        return userStorage.getElement(user.getId()).orElseThrow();
+    }
 }
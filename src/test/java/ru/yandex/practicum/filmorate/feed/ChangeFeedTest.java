@@ -0,0 +1,129 @@
+package ru.yandex.practicum.filmorate.feed;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.controller.ChangeController;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.jdbc.JdbcFilmStorage;
+import ru.yandex.practicum.filmorate.storage.jdbc.JdbcTestDatabase;
+import ru.yandex.practicum.filmorate.storage.jdbc.JdbcUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.util.Epoch;
+import ru.yandex.practicum.filmorate.util.LongHashSet;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ChangeFeedTest {
+    private ChangeFeed feed;
+    private FilmService filmService;
+    private UserService userService;
+
+    @BeforeEach
+    void setUp() {
+        attach(new InMemoryFilmStorage(), new InMemoryUserStorage());
+    }
+
+    @Test
+    void everyStorageChangeIsOneChangeInOrder() throws InterruptedException {
+        assertEveryChangeInOrder();
+    }
+
+    // the jdbc storages report their changes from inside the write transaction
+    @Test
+    void jdbcStorageChangesAreFedToo() throws InterruptedException {
+        attach(new JdbcFilmStorage(JdbcTestDatabase.create(), 100),
+                new JdbcUserStorage(JdbcTestDatabase.create(), 100));
+        assertEveryChangeInOrder();
+    }
+
+    @Test
+    void likePayloadsAreTheStateAsOfEachLike() throws InterruptedException {
+        User first = user();
+        User second = user();
+        userService.create(first);
+        userService.create(second);
+        Film film = new Film(0L, "Матрица", "Описание", LocalDate.of(1999, 12, 28), Duration.ofMinutes(136),
+                new LongHashSet());
+        filmService.create(film);
+        filmService.addLikes(List.of(new Like(film.getId(), first.getId()), new Like(film.getId(), second.getId())));
+
+        assertEquals(List.of("{\"type\":\"LIKE_ADDED\",\"filmId\":" + film.getId() + ",\"userId\":" + first.getId()
+                        + ",\"likes\":1}", "{\"type\":\"LIKE_ADDED\",\"filmId\":" + film.getId() + ",\"userId\":"
+                        + second.getId() + ",\"likes\":2}"),
+                feed.read(3, 0).entries().stream().map(ChangeLog.Entry::json).toList());
+    }
+
+    @Test
+    void eventIdsCarryTheProcessEpoch() {
+        assertEquals(Epoch.CURRENT + "-7", ChangeFeed.eventId(7));
+        assertEquals(7, ChangeFeed.position(ChangeFeed.eventId(7)));
+        assertEquals(ChangeFeed.FOREIGN, ChangeFeed.position("0123abcd-7"));
+        assertEquals(ChangeFeed.FOREIGN, ChangeFeed.position("7"));
+    }
+
+    @Test
+    void malformedAndNegativePositionsAreRejected() {
+        ChangeController controller = new ChangeController(feed);
+
+        assertThrows(ValidationException.class, () -> controller.changes("-1", null));
+        assertThrows(ValidationException.class, () -> controller.changes(null, Epoch.CURRENT + "--5"));
+        assertThrows(ValidationException.class, () -> controller.changes(Epoch.CURRENT + "-x", null));
+        assertEquals(0, feed.subscribers());
+    }
+
+    private void attach(FilmStorage films, UserStorage users) {
+        feed = new ChangeFeed(new ObjectMapper().registerModule(new JavaTimeModule()), films, users,
+                new FeedProperties(100, Duration.ofSeconds(15)));
+        feed.afterSingletonsInstantiated();
+        userService = new UserService(users, event -> { });
+        filmService = new FilmService(films, userService, event -> { });
+    }
+
+    // the repeated friendship changes nothing and is not fed
+    private void assertEveryChangeInOrder() throws InterruptedException {
+        User first = user();
+        User second = user();
+        userService.create(first);
+        userService.create(second);
+        userService.addFriend(first.getId(), second.getId());
+        userService.addFriend(first.getId(), second.getId());
+        Film film = new Film(0L, "Матрица", "Описание", LocalDate.of(1999, 12, 28), Duration.ofMinutes(136),
+                new LongHashSet());
+        filmService.create(film);
+        film.setName("Матрица: Перезагрузка");
+        filmService.update(film);
+        filmService.addLike(film.getId(), first.getId());
+        filmService.deleteLike(film.getId(), first.getId());
+        userService.deleteFriend(first.getId(), second.getId());
+
+        ChangeLog.Batch batch = feed.read(0, 0);
+        assertEquals(List.of("USER_CREATED", "USER_CREATED", "FRIEND_ADDED", "FILM_CREATED", "FILM_UPDATED",
+                "LIKE_ADDED", "LIKE_DELETED", "FRIEND_DELETED"), batch.entries().stream()
+                .map(ChangeLog.Entry::type)
+                .toList());
+        assertEquals("{\"type\":\"LIKE_ADDED\",\"filmId\":" + film.getId() + ",\"userId\":" + first.getId()
+                + ",\"likes\":1}", batch.entries().get(5).json());
+        assertEquals(List.of(6L, 7L, 8L), feed.read(5, 0).entries().stream()
+                .map(ChangeLog.Entry::sequence)
+                .toList());
+    }
+
+    private static User user() {
+        return new User(0L, "user@test.ru", "login", "name", LocalDate.of(1990, 1, 1), new LongHashSet());
+    }
+}
@@ -0,0 +1,64 @@
+package ru.yandex.practicum.filmorate.feed;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChangeLogTest {
+    private static final long NO_WAIT = 0;
+
+    private final ChangeLog log = new ChangeLog(4);
+
+    @Test
+    void readsFromAnyRetainedPositionInBatches() throws InterruptedException {
+        for (int i = 1; i <= 3; i++) {
+            assertEquals(i, log.append("T", "{\"n\":" + i + "}"));
+        }
+
+        assertEquals(List.of(1L, 2L, 3L), sequences(log.read(0, 10, NO_WAIT)));
+        assertEquals(List.of(2L, 3L), sequences(log.read(1, 10, NO_WAIT)));
+        assertEquals(List.of(2L), sequences(log.read(1, 1, NO_WAIT)));
+        assertEquals("{\"n\":2}", log.read(1, 1, NO_WAIT).entries().getFirst().json());
+        assertEquals(List.of(), sequences(log.read(3, 10, NO_WAIT)));
+    }
+
+    @Test
+    void positionsOutsideTheRingAreLost() throws InterruptedException {
+        for (int i = 1; i <= 6; i++) {
+            log.append("T", "{}");
+        }
+
+        // the ring of four holds 3..6: reading after 2 still works, after 1 the next change is gone
+        assertEquals(List.of(3L, 4L, 5L, 6L), sequences(log.read(2, 10, NO_WAIT)));
+        assertTrue(log.read(1, 10, NO_WAIT).lost());
+        // a position from before a restart
+        assertTrue(log.read(7, 10, NO_WAIT).lost());
+        assertTrue(log.read(-1, 10, NO_WAIT).lost());
+        assertFalse(log.read(6, 10, NO_WAIT).lost());
+    }
+
+    @Test
+    void readerWaitsForTheNextChange() throws Exception {
+        CompletableFuture<ChangeLog.Batch> read = CompletableFuture.supplyAsync(() -> {
+            try {
+                return log.read(0, 10, Duration.ofSeconds(10).toNanos());
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        log.append("T", "{}");
+
+        assertEquals(List.of(1L), sequences(read.get(5, TimeUnit.SECONDS)));
+    }
+
+    private static List<Long> sequences(ChangeLog.Batch batch) {
+        return batch.entries().stream().map(ChangeLog.Entry::sequence).toList();
+    }
+}
@@ -0,0 +1,56 @@
+package ru.yandex.practicum.filmorate.json;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.util.LongHashSet;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FieldsTest {
+    private ObjectMapper mapper;
+    private Film film;
+
+    @BeforeEach
+    void init() {
+        Jackson2ObjectMapperBuilder builder = new Jackson2ObjectMapperBuilder();
+        new JsonConfiguration().fieldsCustomizer().customize(builder);
+        mapper = builder.build();
+        film = new Film(1L, "Фильм", "Описание", LocalDate.of(2000, 1, 1), Duration.ofMinutes(90),
+                new LongHashSet(List.of(7L, 8L)));
+    }
+
+    @Test
+    void withoutProjectionWritesWhatAPlainMapperWrites() throws Exception {
+        ObjectMapper plain = new ObjectMapper().findAndRegisterModules();
+        assertEquals(plain.readTree(plain.writeValueAsString(film)), mapper.readTree(mapper.writeValueAsString(film)));
+    }
+
+    @Test
+    void projectionWritesOnlyTheRequestedFields() throws Exception {
+        Fields fields = Fields.parse("likesCount, id,name", Fields.FILM);
+        User user = new User(2L, "user@test.ru", "login", "Имя", LocalDate.of(1990, 1, 1), new LongHashSet());
+
+        assertEquals("{\"id\":1,\"name\":\"Фильм\",\"likesCount\":2}",
+                mapper.writer(fields.filters()).writeValueAsString(film));
+        assertEquals("{\"friendsCount\":0}",
+                mapper.writer(Fields.parse("friendsCount", Fields.USER).filters()).writeValueAsString(user));
+        assertEquals("id,likesCount,name", fields.key());
+    }
+
+    @Test
+    void rejectsUnknownOrEmptyFieldLists() {
+        assertThrows(ValidationException.class, () -> Fields.parse("id,friends", Fields.FILM));
+        assertThrows(ValidationException.class, () -> Fields.parse(" , ", Fields.FILM));
+        assertEquals(Fields.ALL, Fields.parse(null, Fields.USER));
+    }
+}
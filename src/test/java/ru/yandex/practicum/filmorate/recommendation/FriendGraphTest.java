@@ -0,0 +1,238 @@
+package ru.yandex.practicum.filmorate.recommendation;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.event.FriendshipChangedEvent;
+import ru.yandex.practicum.filmorate.event.UserChangedEvent;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.util.LongHashSet;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FriendGraphTest {
+    private InMemoryUserStorage storage;
+    private FriendGraph graph;
+
+    private final AtomicInteger fullReads = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        storage = new InMemoryUserStorage() {
+            @Override
+            public Collection<User> getAll() {
+                fullReads.incrementAndGet();
+                return super.getAll();
+            }
+        };
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (graph != null) {
+            graph.close();
+        }
+    }
+
+    @Test
+    void ranksFriendsOfFriendsByMutualFriendsThenId() {
+        users(8);
+        // 1 - {2, 3, 4}; 5 knows 2, 3 and 4, 6 knows 2 and 3, 7 knows 4, 8 knows 2
+        friends(1, 2, 3, 4);
+        friends(5, 2, 3, 4);
+        friends(6, 2, 3);
+        friends(7, 4);
+        friends(8, 2);
+        graph = newGraph(Duration.ofSeconds(1), 1000);
+
+        assertEquals(List.of(new Candidate(5, 3), new Candidate(6, 2), new Candidate(7, 1), new Candidate(8, 1)),
+                graph.recommend(1, 10));
+        assertEquals(List.of(new Candidate(5, 3), new Candidate(6, 2)), graph.recommend(1, 2));
+        // friends and the user themself are never recommended
+        assertEquals(List.of(new Candidate(1, 2), new Candidate(5, 2), new Candidate(8, 1)), graph.recommend(6, 10));
+        assertEquals(List.of(), graph.recommend(42, 10));
+    }
+
+    @Test
+    void parallelWalkOverHighDegreeUserMatchesBruteForce() {
+        int userCount = 3000;
+        users(userCount);
+        SplittableRandom random = new SplittableRandom(17);
+        for (long id = 2; id <= userCount; id++) {
+            if (random.nextInt(3) == 0) {
+                storage.addFriend(1, id);
+            }
+            for (int i = 0; i < 60; i++) {
+                long other = 2 + random.nextInt(userCount - 1);
+                if (other != id) {
+                    storage.addFriend(id, other);
+                }
+            }
+        }
+        graph = newGraph(Duration.ofSeconds(1), Integer.MAX_VALUE);
+
+        long paths = 0;
+        for (long friendId : storage.getElement(1L).orElseThrow().getFriends().toLongArray()) {
+            paths += storage.getElement(friendId).orElseThrow().getFriends().size();
+        }
+        assertTrue(paths > FriendGraph.PARALLEL_THRESHOLD);
+        assertEquals(bruteForce(1, 50), graph.recommend(1, 50));
+    }
+
+    @Test
+    void pathBudgetSkipsTheBusiestFriends() {
+        users(6);
+        // 2 is a hub with four friends, 3 has two
+        friends(1, 2, 3);
+        friends(2, 4, 5, 6);
+        friends(3, 4);
+        graph = newGraph(Duration.ofSeconds(1), 2);
+
+        assertEquals(List.of(new Candidate(4, 1)), graph.recommend(1, 10));
+    }
+
+    @Test
+    void graphIsRebuiltAfterFriendshipChanges() throws InterruptedException {
+        users(3);
+        friends(1, 2);
+        graph = newGraph(Duration.ZERO, 1000);
+        assertEquals(List.of(), graph.recommend(1, 10));
+
+        storage.addFriend(2, 3);
+        graph.onFriendshipChanged(new FriendshipChangedEvent(2, 3, true));
+
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (graph.recommend(1, 10).isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(List.of(new Candidate(3, 1)), graph.recommend(1, 10));
+    }
+
+    @Test
+    void changesAreAppliedWithoutReadingTheWholeStorage() throws InterruptedException {
+        users(4);
+        friends(1, 2);
+        graph = newGraph(Duration.ZERO, 1000);
+        assertEquals(List.of(), graph.recommend(1, 10));
+
+        storage.addFriend(2, 3);
+        graph.onFriendshipChanged(new FriendshipChangedEvent(2, 3, true));
+        storage.create(new User(5L, "user5@mail.ru", "user5", "user5", LocalDate.of(1990, 1, 1), new LongHashSet()));
+        graph.onUserChanged(new UserChangedEvent(5, true));
+        storage.addFriend(2, 5);
+        graph.onFriendshipChanged(new FriendshipChangedEvent(2, 5, true));
+        // delivered twice and out of order: the rows are read as they are now, so it changes nothing
+        graph.onFriendshipChanged(new FriendshipChangedEvent(2, 3, true));
+
+        List<Candidate> expected = List.of(new Candidate(3, 1), new Candidate(5, 1));
+        awaitRecommendations(1, expected);
+        assertEquals(expected, graph.recommend(1, 10));
+
+        storage.deleteFriend(2, 3);
+        graph.onFriendshipChanged(new FriendshipChangedEvent(2, 3, false));
+        awaitRecommendations(1, List.of(new Candidate(5, 1)));
+        assertEquals(List.of(new Candidate(5, 1)), graph.recommend(1, 10));
+        assertEquals(1, fullReads.get());
+    }
+
+    @Test
+    void friendListGrowingWhileItIsReadIsTakenFromOneCopy() throws InterruptedException {
+        users(4);
+        friends(1, 2);
+        graph = newGraph(Duration.ZERO, 1000);
+        assertEquals(List.of(), graph.recommend(1, 10));
+
+        // another writer befriends 2 and 4 while the row of 2 is being read
+        LongHashSet growing = new LongHashSet(List.of(1L, 3L)) {
+            @Override
+            public synchronized long[] toLongArray() {
+                add(4L);
+                return super.toLongArray();
+            }
+        };
+        storage.update(new User(2L, "user2@mail.ru", "user2", "user2", LocalDate.of(1990, 1, 1), growing));
+        graph.onFriendshipChanged(new FriendshipChangedEvent(2, 3, true));
+
+        List<Candidate> expected = List.of(new Candidate(3, 1), new Candidate(4, 1));
+        awaitRecommendations(1, expected);
+        assertEquals(expected, graph.recommend(1, 10));
+        assertEquals(1, fullReads.get());
+    }
+
+    @Test
+    void manyChangedRowsAreMergedIntoANewBase() throws InterruptedException {
+        int userCount = 3000;
+        users(userCount);
+        graph = newGraph(Duration.ZERO, Integer.MAX_VALUE);
+        assertEquals(List.of(), graph.recommend(1, 10));
+
+        SplittableRandom random = new SplittableRandom(5);
+        for (long id = 2; id <= userCount; id++) {
+            long other = 1 + random.nextInt(userCount);
+            if (other != id) {
+                storage.addFriend(id, other);
+                graph.onFriendshipChanged(new FriendshipChangedEvent(id, other, true));
+            }
+            if (random.nextInt(4) == 0) {
+                storage.addFriend(1, id);
+                graph.onFriendshipChanged(new FriendshipChangedEvent(1, id, true));
+            }
+        }
+
+        awaitRecommendations(1, bruteForce(1, 50));
+        assertEquals(bruteForce(1, 50), graph.recommend(1, 50));
+    }
+
+    private void awaitRecommendations(long userId, List<Candidate> expected) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!graph.recommend(userId, expected.size() + 10).equals(expected) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private FriendGraph newGraph(Duration rebuildInterval, int maxPaths) {
+        return new FriendGraph(storage, new RecommendationProperties(rebuildInterval, maxPaths, 50));
+    }
+
+    private List<Candidate> bruteForce(long userId, int count) {
+        LongHashSet friends = storage.getElement(userId).orElseThrow().getFriends();
+        Map<Long, Integer> mutual = new HashMap<>();
+        for (long friendId : friends.toLongArray()) {
+            for (long id : storage.getElement(friendId).orElseThrow().getFriends().toLongArray()) {
+                if (id != userId && !friends.contains(id)) {
+                    mutual.merge(id, 1, Integer::sum);
+                }
+            }
+        }
+        return mutual.entrySet().stream()
+                .map(entry -> new Candidate(entry.getKey(), entry.getValue()))
+                .sorted(Comparator.comparingInt(Candidate::score).reversed().thenComparingLong(Candidate::id))
+                .limit(count)
+                .toList();
+    }
+
+    private void users(int count) {
+        for (long id = 1; id <= count; id++) {
+            storage.create(new User(id, "user" + id + "@mail.ru", "user" + id, "user" + id,
+                    LocalDate.of(1990, 1, 1), new LongHashSet()));
+        }
+    }
+
+    private void friends(long userId, long... friendIds) {
+        for (long friendId : friendIds) {
+            storage.addFriend(userId, friendId);
+        }
+    }
+}
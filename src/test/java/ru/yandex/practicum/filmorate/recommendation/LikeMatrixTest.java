@@ -0,0 +1,123 @@
+package ru.yandex.practicum.filmorate.recommendation;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.event.FilmChangedEvent;
+import ru.yandex.practicum.filmorate.event.LikeChangedEvent;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.util.LongHashSet;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LikeMatrixTest {
+    private InMemoryFilmStorage storage;
+
+    @BeforeEach
+    void setUp() {
+        storage = new InMemoryFilmStorage();
+        for (long id = 1; id <= 6; id++) {
+            storage.create(film(id));
+        }
+        // user 1 likes 1, 2, 3; user 2 shares 1, 2 and likes 4, 5; user 3 shares 3 and likes 5, 6
+        likes(1, 1, 2, 3);
+        likes(2, 1, 2, 4, 5);
+        likes(3, 3, 5, 6);
+    }
+
+    @Test
+    void recommendsUnseenFilmsOfSimilarUsersBySummedOverlap() {
+        LikeMatrix matrix = newMatrix(1000, 50);
+
+        // 5 is liked by both neighbours (2 + 1), 4 by user 2 (2), 6 by user 3 (1)
+        assertEquals(List.of(new Candidate(5, 3), new Candidate(4, 2), new Candidate(6, 1)), matrix.recommend(1, 10));
+        assertEquals(List.of(new Candidate(5, 3)), matrix.recommend(1, 1));
+        assertEquals(List.of(), matrix.recommend(42, 10));
+    }
+
+    @Test
+    void onlyTheMostSimilarUsersAreNeighbours() {
+        LikeMatrix matrix = newMatrix(1000, 1);
+
+        assertEquals(List.of(new Candidate(4, 2), new Candidate(5, 2)), matrix.recommend(1, 10));
+    }
+
+    @Test
+    void pathBudgetWalksTheLeastLikedFilmsFirst() {
+        assertEquals(List.of(new Candidate(3, 3), new Candidate(6, 1)), newMatrix(1000, 50).recommend(2, 10));
+
+        // films 1, 2 and 5 of user 2 have two likers each; two paths walk film 1 only, so user 3, who shares
+        // film 5, is never met
+        assertEquals(List.of(new Candidate(3, 2)), newMatrix(2, 50).recommend(2, 10));
+    }
+
+    @Test
+    void followsLikeAndFilmChangesAfterTheFirstQuery() {
+        LikeMatrix matrix = newMatrix(1000, 50);
+        matrix.recommend(1, 10);
+
+        storage.addLike(4, 1);
+        matrix.onLikeChanged(new LikeChangedEvent(4, 1, true, 2));
+        storage.deleteLike(5, 3);
+        matrix.onLikeChanged(new LikeChangedEvent(5, 3, false, 1));
+        // 5: 3 from user 2 now (overlap 3), 6: 1 from user 3
+        assertEquals(List.of(new Candidate(5, 3), new Candidate(6, 1)), matrix.recommend(1, 10));
+
+        Film replaced = film(6);
+        replaced.setLikes(new LongHashSet(List.of(2L)));
+        storage.update(replaced);
+        matrix.onFilmChanged(new FilmChangedEvent(6, 1, false));
+        assertEquals(List.of(new Candidate(5, 3), new Candidate(6, 3)), matrix.recommend(1, 10));
+    }
+
+    @Test
+    void loadsTheStoragePageByPage() {
+        // films on the second and third pages, liked by user 10 and by user 11, who shares one of them
+        for (long id = 7; id <= 2500; id++) {
+            storage.create(film(id));
+        }
+        likes(10, 2400);
+        likes(11, 2400, 2500, 1700);
+
+        assertEquals(List.of(new Candidate(1700, 1), new Candidate(2500, 1)), newMatrix(1000, 50).recommend(10, 10));
+    }
+
+    @Test
+    void skipsLikesWithIdsOutsideTheIndexRange() {
+        Film loaded = film(7);
+        loaded.setLikes(new LongHashSet(List.of(-1L, 5_000_000_000L, 3L)));
+        storage.create(loaded);
+        LikeMatrix matrix = newMatrix(1000, 50);
+        // user 3 now likes 3, 5, 6 and 7
+        assertEquals(List.of(new Candidate(5, 3), new Candidate(4, 2), new Candidate(6, 1), new Candidate(7, 1)),
+                matrix.recommend(1, 10));
+
+        Film updated = film(8);
+        updated.setLikes(new LongHashSet(List.of(0L, Long.MAX_VALUE)));
+        storage.create(updated);
+        matrix.onFilmChanged(new FilmChangedEvent(8, 2, true));
+        matrix.onLikeChanged(new LikeChangedEvent(5_000_000_000L, 1, true, 1));
+        assertEquals(List.of(), matrix.recommend(5_000_000_000L, 10));
+        assertEquals(List.of(new Candidate(5, 3), new Candidate(4, 2), new Candidate(6, 1), new Candidate(7, 1)),
+                matrix.recommend(1, 10));
+    }
+
+    private LikeMatrix newMatrix(int maxPaths, int neighbours) {
+        return new LikeMatrix(storage, new RecommendationProperties(Duration.ofSeconds(1), maxPaths, neighbours));
+    }
+
+    private void likes(long userId, long... filmIds) {
+        for (long filmId : filmIds) {
+            storage.addLike(filmId, userId);
+        }
+    }
+
+    private static Film film(long id) {
+        return new Film(id, "Фильм " + id, "Описание", LocalDate.of(2000, 1, 1), Duration.ofMinutes(100),
+                new LongHashSet());
+    }
+}
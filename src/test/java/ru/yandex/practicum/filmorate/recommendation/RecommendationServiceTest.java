@@ -0,0 +1,120 @@
+package ru.yandex.practicum.filmorate.recommendation;
+
+import org.junit.jupiter.api.AfterEach;
+import ru.yandex.practicum.filmorate.event.LikeChangedEvent;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FriendRecommendation;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.RecommendationService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.StorageKind;
+import ru.yandex.practicum.filmorate.storage.StorageTest;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.util.LongHashSet;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RecommendationServiceTest {
+    private final RecommendationProperties properties = new RecommendationProperties(Duration.ofSeconds(1), 1000, 50);
+    private final TrendingLikes trending = new TrendingLikes();
+
+    private FilmStorage filmStorage;
+    private UserStorage userStorage;
+    private UserService userService;
+    private FilmService filmService;
+    private FriendGraph graph;
+    private RecommendationService recommendations;
+
+    private void init(StorageKind storage, int films, int users) {
+        filmStorage = storage.films();
+        userStorage = storage.users();
+        userService = new UserService(userStorage, event -> { });
+        filmService = new FilmService(filmStorage, userService, event -> {
+            if (event instanceof LikeChangedEvent changed) {
+                trending.onLikeChanged(changed);
+            }
+        });
+        for (int i = 0; i < films; i++) {
+            filmService.create(new Film(0L, "Фильм " + i, "Описание", LocalDate.of(2000, 1, 1),
+                    Duration.ofMinutes(100), new LongHashSet()));
+        }
+        for (int i = 0; i < users; i++) {
+            userService.create(new User(0L, "user" + i + "@test.ru", "user" + i, "user" + i,
+                    LocalDate.of(1990, 1, 1), new LongHashSet()));
+        }
+        graph = new FriendGraph(userStorage, properties);
+        recommendations = new RecommendationService(userService, userStorage, filmStorage, graph,
+                new LikeMatrix(filmStorage, properties), trending);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (graph != null) {
+            graph.close();
+        }
+    }
+
+    @StorageTest
+    void recommendedFilmsComeFromUsersWithOverlappingLikes(StorageKind storage) {
+        init(storage, 4, 3);
+        // user 1 likes 1 and 2; user 2 shares both and likes 3, user 3 shares 1 and likes 4
+        filmService.addLike(1, 1);
+        filmService.addLike(2, 1);
+        filmService.addLike(1, 2);
+        filmService.addLike(2, 2);
+        filmService.addLike(3, 2);
+        filmService.addLike(1, 3);
+        filmService.addLike(4, 3);
+
+        assertEquals(List.of(3L, 4L), ids(recommendations.getFilmRecommendations(1L, 10)));
+        assertThrows(NotFoundException.class, () -> recommendations.getFilmRecommendations(4L, 10));
+        assertThrows(ValidationException.class, () -> recommendations.getFilmRecommendations(1L, 0));
+    }
+
+    @StorageTest
+    void trendingRanksFilmsByRecentLikes(StorageKind storage) {
+        init(storage, 2, 2);
+        filmService.addLike(1, 1);
+        filmService.addLike(2, 1);
+        filmService.addLike(2, 2);
+        assertEquals(List.of(2L, 1L), ids(recommendations.getTrendingFilms("1h", 10)));
+
+        filmService.deleteLike(2, 2);
+        filmService.deleteLike(2, 1);
+        assertEquals(List.of(1L), ids(recommendations.getTrendingFilms("7d", 10)));
+        assertThrows(ValidationException.class, () -> recommendations.getTrendingFilms("1y", 10));
+        assertThrows(ValidationException.class, () -> recommendations.getTrendingFilms("24h", 0));
+    }
+
+    @StorageTest
+    void friendRecommendationsRankFriendsOfFriends(StorageKind storage) {
+        init(storage, 0, 3);
+        userService.addFriend(1L, 2L);
+        userService.addFriend(2L, 3L);
+
+        assertEquals(List.of(new FriendRecommendation(stored(3), 1)),
+                recommendations.getFriendRecommendations(1L, 10));
+        assertEquals(List.of(new FriendRecommendation(stored(1), 1)),
+                recommendations.getFriendRecommendations(3L, 10));
+        assertEquals(List.of(), recommendations.getFriendRecommendations(2L, 10));
+        assertThrows(NotFoundException.class, () -> recommendations.getFriendRecommendations(4L, 10));
+        assertThrows(ValidationException.class, () -> recommendations.getFriendRecommendations(1L, 0));
+    }
+
+    private User stored(long id) {
+        return userStorage.getElement(id).orElseThrow();
+    }
+
+    private static List<Long> ids(List<Film> films) {
+        return films.stream().map(Film::getId).toList();
+    }
+}
@@ -0,0 +1,33 @@
+package ru.yandex.practicum.filmorate.recommendation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TopKTest {
+
+    @Test
+    void keepsTheBestByScoreThenLowerIndex() {
+        SplittableRandom random = new SplittableRandom(3);
+        for (int k : new int[]{0, 1, 5, 100, 5000}) {
+            TopK best = new TopK(k);
+            List<Candidate> offered = new ArrayList<>();
+            for (int index = 0; index < 2000; index++) {
+                int score = random.nextInt(50);
+                best.offer(score, index);
+                offered.add(new Candidate(index, score));
+            }
+            List<Candidate> expected = offered.stream()
+                    .sorted(Comparator.comparingInt(Candidate::score).reversed().thenComparingLong(Candidate::id))
+                    .limit(k)
+                    .map(candidate -> new Candidate(candidate.id() * 10, candidate.score()))
+                    .toList();
+            assertEquals(expected, best.drain(index -> index * 10L));
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package ru.yandex.practicum.filmorate.recommendation;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.event.LikeChangedEvent;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TrendingLikesTest {
+    private static final long HOUR = Duration.ofHours(1).toMillis();
+    private static final long DAY = Duration.ofDays(1).toMillis();
+
+    private long now = 100 * DAY;
+    private final TrendingLikes trending = new TrendingLikes(() -> now);
+
+    @Test
+    void countsLikesWithinEachWindow() {
+        like(1, 3);
+        now += 2 * HOUR;
+        like(2, 2);
+        now += 2 * DAY;
+        like(3, 1);
+
+        assertEquals(List.of(new Candidate(3, 1)), trending.top(TrendWindow.HOUR, 10));
+        assertEquals(List.of(new Candidate(3, 1)), trending.top(TrendWindow.DAY, 10));
+        assertEquals(List.of(new Candidate(1, 3), new Candidate(2, 2), new Candidate(3, 1)),
+                trending.top(TrendWindow.WEEK, 10));
+        assertEquals(List.of(new Candidate(1, 3)), trending.top(TrendWindow.WEEK, 1));
+
+        now += 7 * DAY;
+        assertEquals(List.of(), trending.top(TrendWindow.WEEK, 10));
+    }
+
+    @Test
+    void removedLikesAreTakenFromTheLatestBucketCountingOne() {
+        like(1, 2);
+        like(2, 1);
+        trending.onLikeChanged(new LikeChangedEvent(1, 1, false, 1));
+        trending.onLikeChanged(new LikeChangedEvent(1, 2, false, 0));
+
+        assertEquals(List.of(new Candidate(2, 1)), trending.top(TrendWindow.HOUR, 10));
+
+        // a like given an hour ago is out of the hour already, so taking it back leaves the hour alone
+        now += HOUR + 1;
+        like(3, 1);
+        trending.onLikeChanged(new LikeChangedEvent(2, 1, false, 0));
+        assertEquals(List.of(new Candidate(3, 1)), trending.top(TrendWindow.HOUR, 10));
+        assertEquals(List.of(new Candidate(3, 1)), trending.top(TrendWindow.DAY, 10));
+    }
+
+    @Test
+    void takingBackALikeIsTakingBackTheLatestOne() {
+        like(1, 1);
+        now += 2 * HOUR;
+        trending.onLikeChanged(new LikeChangedEvent(1, 2, true, 2));
+        // user 1's like is taken back, but without like times the latest one is: user 2's like now counts two
+        // hours ago
+        trending.onLikeChanged(new LikeChangedEvent(1, 1, false, 1));
+
+        assertEquals(List.of(), trending.top(TrendWindow.HOUR, 10));
+        assertEquals(List.of(new Candidate(1, 1)), trending.top(TrendWindow.DAY, 10));
+    }
+
+    @Test
+    void likesNotInTheWindowAreNotTakenBack() {
+        // given before the process started, or more than a week ago: never counted, so nothing to take back
+        like(1, 1);
+        trending.onLikeChanged(new LikeChangedEvent(2, 7, false, 0));
+        now += 8 * DAY;
+        trending.onLikeChanged(new LikeChangedEvent(1, 1, false, 0));
+        like(1, 1);
+
+        assertEquals(List.of(new Candidate(1, 1)), trending.top(TrendWindow.WEEK, 10));
+        assertEquals(1, trending.size());
+    }
+
+    @Test
+    void reusesTheSlotsOfFilmsNotLikedForAWeek() {
+        int capacity = TrendingLikes.INITIAL_CAPACITY;
+        for (long film = 1; film <= capacity; film++) {
+            like(film, 1);
+        }
+        now += 8 * DAY;
+        like(capacity + 1, 2);
+
+        assertEquals(1, trending.size());
+        assertEquals(capacity, trending.capacity());
+        assertEquals(List.of(new Candidate(capacity + 1, 2)), trending.top(TrendWindow.WEEK, 10));
+
+        for (long film = capacity + 2; film <= 2 * capacity; film++) {
+            like(film, 1);
+        }
+        like(1, 1);
+        assertEquals(capacity + 1, trending.size());
+        assertEquals(2 * capacity, trending.capacity());
+    }
+
+    @Test
+    void windowIsOneOfTheKnownNames() {
+        assertEquals(TrendWindow.DAY, TrendWindow.of("24h"));
+        assertThrows(ValidationException.class, () -> TrendWindow.of("1w"));
+    }
+
+    private void like(long filmId, int times) {
+        for (int user = 1; user <= times; user++) {
+            trending.onLikeChanged(new LikeChangedEvent(filmId, user, true, user));
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package ru.yandex.practicum.filmorate.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.event.FilmChangedEvent;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.util.LongHashSet;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FilmSearchIndexTest {
+    private InMemoryFilmStorage storage;
+    private FilmSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        storage = new InMemoryFilmStorage();
+        storage.create(film(1, "Матрица", "Хакер узнаёт правду о мире"));
+        storage.create(film(2, "Матрица: Перезагрузка", "Продолжение истории о Нео"));
+        storage.create(film(3, "Терминатор", "Машина из будущего, матричный компьютер"));
+        storage.create(film(4, "Ёлки", "Новогодняя комедия"));
+        index = new FilmSearchIndex(storage);
+    }
+
+    @Test
+    void tokenizesIntoLowerCaseWordsOnce() {
+        assertEquals(List.of("матрица", "перезагрузка", "2003"),
+                FilmSearchIndex.tokenize("Матрица: ПЕРЕЗАГРУЗКА (2003), матрица!"));
+        assertEquals(List.of("елки"), FilmSearchIndex.tokenize("Ёлки"));
+        assertEquals(List.of(), FilmSearchIndex.tokenize(" ,.- "));
+    }
+
+    @Test
+    void matchesWholeWordsPrefixesAndInfixes() {
+        assertEquals(List.of(1L, 2L), index.search("матрица", 10));
+        // "ма" starts "матрица", "машина" and "матричный"; "атри" is inside "матрица" and "матричный"
+        assertEquals(List.of(1L, 2L, 3L), index.search("ма", 10));
+        assertEquals(List.of(1L, 2L, 3L), index.search("атри", 10));
+        assertEquals(List.of(4L), index.search("елки", 10));
+        assertEquals(List.of(), index.search("хакеры", 10));
+    }
+
+    @Test
+    void everyTokenMustMatchAndWholeWordMatchesRankFirst() {
+        storage.create(film(5, "Мир", "Документальный"));
+
+        assertEquals(List.of(2L), index.search("матрица нео", 10));
+        assertEquals(List.of(), index.search("матрица машина", 10));
+        // film 1 has "мире", film 5 the whole word
+        assertEquals(List.of(5L, 1L), index.search("мир", 10));
+        assertEquals(List.of(1L), index.search("матрица", 1));
+    }
+
+    @Test
+    void createdAndUpdatedFilmsAreReindexed() {
+        index.search("матрица", 10);
+
+        storage.create(film(5, "Матрица: Воскрешение", "Четвёртая часть"));
+        index.onFilmChanged(new FilmChangedEvent(5, 0, true));
+        storage.update(film(1, "Тёмный город", "Нуар"));
+        index.onFilmChanged(new FilmChangedEvent(1, 0, false));
+
+        assertEquals(List.of(2L, 5L), index.search("матрица", 10));
+        assertEquals(List.of(1L), index.search("темный", 10));
+        assertEquals(List.of(), index.search("хакер", 10));
+    }
+
+    @Test
+    void loadsTheStoragePageByPage() {
+        for (long id = 5; id <= 2500; id++) {
+            storage.create(film(id, "Фильм " + id, id % 1000 == 0 ? "Редкий эпизод" : "Описание"));
+        }
+
+        assertEquals(List.of(1000L, 2000L), index.search("редкий", 10));
+        assertEquals(List.of(2500L), index.search("2500", 10));
+    }
+
+    private static Film film(long id, String name, String description) {
+        return new Film(id, name, description, LocalDate.of(2000, 1, 1), Duration.ofMinutes(100), new LongHashSet());
+    }
+}
@@ -0,0 +1,49 @@
+package ru.yandex.practicum.filmorate.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PostingsTest {
+
+    @Test
+    void keepsIdsSortedAndOnce() {
+        Postings postings = new Postings();
+        for (int id : new int[]{5, 1, 9, 5, 3}) {
+            postings.add(id);
+        }
+        assertTrue(postings.remove(9));
+        assertFalse(postings.remove(7));
+
+        assertArrayEquals(new int[]{1, 3, 5}, postings.toArray());
+        assertEquals(3, postings.size());
+    }
+
+    @Test
+    void aViewKeepsItsIdsWhateverChangesLater() {
+        Postings postings = new Postings();
+        for (int id = 10; id < 20; id++) {
+            postings.add(id);
+        }
+        Postings.View view = postings.view();
+
+        postings.add(25);
+        postings.add(5);
+        postings.remove(12);
+        for (int id = 100; id < 200; id++) {
+            postings.add(id);
+        }
+
+        long[] bits = new long[4];
+        view.setBits(bits);
+        assertEquals(10, Arrays.stream(bits).map(Long::bitCount).sum());
+        assertTrue(view.contains(12));
+        assertFalse(view.contains(25));
+        assertFalse(view.contains(5));
+    }
+}
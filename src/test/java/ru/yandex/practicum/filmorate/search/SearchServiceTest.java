@@ -0,0 +1,50 @@
+package ru.yandex.practicum.filmorate.search;
+
+import ru.yandex.practicum.filmorate.event.FilmChangedEvent;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.SearchService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.StorageKind;
+import ru.yandex.practicum.filmorate.storage.StorageTest;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.util.LongHashSet;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SearchServiceTest {
+    @StorageTest
+    void searchFindsFilmsByWordsOfNameAndDescription(StorageKind storage) {
+        FilmStorage filmStorage = storage.films();
+        FilmSearchIndex index = new FilmSearchIndex(filmStorage);
+        SearchService search = new SearchService(filmStorage, index);
+        FilmService filmService = new FilmService(filmStorage, new UserService(storage.users(), event -> { }),
+                event -> {
+                    if (event instanceof FilmChangedEvent changed) {
+                        index.onFilmChanged(changed);
+                    }
+                });
+        Film film = new Film(0L, "Матрица", "Описание", LocalDate.of(1999, 12, 28), Duration.ofMinutes(120),
+                new LongHashSet());
+        filmService.create(film);
+        assertEquals(List.of(film.getId()), ids(search.searchFilms("матр", 10)));
+
+        Film sequel = new Film(0L, "Матрица: Перезагрузка", "Продолжение", LocalDate.of(2003, 5, 15),
+                Duration.ofMinutes(138), new LongHashSet());
+        filmService.create(sequel);
+        assertEquals(List.of(sequel.getId()), ids(search.searchFilms("Перезагрузка", 10)));
+        assertEquals(List.of(film.getId(), sequel.getId()), ids(search.searchFilms("матрица", 10)));
+        assertThrows(ValidationException.class, () -> search.searchFilms(" ", 10));
+        assertThrows(ValidationException.class, () -> search.searchFilms("матрица", 0));
+    }
+
+    private static List<Long> ids(List<Film> films) {
+        return films.stream().map(Film::getId).toList();
+    }
+}
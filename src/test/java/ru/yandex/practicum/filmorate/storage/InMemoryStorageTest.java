@@ -0,0 +1,68 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.StorageData;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.util.LongHashSet;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class InMemoryStorageTest {
+    private static final int THREADS = 8;
+    private static final int USERS_PER_THREAD = 5_000;
+
+    @Test
+    void concurrentCreatesGetUniqueIdsAndReadersNeverFail() throws Exception {
+        Storage<User> storage = new InMemoryUserStorage();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                writers.add(executor.submit(() -> {
+                    start.await();
+                    for (int j = 0; j < USERS_PER_THREAD; j++) {
+                        storage.create(newUser(storage.nextId()));
+                    }
+                    return null;
+                }));
+            }
+            Future<?> reader = executor.submit(() -> {
+                start.await();
+                while (writers.stream().anyMatch(w -> !w.isDone())) {
+                    storage.getAll().forEach(StorageData::getId);
+                }
+                return null;
+            });
+
+            start.countDown();
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+            reader.get();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Set<Long> ids = storage.getAll().stream()
+                .map(StorageData::getId)
+                .collect(Collectors.toSet());
+        assertEquals(THREADS * USERS_PER_THREAD, ids.size());
+        assertEquals(THREADS * USERS_PER_THREAD, storage.nextId() - 1);
+    }
+
+    private static User newUser(long id) {
+        return new User(id, "test@test.ru", "login" + id, "name", LocalDate.of(1990, 1, 1), new LongHashSet());
+    }
+}
@@ -0,0 +1,45 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.jdbc.JdbcFilmStorage;
+import ru.yandex.practicum.filmorate.storage.jdbc.JdbcTestDatabase;
+import ru.yandex.practicum.filmorate.storage.jdbc.JdbcUserStorage;
+import ru.yandex.practicum.filmorate.storage.partitioned.PartitionedFilmStorage;
+import ru.yandex.practicum.filmorate.storage.partitioned.PartitionedStorageProperties;
+import ru.yandex.practicum.filmorate.storage.partitioned.PartitionedUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.storage.versioned.VersionedFilmStorage;
+import ru.yandex.practicum.filmorate.storage.versioned.VersionedUserStorage;
+
+import java.util.function.Supplier;
+
+// The storages a @StorageTest runs against, each call giving new, empty ones:
+// jdbc keeps every storage in its own in-memory H2 database; partitioned has more shards than the tests have
+// elements, so friends mostly live in other shards; versioned stores copies of what it is given and reads friend
+// lists from one snapshot.
+public enum StorageKind {
+    MEMORY(InMemoryFilmStorage::new, InMemoryUserStorage::new),
+    JDBC(() -> new JdbcFilmStorage(JdbcTestDatabase.create(), 100),
+            () -> new JdbcUserStorage(JdbcTestDatabase.create(), 100)),
+    PARTITIONED(() -> new PartitionedFilmStorage(new PartitionedStorageProperties(4)),
+            () -> new PartitionedUserStorage(new PartitionedStorageProperties(4))),
+    VERSIONED(VersionedFilmStorage::new, VersionedUserStorage::new);
+
+    private final Supplier<FilmStorage> films;
+    private final Supplier<UserStorage> users;
+
+    StorageKind(Supplier<FilmStorage> films, Supplier<UserStorage> users) {
+        this.films = films;
+        this.users = users;
+    }
+
+    public FilmStorage films() {
+        return films.get();
+    }
+
+    public UserStorage users() {
+        return users.get();
+    }
+}
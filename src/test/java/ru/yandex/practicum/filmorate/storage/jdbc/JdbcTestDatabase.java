@@ -0,0 +1,18 @@
+package ru.yandex.practicum.filmorate.storage.jdbc;
+
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// a new, empty in-memory H2 database with the storage schema; it lives until the JVM exits
+public class JdbcTestDatabase {
+    private static final AtomicInteger COUNTER = new AtomicInteger();
+
+    public static DataSource create() {
+        DataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:filmorate-" + COUNTER.incrementAndGet() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcStorageConfiguration.createSchema(dataSource);
+        return dataSource;
+    }
+}
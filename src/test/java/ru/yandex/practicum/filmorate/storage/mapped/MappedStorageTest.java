@@ -0,0 +1,136 @@
+package ru.yandex.practicum.filmorate.storage.mapped;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.StorageData;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.util.LongHashSet;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class MappedStorageTest {
+    @TempDir
+    private Path directory;
+
+    private MappedFilmStorage films;
+    private MappedUserStorage users;
+
+    @BeforeEach
+    void init() throws Exception {
+        InMemoryFilmStorage sourceFilms = new InMemoryFilmStorage();
+        InMemoryUserStorage sourceUsers = new InMemoryUserStorage();
+        for (long id = 1; id <= 3; id++) {
+            sourceUsers.create(new User(id, "user" + id + "@test.ru", "login" + id, null,
+                    LocalDate.of(1990, 1, 1), new LongHashSet()));
+            sourceFilms.create(new Film(id, "Фильм " + id, "Описание", LocalDate.of(2000, 1, 1),
+                    Duration.ofMinutes(90), new LongHashSet()));
+        }
+        sourceUsers.addFriend(1, 2);
+        sourceFilms.addLike(3, 1);
+        sourceFilms.addLike(3, 2);
+        sourceFilms.addLike(2, 1);
+
+        Path file = directory.resolve("snapshot.bin");
+        MappedSnapshotWriter.write(file, 42, sourceUsers, sourceFilms);
+        MappedSnapshot snapshot = MappedSnapshot.open(file);
+        assertEquals(42, snapshot.sequence());
+        films = new MappedFilmStorage(snapshot);
+        users = new MappedUserStorage(snapshot);
+    }
+
+    @Test
+    void readsRecordsFromSnapshot() {
+        User user = users.getElement(1L).orElseThrow();
+        assertEquals("login1", user.getLogin());
+        assertNull(user.getName());
+        assertEquals(Set.of(2L), user.getFriends());
+
+        Film film = films.getElement(3L).orElseThrow();
+        assertEquals("Фильм 3", film.getName());
+        assertEquals(Duration.ofMinutes(90), film.getDuration());
+        assertEquals(Set.of(1L, 2L), film.getLikes());
+        assertEquals(List.of(3L, 2L, 1L), ids(films.getPopular(10)));
+    }
+
+    @Test
+    void overlayShadowsSnapshotAndKeepsIdOrder() {
+        assertEquals(4L, films.nextId());
+        films.create(new Film(4L, "Новый", "Описание", LocalDate.of(2020, 1, 1), Duration.ofMinutes(60),
+                new LongHashSet()));
+        films.addLike(1, 1);
+        films.addLike(1, 2);
+        films.addLike(1, 3);
+        users.addFriend(3, 1);
+
+        assertEquals(List.of(1L, 2L, 3L, 4L), ids(films.getAll()));
+        assertEquals(List.of(2L, 3L), ids(films.getPage(1, 2)));
+        assertEquals(Set.of(1L, 2L, 3L), films.getElement(1L).orElseThrow().getLikes());
+        assertEquals(List.of(1L, 3L, 2L, 4L), ids(films.getPopular(10)));
+        assertEquals(Set.of(2L, 3L), users.getElement(1L).orElseThrow().getFriends());
+        assertEquals(List.of(1L), ids(users.getCommonFriends(2, 3)));
+    }
+
+    @Test
+    void countsCoverSnapshotAndOverlay() {
+        assertEquals(3, films.size());
+        assertEquals(3, films.getLikeCount());
+        assertEquals(2, users.getFriendCount());
+
+        films.create(new Film(4L, "Новый", "Описание", LocalDate.of(2020, 1, 1), Duration.ofMinutes(60),
+                new LongHashSet()));
+        films.addLike(4, 1);
+        films.deleteLike(3, 2);
+        users.addFriend(3, 1);
+        users.update(new User(2L, "user2@test.ru", "login2", null, LocalDate.of(1990, 1, 1), new LongHashSet()));
+
+        assertEquals(4, films.size());
+        assertEquals(3, users.size());
+        assertEquals(3, films.getLikeCount());
+        assertEquals(3, users.getFriendCount());
+    }
+
+    @Test
+    void friendListsChangedBeforeTheFirstCountAreCountedOnce() {
+        users.addFriend(3, 1);
+        users.deleteFriend(1, 2);
+        users.update(new User(2L, "user2@test.ru", "login2", null, LocalDate.of(1990, 1, 1), new LongHashSet()));
+
+        assertEquals(2, users.getFriendCount());
+        assertEquals(2, users.getFriendCount());
+    }
+
+    // copying a film into the overlay and filling the popularity index store nothing, so only the like is timed
+    @Test
+    void onlyRealWritesAreTimed() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        Metrics.addRegistry(registry);
+        try {
+            Timer writes = registry.get("filmorate.storage.writes").tag("entity", "film").timer();
+            long before = writes.count();
+            films.getPopular(10);
+            films.addLike(1, 3);
+            assertEquals(before + 1, writes.count());
+        } finally {
+            Metrics.removeRegistry(registry);
+        }
+    }
+
+    private static List<Long> ids(Collection<? extends StorageData> elements) {
+        return elements.stream().map(StorageData::getId).toList();
+    }
+}
@@ -0,0 +1,105 @@
+package ru.yandex.practicum.filmorate.storage.partitioned;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.model.StorageData;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.util.LongHashSet;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PartitionedStorageTest {
+    private static final int SHARDS = 4;
+    private static final int FILMS = PartitionedStorage.PARALLEL_THRESHOLD + 100;
+
+    private PartitionedFilmStorage films;
+    private PartitionedUserStorage users;
+
+    @BeforeEach
+    void init() {
+        films = new PartitionedFilmStorage(new PartitionedStorageProperties(SHARDS));
+        users = new PartitionedUserStorage(new PartitionedStorageProperties(SHARDS));
+        List<Film> created = new ArrayList<>();
+        long first = films.reserveIds(FILMS);
+        for (long id = first; id < first + FILMS; id++) {
+            created.add(new Film(id, "Фильм " + id, "Описание", LocalDate.of(2000, 1, 1), Duration.ofMinutes(90),
+                    new LongHashSet()));
+        }
+        films.createAll(created);
+        for (int i = 0; i < 3; i++) {
+            users.create(new User(users.nextId(), "user@test.ru", "login", null, LocalDate.of(1990, 1, 1),
+                    new LongHashSet()));
+        }
+    }
+
+    @Test
+    void spreadsIdsOverShardsAndScansThemInIdOrder() {
+        films.shards.forEach(shard -> assertTrue(shard.size() > FILMS / SHARDS / 2));
+        assertEquals(FILMS, films.size());
+        assertEquals(LongStream.rangeClosed(1, FILMS).boxed().toList(), ids(films.getAll()));
+        assertEquals(List.of(11L, 12L, 13L), ids(films.getPage(10, 3)));
+        assertEquals(List.of((long) FILMS), ids(films.getPage(FILMS - 1, 10)));
+        assertEquals(FILMS + 1, films.nextId());
+    }
+
+    @Test
+    void popularIsTheMergedTopOfTheShards() {
+        List<Like> likes = new ArrayList<>();
+        for (long film = 1; film <= 20; film++) {
+            for (long user = 1; user <= film % 7; user++) {
+                likes.add(new Like(film, user));
+            }
+        }
+        films.addLikes(likes);
+
+        List<Film> expected = films.getAll().stream()
+                .sorted(Comparator.comparingInt((Film film) -> film.getLikes().size()).reversed()
+                        .thenComparingLong(Film::getId))
+                .limit(10)
+                .toList();
+        assertEquals(ids(expected), ids(films.getPopular(10)));
+        assertEquals(List.of(6L, 13L, 20L), ids(films.getPopular(3)));
+        assertEquals(likes.size(), films.getLikeCount());
+    }
+
+    @Test
+    void friendshipAcrossShardsStampsBothUsers() {
+        assertNotSame(users.shard(1), users.shard(3));
+        long version = users.version();
+        long thirdVersion = users.getElement(3L).orElseThrow().getVersion();
+        users.addFriend(1, 2);
+        users.addFriend(1, 3);
+
+        User first = users.getElement(1L).orElseThrow();
+        User third = users.getElement(3L).orElseThrow();
+        assertEquals(List.of(2L, 3L), first.getFriends().stream().sorted().toList());
+        assertEquals(List.of(1L), List.copyOf(third.getFriends()));
+        assertEquals(first.getVersion(), third.getVersion());
+        assertTrue(third.getVersion() > thirdVersion);
+        assertTrue(users.version() >= version + 2);
+        assertEquals(List.of(1L), ids(users.getCommonFriends(2, 3)));
+        assertEquals(4, users.getFriendCount());
+
+        // the third user's own shard continues above the version the first user's shard gave it
+        long stamped = third.getVersion();
+        users.deleteFriend(3, 1);
+        assertEquals(2, users.getFriendCount());
+        assertTrue(users.getElement(3L).orElseThrow().getVersion() > stamped);
+    }
+
+    private static List<Long> ids(Collection<? extends StorageData> elements) {
+        return elements.stream().map(StorageData::getId).toList();
+    }
+}
@@ -0,0 +1,78 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.util.LongHashSet;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PersistenceManagerTest {
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void restoresSnapshotAndLogTailAfterRestart() throws Exception {
+        FilmStorage films = new InMemoryFilmStorage();
+        UserStorage users = new InMemoryUserStorage();
+        PersistenceManager manager = start(films, users);
+
+        users.create(newUser(users.nextId()));
+        users.create(newUser(users.nextId()));
+        films.create(newFilm(films.nextId()));
+        films.addLike(1, 1);
+        users.addFriend(1, 2);
+        manager.snapshot();
+
+        films.create(newFilm(films.nextId()));
+        films.addLike(2, 1);
+        films.addLike(2, 2);
+        films.deleteLike(1, 1);
+        users.deleteFriend(1, 2);
+        // no stop(): the restart must rely on the snapshot plus the fsynced log tail
+
+        FilmStorage restoredFilms = new InMemoryFilmStorage();
+        UserStorage restoredUsers = new InMemoryUserStorage();
+        PersistenceManager restored = start(restoredFilms, restoredUsers);
+
+        assertEquals(2, restoredUsers.getAll().size());
+        assertEquals(Set.of(), restoredUsers.getElement(1L).orElseThrow().getFriends());
+        assertEquals(Set.of(1L, 2L), restoredFilms.getElement(2L).orElseThrow().getLikes());
+        assertEquals(Set.of(), restoredFilms.getElement(1L).orElseThrow().getLikes());
+        assertEquals(List.of(2L, 1L), restoredFilms.getPopular(2).stream().map(Film::getId).toList());
+        assertEquals(3L, restoredFilms.nextId());
+        restored.stop();
+    }
+
+    private PersistenceManager start(FilmStorage films, UserStorage users) throws Exception {
+        PersistenceProperties properties = new PersistenceProperties(true, directory, Duration.ofHours(1), true);
+        PersistenceManager manager = new PersistenceManager(films, users, properties, objectMapper,
+                new JsonSnapshotStore(properties, objectMapper));
+        manager.start();
+        return manager;
+    }
+
+    private static User newUser(long id) {
+        return new User(id, "user" + id + "@test.ru", "login" + id, "name", LocalDate.of(1990, 1, 1),
+                new LongHashSet());
+    }
+
+    private static Film newFilm(long id) {
+        return new Film(id, "Фильм " + id, "Описание", LocalDate.of(2000, 1, 1), Duration.ofMinutes(90),
+                new LongHashSet());
+    }
+}
@@ -0,0 +1,61 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class WriteAheadLogTest {
+    private final MutationCodec codec = new MutationCodec(new ObjectMapper().findAndRegisterModules());
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void appendsAfterCloseFail() throws Exception {
+        WriteAheadLog log = WriteAheadLog.open(directory, 0, codec, false);
+        assertEquals(1L, log.append(like()).get(5, TimeUnit.SECONDS));
+        log.close();
+
+        CompletionException error = assertThrows(CompletionException.class, () -> log.append(like()).join());
+        assertInstanceOf(IllegalStateException.class, error.getCause());
+    }
+
+    // the writer stops on the error; what was queued behind it and what comes later fails instead of waiting
+    @Test
+    void appendsAfterAWriteErrorFail() throws Exception {
+        Path logDirectory = directory.resolve("wal");
+        WriteAheadLog log = WriteAheadLog.open(logDirectory, 0, codec, false);
+        assertEquals(1L, log.append(like()).get(5, TimeUnit.SECONDS));
+        // the next segment cannot be created where the directory was
+        try (Stream<Path> segments = Files.list(logDirectory)) {
+            for (Path segment : segments.toList()) {
+                Files.delete(segment);
+            }
+        }
+        Files.delete(logDirectory);
+        Files.createFile(logDirectory);
+
+        assertThrows(CompletionException.class, log::rotate);
+        CompletableFuture<Long> later = log.append(like());
+        CompletionException error = assertThrows(CompletionException.class,
+                () -> later.orTimeout(5, TimeUnit.SECONDS).join());
+        assertInstanceOf(UncheckedIOException.class, error.getCause());
+        log.close();
+    }
+
+    private static Mutation like() {
+        return Mutation.of(Mutation.Type.LIKE_ADDED, 1, 1);
+    }
+}
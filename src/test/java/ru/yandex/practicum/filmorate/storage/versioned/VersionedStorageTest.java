@@ -0,0 +1,109 @@
+package ru.yandex.practicum.filmorate.storage.versioned;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.model.StorageData;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.util.LongHashSet;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class VersionedStorageTest {
+    private VersionedFilmStorage films;
+    private VersionedUserStorage users;
+
+    @BeforeEach
+    void init() {
+        films = new VersionedFilmStorage();
+        users = new VersionedUserStorage();
+        for (int i = 0; i < 3; i++) {
+            films.create(new Film(films.nextId(), "Фильм", "Описание", LocalDate.of(2000, 1, 1),
+                    Duration.ofMinutes(90), new LongHashSet()));
+            users.create(new User(users.nextId(), "user@test.ru", "login", null, LocalDate.of(1990, 1, 1),
+                    new LongHashSet()));
+        }
+    }
+
+    @Test
+    void snapshotKeepsItsPointInTime() {
+        FilmStorage filmSnapshot = films.snapshot();
+        UserStorage userSnapshot = users.snapshot();
+        Collection<Film> all = films.getAll();
+        films.addLike(2, 1);
+        users.addFriend(1, 2);
+
+        assertEquals(0, filmSnapshot.getElement(2L).orElseThrow().getLikes().size());
+        assertEquals(0, all.stream().mapToInt(film -> film.getLikes().size()).sum());
+        assertEquals(List.of(1L, 2L, 3L), ids(filmSnapshot.getPopular(3)));
+        assertEquals(List.of(2L, 1L, 3L), ids(films.getPopular(3)));
+        assertEquals(0, userSnapshot.getFriendCount());
+        assertEquals(2, users.getFriendCount());
+        assertEquals(users.version(), users.getElement(2L).orElseThrow().getVersion());
+        assertThrows(UnsupportedOperationException.class, () -> filmSnapshot.addLike(1, 1));
+    }
+
+    @Test
+    void storesCopiesOfWhatItIsGiven() {
+        Film film = films.getElement(1L).orElseThrow();
+        Film changed = new Film(1L, "Другое", "Описание", LocalDate.of(2000, 1, 1), Duration.ofMinutes(90),
+                new LongHashSet());
+        films.update(changed);
+        changed.getLikes().add(3);
+
+        assertEquals("Фильм", film.getName());
+        assertEquals(0, films.getElement(1L).orElseThrow().getLikes().size());
+        assertEquals(0, films.getLikeCount());
+    }
+
+    // a reader walking the films while likes keep landing sees every film exactly once and one state of each
+    @Test
+    void readersNeverSeeAHalfAppliedBatch() {
+        AtomicBoolean done = new AtomicBoolean();
+        CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> {
+            for (long user = 1; user <= 500; user++) {
+                long liker = user;
+                films.addLikes(List.of(new Like(1, liker), new Like(2, liker)));
+            }
+            done.set(true);
+        });
+        while (!done.get()) {
+            List<Film> all = List.copyOf(films.getAll());
+            assertEquals(3, all.size());
+            assertEquals(all.get(0).getLikes().size(), all.get(1).getLikes().size());
+        }
+        writer.join();
+        assertEquals(1_000, films.getLikeCount());
+    }
+
+    @Test
+    void ranksFilmsWithIdsBeyondTheIntRange() {
+        long big = 1L << 33;
+        films.create(new Film(big, "Фильм", "Описание", LocalDate.of(2000, 1, 1), Duration.ofMinutes(90),
+                new LongHashSet()));
+        films.addLike(big, 1);
+        films.addLike(big, 2);
+        films.addLike(3, 1);
+
+        assertEquals(List.of(big, 3L, 1L, 2L), ids(films.getPopular(10)));
+        assertEquals(List.of(big, 3L), ids(films.getPopular(2)));
+        films.deleteLike(big, 1);
+        films.deleteLike(big, 2);
+        assertEquals(List.of(3L, 1L, 2L, big), ids(films.getPopular(10)));
+    }
+
+    private static List<Long> ids(Collection<? extends StorageData> elements) {
+        return elements.stream().map(StorageData::getId).toList();
+    }
+}
@@ -0,0 +1,75 @@
+package ru.yandex.practicum.filmorate.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IntBitmapTest {
+
+    // values from a few chunks, dense enough that chunks switch between sorted arrays and bitmaps both ways
+    @Test
+    void behavesLikeTreeSetUnderRandomAddsAndRemoves() {
+        Random random = new Random(42);
+        TreeSet<Integer> expected = new TreeSet<>();
+        IntBitmap actual = new IntBitmap();
+
+        for (int i = 0; i < 300_000; i++) {
+            int value = random.nextInt(3) << 16 | random.nextInt(i < 150_000 ? 12_000 : 65_536);
+            if (random.nextInt(3) > 0 == i < 200_000) {
+                assertEquals(expected.add(value), actual.add(value));
+            } else {
+                assertEquals(expected.remove(value), actual.remove(value));
+            }
+        }
+
+        assertEquals(expected.size(), actual.cardinality());
+        assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), actual.toArray());
+        for (int value = 0; value < 3 << 16; value += 7) {
+            assertEquals(expected.contains(value), actual.contains(value));
+        }
+    }
+
+    @Test
+    void andCardinalityCountsCommonValuesAcrossChunkKinds() {
+        Random random = new Random(7);
+        IntBitmap sparse = new IntBitmap();
+        IntBitmap dense = new IntBitmap();
+        TreeSet<Integer> sparseValues = new TreeSet<>();
+        TreeSet<Integer> denseValues = new TreeSet<>();
+        for (int i = 0; i < 3000; i++) {
+            int value = random.nextInt(4 << 16);
+            sparse.add(value);
+            sparseValues.add(value);
+        }
+        for (int i = 0; i < 60_000; i++) {
+            // the first two chunks become bitmaps, the others stay arrays
+            int value = i < 50_000 ? random.nextInt(2 << 16) : random.nextInt(4 << 16);
+            dense.add(value);
+            denseValues.add(value);
+        }
+        sparseValues.retainAll(denseValues);
+
+        assertEquals(sparseValues.size(), sparse.andCardinality(dense));
+        assertEquals(sparseValues.size(), dense.andCardinality(sparse));
+        assertEquals(denseValues.size(), dense.andCardinality(dense));
+        assertEquals(0, sparse.andCardinality(new IntBitmap()));
+    }
+
+    @Test
+    void removingLastValueDropsTheChunk() {
+        IntBitmap bitmap = new IntBitmap();
+        assertTrue(bitmap.add(70_000));
+        assertFalse(bitmap.add(70_000));
+        assertTrue(bitmap.remove(70_000));
+        assertFalse(bitmap.remove(70_000));
+        assertTrue(bitmap.isEmpty());
+        assertArrayEquals(new int[0], bitmap.toArray());
+        assertFalse(bitmap.contains(-1));
+    }
+}
@@ -0,0 +1,70 @@
+package ru.yandex.practicum.filmorate.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LongHashSetTest {
+
+    @Test
+    void behavesLikeHashSetUnderRandomAddsAndRemoves() {
+        Random random = new Random(42);
+        Set<Long> expected = new HashSet<>();
+        LongHashSet actual = new LongHashSet();
+
+        for (int i = 0; i < 200_000; i++) {
+            long key = random.nextInt(5_000) - 10;
+            if (random.nextBoolean()) {
+                assertEquals(expected.add(key), actual.add(key));
+            } else {
+                assertEquals(expected.remove(key), actual.remove(key));
+            }
+        }
+
+        assertEquals(expected.size(), actual.size());
+        assertEquals(expected, actual);
+        for (long key = -10; key < 5_000; key++) {
+            assertEquals(expected.contains(key), actual.contains(key));
+        }
+    }
+
+    @Test
+    void iteratorRemoveDeletesElement() {
+        LongHashSet set = new LongHashSet(Set.of(1L, 2L, 3L));
+        set.removeIf(id -> id == 2L);
+
+        assertEquals(Set.of(1L, 3L), set);
+        assertFalse(set.contains(2L));
+        assertTrue(set.contains(3L));
+    }
+
+    @Test
+    void intersectionLeavesBothSetsUntouched() {
+        LongHashSet small = new LongHashSet(Set.of(1L, 2L, 3L));
+        LongHashSet large = new LongHashSet(Set.of(2L, 3L, 4L, 5L, 6L));
+
+        assertEquals(Set.of(2L, 3L), new LongHashSet(Arrays.stream(LongHashSet.intersection(large, small))
+                .boxed()
+                .toList()));
+        assertEquals(3, small.size());
+        assertEquals(5, large.size());
+    }
+
+    @Test
+    void serializesAsJsonArray() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        LongHashSet set = new LongHashSet(Set.of(7L, 0L));
+
+        String json = mapper.writeValueAsString(set);
+        assertTrue(json.equals("[0,7]") || json.equals("[7,0]"));
+        assertEquals(set, mapper.readValue(json, LongHashSet.class));
+    }
+}
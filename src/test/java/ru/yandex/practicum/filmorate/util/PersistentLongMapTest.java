@@ -0,0 +1,67 @@
+package ru.yandex.practicum.filmorate.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class PersistentLongMapTest {
+
+    @Test
+    void behavesLikeTreeMapUnderRandomPutsAndRemoves() {
+        Random random = new Random(42);
+        TreeMap<Long, Long> expected = new TreeMap<>();
+        PersistentLongMap<Long> actual = PersistentLongMap.empty();
+
+        for (int i = 0; i < 100_000; i++) {
+            // mostly dense small keys, now and then one that needs a taller trie
+            long key = random.nextInt(10) == 0 ? random.nextLong(Long.MAX_VALUE) : random.nextInt(3_000);
+            if (random.nextInt(3) > 0) {
+                expected.put(key, (long) i);
+                actual = actual.put(key, (long) i);
+            } else {
+                expected.remove(key);
+                actual = actual.remove(key);
+            }
+        }
+
+        assertEquals(expected.size(), actual.size());
+        assertEquals(List.copyOf(expected.values()), List.copyOf(actual.values()));
+        for (long key = 0; key < 3_000; key++) {
+            assertEquals(expected.get(key), actual.get(key));
+        }
+        for (long after : new long[]{-1, 0, 31, 32, 1_023, 2_999, Long.MAX_VALUE / 2, Long.MAX_VALUE}) {
+            List<Long> page = expected.tailMap(after, false).values().stream().limit(50).toList();
+            assertEquals(page, actual.page(after, 50));
+        }
+    }
+
+    @Test
+    void earlierVersionsStayUnchanged() {
+        PersistentLongMap<String> first = PersistentLongMap.<String>empty().put(1, "a").put(40, "b");
+        PersistentLongMap<String> second = first.put(1, "c").put(100_000, "d").remove(40);
+
+        assertEquals(List.of("a", "b"), List.copyOf(first.values()));
+        assertEquals(List.of("c", "d"), List.copyOf(second.values()));
+        assertNull(first.get(100_000));
+        assertSame(first, first.remove(7));
+    }
+
+    @Test
+    void forEachAfterStopsWhenAsked() {
+        PersistentLongMap<Long> map = PersistentLongMap.empty();
+        for (long key = 0; key < 1_000; key += 3) {
+            map = map.put(key, key);
+        }
+        List<Long> seen = new ArrayList<>();
+        map.forEachAfter(100, value -> seen.add(value) && value < 120);
+
+        assertEquals(List.of(102L, 105L, 108L, 111L, 114L, 117L, 120L), seen);
+    }
+}